@@ -0,0 +1,23 @@
+package grader;
+
+import graph.Graph;
+import graph.CSRDirectedGraph;
+import graph.CSRUndirectedGraph;
+
+/** Runs the tests in GraphTest against the compressed-sparse-row
+ *  graph implementations.
+ *  @author Leslie Yang
+ */
+public class CSRGraphTest extends GraphTest {
+
+    @Override
+    Graph dg() {
+        return new CSRDirectedGraph();
+    }
+
+    @Override
+    Graph ug() {
+        return new CSRUndirectedGraph();
+    }
+
+}
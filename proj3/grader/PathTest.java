@@ -246,6 +246,30 @@ public class PathTest {
     }
 
 
+    /** Test bidirectional A* search with directed edges. */
+    @Test(timeout = 1000)
+    public void directedBidirectionalAStar() {
+        fillWeightedGraph(new DG(), NV2, E2);
+        ShortestPaths sp = new SP2(1, 2, H2);
+        sp.setBidirectional(true);
+        sp.setPaths();
+        assertEquals("wrong path to Bucharest", asList(P2_2), sp.pathTo(2));
+        assertEquals("wrong distance to Bucharest", 418.0, sp.getWeight(2),
+                     1e-6);
+    }
+
+    /** Test bidirectional search with undirected edges and no
+     *  heuristic. */
+    @Test(timeout = 1000)
+    public void undirectedBidirectional() {
+        fillWeightedGraph(new UG(), NV1, E1);
+        ShortestPaths sp = new SP1(1);
+        sp.setBidirectional(true);
+        sp.setPaths(1, 8);
+        assertEquals("bad distance", UG_W1[8], sp.getWeight(8), 1e-6);
+        assertEquals("bad path start", 1, (int) sp.pathTo(8).get(0));
+    }
+
     /** The test graph. */
     private Graph _G;
     private ArrayList<ArrayList<Double>> _W;
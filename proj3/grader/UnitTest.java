@@ -15,6 +15,7 @@ public class UnitTest {
     /** Run all JUnit tests in the graph package. */
     public static void main(String... ignored) {
         System.exit(textui.runClasses(grader.GraphTest.class,
+                                      grader.CSRGraphTest.class,
                                       grader.LabeledGraphTest.class,
                                       grader.PathTest.class));
     }
@@ -0,0 +1,19 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** A directed graph stored in compressed-sparse-row form.  It behaves
+ *  exactly as a DirectedGraph, but answers degree, successor, and
+ *  predecessor queries without scanning the whole edge set.  See
+ *  CSRGraph for the costs of modifying it.
+ *
+ *  @author Leslie Yang
+ */
+public class CSRDirectedGraph extends CSRGraph {
+
+    @Override
+    public boolean isDirected() {
+        return true;
+    }
+
+}
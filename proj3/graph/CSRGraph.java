@@ -0,0 +1,439 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+/** A partial implementation of Graph that stores its edges in
+ *  compressed-sparse-row (CSR) form: for each vertex v, its successors
+ *  are _outTarget[_outStart[v] .. _outStart[v + 1] - 1], in the order
+ *  their edges were added.  Degree queries are O(1), successor queries
+ *  O(deg), and edge membership O(1) (through an EdgeTable).
+ *
+ *  Edges are recorded in an insertion-ordered edge log; the row arrays
+ *  are rebuilt from it, in O(V + E) time, on the first query following a
+ *  change to the edge set.  The representation therefore suits graphs
+ *  that are built once and then searched many times (such as road maps),
+ *  rather than ones whose edges are modified between each query.
+ *  Edge ids are positions in the log.  Removed edges leave a hole in
+ *  the log, so that ids are never reused.
+ *
+ *  @author Leslie Yang
+ */
+abstract class CSRGraph extends Graph {
+
+    /** A new, empty Graph. */
+    CSRGraph() {
+        _vertices = new BitSet();
+        _edgeIndex = new EdgeTable();
+        _from = new int[INITIAL_EDGES];
+        _to = new int[INITIAL_EDGES];
+        _outStart = _inStart = new int[1];
+        _outTarget = _inSource = new int[0];
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexCount;
+    }
+
+    @Override
+    public int maxVertex() {
+        return Math.max(0, _vertices.length() - 1);
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeCount;
+    }
+
+    @Override
+    public int outDegree(int v) {
+        if (!contains(v)) {
+            return 0;
+        }
+        build();
+        return degree(_outStart, v);
+    }
+
+    @Override
+    public int inDegree(int v) {
+        if (!isDirected()) {
+            return outDegree(v);
+        }
+        if (!contains(v)) {
+            return 0;
+        }
+        build();
+        return degree(_inStart, v);
+    }
+
+    @Override
+    public boolean contains(int u) {
+        return u > 0 && _vertices.get(u);
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return contains(u) && contains(v) && logIndex(u, v) >= 0;
+    }
+
+    @Override
+    public int add() {
+        int v = _vertices.nextClearBit(1);
+        _vertices.set(v);
+        _vertexCount += 1;
+        return v;
+    }
+
+    @Override
+    public int add(int u, int v) {
+        checkMyVertex(u);
+        checkMyVertex(v);
+        int e = logIndex(u, v);
+        if (e >= 0) {
+            return e + 1;
+        }
+        if (_logSize == _from.length) {
+            _from = Arrays.copyOf(_from, 2 * _logSize);
+            _to = Arrays.copyOf(_to, 2 * _logSize);
+        }
+        e = _logSize;
+        _from[e] = u;
+        _to[e] = v;
+        _logSize += 1;
+        _edgeCount += 1;
+        if (isDirected()) {
+            _edgeIndex.put(u, v, e);
+        } else {
+            _edgeIndex.put(Math.min(u, v), Math.max(u, v), e);
+        }
+        _dirty = true;
+        return e + 1;
+    }
+
+    @Override
+    public void remove(int v) {
+        if (!contains(v)) {
+            return;
+        }
+        build();
+        if (v + 1 < _outStart.length) {
+            for (int i = _outStart[v]; i < _outStart[v + 1]; i += 1) {
+                removeEdge(v, _outTarget[i]);
+            }
+            if (isDirected()) {
+                for (int i = _inStart[v]; i < _inStart[v + 1]; i += 1) {
+                    removeEdge(_inSource[i], v);
+                }
+            }
+        }
+        _vertices.clear(v);
+        _vertexCount -= 1;
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        if (contains(u) && contains(v)) {
+            removeEdge(u, v);
+        }
+    }
+
+    @Override
+    public Iteration<Integer> vertices() {
+        return new VertexIteration(_vertices);
+    }
+
+    @Override
+    public int successor(int v, int k) {
+        if (!contains(v)) {
+            return 0;
+        }
+        build();
+        return select(_outStart, _outTarget, v, k);
+    }
+
+    @Override
+    public int predecessor(int v, int k) {
+        if (!isDirected()) {
+            return successor(v, k);
+        }
+        if (!contains(v)) {
+            return 0;
+        }
+        build();
+        return select(_inStart, _inSource, v, k);
+    }
+
+    @Override
+    public Iteration<Integer> successors(int v) {
+        if (!contains(v)) {
+            return new RowIteration(RowIteration.EMPTY, 0, 0);
+        }
+        build();
+        return row(_outStart, _outTarget, v);
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        if (!isDirected()) {
+            return successors(v);
+        }
+        if (!contains(v)) {
+            return new RowIteration(RowIteration.EMPTY, 0, 0);
+        }
+        build();
+        return row(_inStart, _inSource, v);
+    }
+
+    @Override
+    public IntIteration intVertices() {
+        return _vertexCursor.get().reset(_vertices);
+    }
+
+    @Override
+    public IntIteration intSuccessors(int v) {
+        IntIteration.Row cursor = _successorCursor.get();
+        if (!contains(v)) {
+            return cursor.reset(RowIteration.EMPTY, 0, 0);
+        }
+        build();
+        return reset(cursor, _outStart, _outTarget, v);
+    }
+
+    @Override
+    public IntIteration intPredecessors(int v) {
+        if (!isDirected()) {
+            return intSuccessors(v);
+        }
+        IntIteration.Row cursor = _predecessorCursor.get();
+        if (!contains(v)) {
+            return cursor.reset(RowIteration.EMPTY, 0, 0);
+        }
+        build();
+        return reset(cursor, _inStart, _inSource, v);
+    }
+
+    @Override
+    public Iteration<int[]> edges() {
+        return new EdgeIteration();
+    }
+
+    @Override
+    protected int edgeId(int u, int v) {
+        if (!contains(u) || !contains(v)) {
+            return 0;
+        }
+        return logIndex(u, v) + 1;
+    }
+
+    /** Returns the position in the edge log of edge (U, V), or -1 if
+     *  there is none. */
+    private int logIndex(int u, int v) {
+        if (isDirected()) {
+            return _edgeIndex.get(u, v);
+        } else {
+            return _edgeIndex.get(Math.min(u, v), Math.max(u, v));
+        }
+    }
+
+    /** Remove edge (U, V) if present. */
+    private void removeEdge(int u, int v) {
+        int e;
+        if (isDirected()) {
+            e = _edgeIndex.remove(u, v);
+        } else {
+            e = _edgeIndex.remove(Math.min(u, v), Math.max(u, v));
+        }
+        if (e >= 0) {
+            _from[e] = _to[e] = 0;
+            _edgeCount -= 1;
+            _dirty = true;
+        }
+    }
+
+    /** Returns the length of row V in the row index START.  Vertices
+     *  added since the last rebuild lie beyond START and have no edges. */
+    private static int degree(int[] start, int v) {
+        if (v + 1 >= start.length) {
+            return 0;
+        }
+        return start[v + 1] - start[v];
+    }
+
+    /** Returns item K of row V of the CSR structure (START, ITEMS), or
+     *  0 if there is no such item. */
+    private static int select(int[] start, int[] items, int v, int k) {
+        if (k < 0 || k >= degree(start, v)) {
+            return 0;
+        }
+        return items[start[v] + k];
+    }
+
+    /** Returns an iteration over row V of the CSR structure
+     *  (START, ITEMS). */
+    private static Iteration<Integer> row(int[] start, int[] items, int v) {
+        if (v + 1 >= start.length) {
+            return new RowIteration(items, 0, 0);
+        }
+        return new RowIteration(items, start[v], start[v + 1]);
+    }
+
+    /** Set CURSOR to iterate over row V of the CSR structure
+     *  (START, ITEMS), and return it. */
+    private static IntIteration reset(IntIteration.Row cursor,
+                                      int[] start, int[] items, int v) {
+        if (v + 1 >= start.length) {
+            return cursor.reset(items, 0, 0);
+        }
+        return cursor.reset(items, start[v], start[v + 1]);
+    }
+
+    /** Bring the row arrays up to date with the edge log, if needed. */
+    private void build() {
+        if (_dirty) {
+            rebuild();
+        }
+    }
+
+    /** Rebuild the row arrays from the edge log.  Synchronized so that an
+     *  unmodified graph may be searched by several threads at once. */
+    private synchronized void rebuild() {
+        if (!_dirty) {
+            return;
+        }
+        int n = maxVertex() + 2;
+        if (isDirected()) {
+            int[] outStart = new int[n], inStart = new int[n];
+            for (int e = 0; e < _logSize; e += 1) {
+                if (_from[e] != 0) {
+                    outStart[_from[e] + 1] += 1;
+                    inStart[_to[e] + 1] += 1;
+                }
+            }
+            prefixSums(outStart);
+            prefixSums(inStart);
+            int[] outTarget = new int[_edgeCount],
+                inSource = new int[_edgeCount];
+            int[] outNext = outStart.clone(), inNext = inStart.clone();
+            for (int e = 0; e < _logSize; e += 1) {
+                int u = _from[e], v = _to[e];
+                if (u != 0) {
+                    outTarget[outNext[u]++] = v;
+                    inSource[inNext[v]++] = u;
+                }
+            }
+            _outTarget = outTarget;
+            _inSource = inSource;
+            _outStart = outStart;
+            _inStart = inStart;
+        } else {
+            int[] start = new int[n];
+            int m;
+            m = 0;
+            for (int e = 0; e < _logSize; e += 1) {
+                int u = _from[e], v = _to[e];
+                if (u != 0) {
+                    start[u + 1] += 1;
+                    m += 1;
+                    if (u != v) {
+                        start[v + 1] += 1;
+                        m += 1;
+                    }
+                }
+            }
+            prefixSums(start);
+            int[] target = new int[m];
+            int[] next = start.clone();
+            for (int e = 0; e < _logSize; e += 1) {
+                int u = _from[e], v = _to[e];
+                if (u != 0) {
+                    target[next[u]++] = v;
+                    if (u != v) {
+                        target[next[v]++] = u;
+                    }
+                }
+            }
+            _outTarget = _inSource = target;
+            _outStart = _inStart = start;
+        }
+        _dirty = false;
+    }
+
+    /** Replace each A[i] by A[0] + ... + A[i]. */
+    private static void prefixSums(int[] a) {
+        for (int i = 1; i < a.length; i += 1) {
+            a[i] += a[i - 1];
+        }
+    }
+
+    /** An Iteration over my edges in the order they were added.  Returns
+     *  the same array on each call of next. */
+    private class EdgeIteration extends Iteration<int[]> {
+        /** Advance _next to the next live edge in the log. */
+        private void skip() {
+            while (_next < _logSize && _from[_next] == 0) {
+                _next += 1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            skip();
+            return _next < _logSize;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _edge[0] = _from[_next];
+            _edge[1] = _to[_next];
+            _next += 1;
+            return _edge;
+        }
+
+        /** Position of the next edge in the log. */
+        private int _next;
+        /** The array returned by next. */
+        private final int[] _edge = new int[2];
+    }
+
+    /** Initial capacity of the edge log. */
+    private static final int INITIAL_EDGES = 16;
+
+    /** My vertices. */
+    private final BitSet _vertices;
+    /** Number of my vertices. */
+    private int _vertexCount;
+    /** Maps each edge to its position in the edge log.  Undirected edges
+     *  are entered as (min, max). */
+    private final EdgeTable _edgeIndex;
+    /** The edge log: edge #e runs from _from[e] to _to[e], or has been
+     *  removed if _from[e] == 0. */
+    private int[] _from, _to;
+    /** Number of entries used in the edge log. */
+    private int _logSize;
+    /** Number of my edges. */
+    private int _edgeCount;
+    /** True iff the edge log has changed since the last rebuild. */
+    private volatile boolean _dirty;
+    /** Row starts and successors.  For undirected graphs, these are the
+     *  same as _inStart and _inSource. */
+    private int[] _outStart, _outTarget;
+    /** Row starts and predecessors. */
+    private int[] _inStart, _inSource;
+    /** Per-thread iterations returned by intVertices. */
+    private final ThreadLocal<IntIteration.Members> _vertexCursor =
+        ThreadLocal.withInitial(IntIteration.Members::new);
+    /** Per-thread iterations returned by intSuccessors. */
+    private final ThreadLocal<IntIteration.Row> _successorCursor =
+        ThreadLocal.withInitial(IntIteration.Row::new);
+    /** Per-thread iterations returned by intPredecessors. */
+    private final ThreadLocal<IntIteration.Row> _predecessorCursor =
+        ThreadLocal.withInitial(IntIteration.Row::new);
+
+}
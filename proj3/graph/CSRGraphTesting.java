@@ -0,0 +1,104 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Unit tests for the CSRGraph classes.
+ *  @author Leslie Yang
+ */
+public class CSRGraphTesting {
+
+    @Test
+    public void edgeIdsDistinct() {
+        CSRDirectedGraph g = new CSRDirectedGraph();
+        g.add();
+        g.add();
+        int e12 = g.add(1, 2), e21 = g.add(2, 1), e11 = g.add(1, 1);
+        assertTrue(e12 > 0 && e21 > 0 && e11 > 0);
+        assertTrue(e12 != e21 && e12 != e11 && e21 != e11);
+        assertEquals(e12, g.add(1, 2));
+        assertEquals(e12, g.edgeId(1, 2));
+        g.remove(1, 2);
+        assertEquals(0, g.edgeId(1, 2));
+        assertEquals(e21, g.edgeId(2, 1));
+    }
+
+    @Test
+    public void undirectedEdgeIds() {
+        CSRUndirectedGraph g = new CSRUndirectedGraph();
+        g.add();
+        g.add();
+        int e = g.add(2, 1);
+        assertEquals(e, g.add(1, 2));
+        assertEquals(e, g.edgeId(1, 2));
+        assertEquals(1, g.edgeSize());
+    }
+
+    @Test
+    public void modifyAfterQuery() {
+        CSRDirectedGraph g = new CSRDirectedGraph();
+        g.add();
+        g.add();
+        g.add();
+        g.add(1, 2);
+        assertEquals(1, g.outDegree(1));
+        g.add(1, 3);
+        assertEquals(2, g.outDegree(1));
+        assertEquals(3, g.successor(1, 1));
+        g.remove(1, 2);
+        assertEquals(1, g.outDegree(1));
+        assertEquals(3, g.successor(1, 0));
+        assertEquals(0, g.inDegree(2));
+        int v = g.add();
+        assertEquals(4, v);
+        assertEquals(0, g.outDegree(v));
+        assertFalse(g.successors(v).hasNext());
+        g.add(v, 1);
+        assertEquals(v, g.predecessor(1, 0));
+    }
+
+    @Test
+    public void longChain() {
+        final int n = 100000;
+        CSRDirectedGraph g = new CSRDirectedGraph();
+        for (int i = 1; i <= n; i += 1) {
+            g.add();
+        }
+        for (int i = 1; i < n; i += 1) {
+            g.add(i, i + 1);
+        }
+        for (int i = 1; i < n; i += 1) {
+            assertTrue(g.contains(i, i + 1));
+            assertEquals(1, g.outDegree(i));
+            assertEquals(i + 1, g.successor(i, 0));
+        }
+        assertEquals(n - 1, g.edgeSize());
+    }
+
+    @Test
+    public void intIterations() {
+        CSRUndirectedGraph g = new CSRUndirectedGraph();
+        g.add();
+        g.add();
+        g.add();
+        g.add(2, 1);
+        g.add(2, 3);
+        IntIteration succs = g.intSuccessors(2);
+        assertTrue(succs.hasNext());
+        assertEquals(1, succs.nextInt());
+        assertEquals(3, succs.nextInt());
+        assertFalse(succs.hasNext());
+        assertTrue(succs == g.intSuccessors(1));
+        assertEquals(2, succs.nextInt());
+        IntIteration preds = g.intPredecessors(3);
+        assertEquals(2, preds.nextInt());
+        assertFalse(preds.hasNext());
+        int n;
+        n = 0;
+        for (IntIteration vs = g.intVertices(); vs.hasNext(); n += 1) {
+            assertEquals(n + 1, vs.nextInt());
+        }
+        assertEquals(3, n);
+    }
+
+}
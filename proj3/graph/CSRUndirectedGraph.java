@@ -0,0 +1,18 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** An undirected graph stored in compressed-sparse-row form.  It behaves
+ *  exactly as an UndirectedGraph.  Out edges and in edges are not
+ *  distinguished.  See CSRGraph for the costs of modifying it.
+ *
+ *  @author Leslie Yang
+ */
+public class CSRUndirectedGraph extends CSRGraph {
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+}
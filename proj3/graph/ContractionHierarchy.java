@@ -0,0 +1,463 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A contraction hierarchy over an edge-weighted graph, which answers
+ *  repeated shortest-path queries on an unchanging graph far faster than
+ *  ShortestPaths.  The client supplies the edge weights by overriding
+ *  getWeight(u, v), just as for ShortestPaths.
+ *
+ *  Preprocessing (contract()) removes the vertices one at a time, least
+ *  important first, adding a "shortcut" edge (u, x) of weight
+ *  w(u, v) + w(v, x) whenever removing v would otherwise lengthen the
+ *  shortest path from u to x.  A vertex's rank is its position in that
+ *  order.  A query then needs only a bidirectional Dijkstra search that
+ *  follows edges toward higher-ranked vertices from both ends.  Each
+ *  shortcut remembers the vertex it bypasses, so that the paths it
+ *  returns consist entirely of edges of the original graph.
+ *
+ *  Changes to the graph after contract() invalidate the hierarchy.
+ *  @author Leslie Yang
+ */
+public abstract class ContractionHierarchy {
+
+    /** A hierarchy over G, which must be contracted before use. */
+    public ContractionHierarchy(Graph G) {
+        _G = G;
+    }
+
+    /** Returns the weight of edge (U, V) of my graph. */
+    protected abstract double getWeight(int u, int v);
+
+    /** Build the hierarchy for my graph's current edges and weights. */
+    public void contract() {
+        int n = _G.maxVertex() + 1;
+        _from = new int[Math.max(16, _G.edgeSize())];
+        _to = new int[_from.length];
+        _mid = new int[_from.length];
+        _weight = new double[_from.length];
+        _records = 0;
+        _index = new EdgeTable();
+        _out = new int[n][];
+        _outCount = new int[n];
+        _in = new int[n][];
+        _inCount = new int[n];
+        _rank = new int[n];
+        _deleted = new int[n];
+        for (IntIteration vs = _G.intVertices(); vs.hasNext();) {
+            int u = vs.nextInt();
+            for (IntIteration succs = _G.intSuccessors(u); succs.hasNext();) {
+                int v = succs.nextInt();
+                if (u != v) {
+                    addRecord(u, v, getWeight(u, v), 0);
+                }
+            }
+        }
+
+        _witnessLabels = new PathLabels(n);
+        _witnessFringe = new IndexedHeap(n);
+        IndexedHeap order = new IndexedHeap(n);
+        for (IntIteration vs = _G.intVertices(); vs.hasNext();) {
+            int v = vs.nextInt();
+            order.put(v, priority(v));
+        }
+        int nextRank;
+        nextRank = 1;
+        while (!order.isEmpty()) {
+            int v = order.poll();
+            double p = priority(v);
+            if (!order.isEmpty() && p > order.key(order.peek())) {
+                order.put(v, p);
+                continue;
+            }
+            contractVertex(v, false);
+            _rank[v] = nextRank;
+            nextRank += 1;
+        }
+        _witnessLabels = null;
+        _witnessFringe = null;
+        buildSearchGraph(n);
+        _out = _in = null;
+        _outCount = _inCount = _deleted = null;
+        _forward = new PathLabels(n);
+        _backward = new PathLabels(n);
+        _forwardFringe = new IndexedHeap(n);
+        _backwardFringe = new IndexedHeap(n);
+    }
+
+    /** Returns the rank of vertex V (1 for the first vertex contracted),
+     *  or 0 if V was not a vertex when I was contracted. */
+    public int rank(int v) {
+        return v < _rank.length ? _rank[v] : 0;
+    }
+
+    /** Returns the number of shortcut edges I added to my graph. */
+    public int shortcutCount() {
+        int count;
+        count = 0;
+        for (int r = 0; r < _records; r += 1) {
+            if (_mid[r] != 0) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /** Returns the weight of a shortest path from SOURCE to DEST, or
+     *  Double.MAX_VALUE if there is none. */
+    public double distance(int source, int dest) {
+        search(source, dest);
+        return _best;
+    }
+
+    /** Returns a list of vertices starting at SOURCE and ending at DEST
+     *  that represents a shortest path from SOURCE to DEST in my graph,
+     *  or an empty list if there is no such path. */
+    public List<Integer> pathTo(int source, int dest) {
+        ArrayList<Integer> path = new ArrayList<>();
+        search(source, dest);
+        if (_meet == 0) {
+            return path;
+        }
+        int[] down = new int[8];
+        int n;
+        n = 0;
+        for (int v = _meet; v != source; v = _from[down[n - 1]]) {
+            if (n == down.length) {
+                down = Arrays.copyOf(down, 2 * n);
+            }
+            down[n] = _forward.predecessor(v) - 1;
+            n += 1;
+        }
+        path.add(source);
+        int[] stack = new int[8];
+        while (n > 0) {
+            n -= 1;
+            stack = unpack(down[n], path, stack);
+        }
+        for (int v = _meet; v != dest; v = _to[_backward.predecessor(v) - 1]) {
+            stack = unpack(_backward.predecessor(v) - 1, path, stack);
+        }
+        return path;
+    }
+
+    /** Perform a bidirectional search of the upward graphs from SOURCE and
+     *  DEST, leaving the path weight in _best and the vertex of highest
+     *  rank on the path in _meet (0 if there is no path).  The labels in
+     *  _forward and _backward record the edge records by which each vertex
+     *  was reached (plus 1). */
+    private void search(int source, int dest) {
+        if (_rank == null) {
+            throw new IllegalStateException("hierarchy not contracted");
+        }
+        int n = _rank.length;
+        _forward.reset(n);
+        _backward.reset(n);
+        _forwardFringe.clear();
+        _backwardFringe.clear();
+        _best = Double.MAX_VALUE;
+        _meet = 0;
+        if (rank(source) == 0 || rank(dest) == 0) {
+            return;
+        }
+        _forward.set(source, 0, 0);
+        _forwardFringe.put(source, 0);
+        _backward.set(dest, 0, 0);
+        _backwardFringe.put(dest, 0);
+        while (true) {
+            boolean forward = !_forwardFringe.isEmpty()
+                && _forwardFringe.key(_forwardFringe.peek()) < _best;
+            boolean backward = !_backwardFringe.isEmpty()
+                && _backwardFringe.key(_backwardFringe.peek()) < _best;
+            if (forward && (!backward
+                            || _forwardFringe.size()
+                               <= _backwardFringe.size())) {
+                step(_forwardFringe, _forward, _backward,
+                     _upStart, _upRecords, _to);
+            } else if (backward) {
+                step(_backwardFringe, _backward, _forward,
+                     _downStart, _downRecords, _from);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /** Settle the next vertex from FRINGE, whose labels are MINE, relaxing
+     *  the edge records in its row of (START, RECORDS), which lead to the
+     *  vertices given by ENDS.  Update _best and _meet from the labels in
+     *  OTHER, which belong to the search from the opposite end. */
+    private void step(IndexedHeap fringe, PathLabels mine, PathLabels other,
+                      int[] start, int[] records, int[] ends) {
+        int v = fringe.poll();
+        double dist = mine.weight(v);
+        if (other.reached(v) && dist + other.weight(v) < _best) {
+            _best = dist + other.weight(v);
+            _meet = v;
+        }
+        for (int i = start[v]; i < start[v + 1]; i += 1) {
+            int r = records[i];
+            int x = ends[r];
+            double d = dist + _weight[r];
+            if (d < mine.weight(x)) {
+                mine.set(x, d, r + 1);
+                fringe.put(x, d);
+                if (other.reached(x) && d + other.weight(x) < _best) {
+                    _best = d + other.weight(x);
+                    _meet = x;
+                }
+            }
+        }
+    }
+
+    /** Append to PATH the vertices after _from[R] along the original edges
+     *  represented by record R, using STACK (or an expanded replacement,
+     *  which is returned) as working storage. */
+    private int[] unpack(int r, List<Integer> path, int[] stack) {
+        int sp;
+        sp = 0;
+        stack[sp++] = r;
+        while (sp > 0) {
+            r = stack[--sp];
+            int m = _mid[r];
+            if (m == 0) {
+                path.add(_to[r]);
+            } else {
+                if (sp + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                stack[sp++] = _index.get(m, _to[r]);
+                stack[sp++] = _index.get(_from[r], m);
+            }
+        }
+        return stack;
+    }
+
+    /** Returns the contraction priority of V: the number of shortcuts
+     *  contracting it would add, less the number of edges it would
+     *  remove, plus the number of its neighbors already contracted. */
+    private int priority(int v) {
+        int shortcuts = contractVertex(v, true);
+        int removed;
+        removed = 0;
+        for (int i = 0; i < _inCount[v]; i += 1) {
+            if (_rank[_from[_in[v][i]]] == 0) {
+                removed += 1;
+            }
+        }
+        for (int i = 0; i < _outCount[v]; i += 1) {
+            if (_rank[_to[_out[v][i]]] == 0) {
+                removed += 1;
+            }
+        }
+        return shortcuts - removed + _deleted[v];
+    }
+
+    /** Determine the shortcuts needed to contract V, which must not yet
+     *  be contracted, and return their number.  Unless SIMULATE, also add
+     *  them and record V's contraction in its neighbors. */
+    private int contractVertex(int v, boolean simulate) {
+        int shortcuts;
+        shortcuts = 0;
+        double maxOut;
+        maxOut = 0.0;
+        for (int j = 0; j < _outCount[v]; j += 1) {
+            int r = _out[v][j];
+            if (_rank[_to[r]] == 0) {
+                maxOut = Math.max(maxOut, _weight[r]);
+            }
+        }
+        for (int i = 0; i < _inCount[v]; i += 1) {
+            int r1 = _in[v][i];
+            int u = _from[r1];
+            if (_rank[u] != 0) {
+                continue;
+            }
+            witnessSearch(u, v, _weight[r1] + maxOut);
+            for (int j = 0; j < _outCount[v]; j += 1) {
+                int r2 = _out[v][j];
+                int x = _to[r2];
+                if (_rank[x] != 0 || x == u) {
+                    continue;
+                }
+                double w = _weight[r1] + _weight[r2];
+                if (_witnessLabels.weight(x) > w) {
+                    shortcuts += 1;
+                    if (!simulate) {
+                        addRecord(u, x, w, v);
+                    }
+                }
+            }
+        }
+        if (!simulate) {
+            for (int i = 0; i < _inCount[v]; i += 1) {
+                _deleted[_from[_in[v][i]]] += 1;
+            }
+            for (int j = 0; j < _outCount[v]; j += 1) {
+                _deleted[_to[_out[v][j]]] += 1;
+            }
+        }
+        return shortcuts;
+    }
+
+    /** Label, in _witnessLabels, the vertices within distance LIMIT of U
+     *  that can be reached without passing through V or through any
+     *  contracted vertex.  Gives up after settling WITNESS_LIMIT vertices,
+     *  which can only cause unnecessary shortcuts. */
+    private void witnessSearch(int u, int v, double limit) {
+        PathLabels labels = _witnessLabels;
+        IndexedHeap fringe = _witnessFringe;
+        labels.reset(_rank.length);
+        fringe.clear();
+        labels.set(u, 0, 0);
+        fringe.put(u, 0);
+        for (int settled = 0; !fringe.isEmpty() && settled < WITNESS_LIMIT;
+             settled += 1) {
+            int y = fringe.poll();
+            double dist = labels.weight(y);
+            if (dist > limit) {
+                break;
+            }
+            for (int j = 0; j < _outCount[y]; j += 1) {
+                int r = _out[y][j];
+                int z = _to[r];
+                if (z == v || _rank[z] != 0) {
+                    continue;
+                }
+                double d = dist + _weight[r];
+                if (d < labels.weight(z)) {
+                    labels.set(z, d, y);
+                    fringe.put(z, d);
+                }
+            }
+        }
+    }
+
+    /** Record an edge or shortcut (U, X) of weight W bypassing MID (0 for
+     *  an original edge), unless there is already one at least as short. */
+    private void addRecord(int u, int x, double w, int mid) {
+        int r = _index.get(u, x);
+        if (r != EdgeTable.NONE) {
+            if (w < _weight[r]) {
+                _weight[r] = w;
+                _mid[r] = mid;
+            }
+            return;
+        }
+        if (_records == _from.length) {
+            int n = 2 * _records;
+            _from = Arrays.copyOf(_from, n);
+            _to = Arrays.copyOf(_to, n);
+            _mid = Arrays.copyOf(_mid, n);
+            _weight = Arrays.copyOf(_weight, n);
+        }
+        r = _records;
+        _records += 1;
+        _from[r] = u;
+        _to[r] = x;
+        _mid[r] = mid;
+        _weight[r] = w;
+        _index.put(u, x, r);
+        _out[u] = append(_out[u], _outCount[u], r);
+        _outCount[u] += 1;
+        _in[x] = append(_in[x], _inCount[x], r);
+        _inCount[x] += 1;
+    }
+
+    /** Fill in the compressed rows of upward records (_upStart,
+     *  _upRecords), which lead from each vertex to higher-ranked ones, and
+     *  of downward records (_downStart, _downRecords), which lead into
+     *  each vertex from higher-ranked ones, for N vertex numbers. */
+    private void buildSearchGraph(int n) {
+        _upStart = new int[n + 1];
+        _downStart = new int[n + 1];
+        for (int r = 0; r < _records; r += 1) {
+            if (_rank[_to[r]] > _rank[_from[r]]) {
+                _upStart[_from[r] + 1] += 1;
+            } else {
+                _downStart[_to[r] + 1] += 1;
+            }
+        }
+        for (int v = 1; v <= n; v += 1) {
+            _upStart[v] += _upStart[v - 1];
+            _downStart[v] += _downStart[v - 1];
+        }
+        _upRecords = new int[_upStart[n]];
+        _downRecords = new int[_downStart[n]];
+        int[] up = Arrays.copyOf(_upStart, n),
+            down = Arrays.copyOf(_downStart, n);
+        for (int r = 0; r < _records; r += 1) {
+            if (_rank[_to[r]] > _rank[_from[r]]) {
+                _upRecords[up[_from[r]]++] = r;
+            } else {
+                _downRecords[down[_to[r]]++] = r;
+            }
+        }
+    }
+
+    /** Returns an array whose first N + 1 elements are the first N of
+     *  ITEMS followed by X.  ITEMS may be null if N is 0. */
+    private static int[] append(int[] items, int n, int x) {
+        if (items == null) {
+            items = new int[4];
+        } else if (n == items.length) {
+            items = Arrays.copyOf(items, 2 * n);
+        }
+        items[n] = x;
+        return items;
+    }
+
+    /** Maximum number of vertices settled by one witness search. */
+    private static final int WITNESS_LIMIT = 500;
+
+    /** The graph being searched. */
+    protected final Graph _G;
+
+    /** Edge records: record r is an edge or shortcut from _from[r] to
+     *  _to[r] of weight _weight[r], bypassing _mid[r] (0 if it is an
+     *  original edge). */
+    private int[] _from, _to, _mid;
+    /** Weights of the edge records. */
+    private double[] _weight;
+    /** Number of edge records. */
+    private int _records;
+    /** Maps (u, x) to the record from u to x. */
+    private EdgeTable _index;
+    /** Rank of each vertex, 0 if not (yet) contracted. */
+    private int[] _rank;
+
+    /** During contraction, the records leaving and entering each
+     *  vertex. */
+    private int[][] _out, _in;
+    /** During contraction, the sizes of _out and _in. */
+    private int[] _outCount, _inCount;
+    /** During contraction, the number of contracted neighbors of each
+     *  vertex. */
+    private int[] _deleted;
+    /** During contraction, the labels and fringe of witness searches. */
+    private PathLabels _witnessLabels;
+    /** During contraction, the fringe of witness searches. */
+    private IndexedHeap _witnessFringe;
+
+    /** Upward records of each vertex v:
+     *  _upRecords[_upStart[v] .. _upStart[v + 1] - 1]. */
+    private int[] _upStart, _upRecords;
+    /** Records entering each vertex v from higher-ranked vertices:
+     *  _downRecords[_downStart[v] .. _downStart[v + 1] - 1]. */
+    private int[] _downStart, _downRecords;
+
+    /** Labels of the forward and backward query searches. */
+    private PathLabels _forward, _backward;
+    /** Fringes of the forward and backward query searches. */
+    private IndexedHeap _forwardFringe, _backwardFringe;
+    /** Weight of the best path found by the last query. */
+    private double _best;
+    /** Vertex at which the forward and backward halves of the last
+     *  query's best path meet, or 0 if there is none. */
+    private int _meet;
+
+}
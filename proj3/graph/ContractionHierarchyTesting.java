@@ -0,0 +1,127 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+
+/** Unit tests for the ContractionHierarchy class.
+ *  @author Leslie Yang
+ */
+public class ContractionHierarchyTesting {
+
+    /** A hierarchy over a graph whose edge weights are kept in W. */
+    private static class CH extends ContractionHierarchy {
+        /** A hierarchy over G, with edge weights W. */
+        CH(Graph G, double[][] w) {
+            super(G);
+            _w = w;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _w[u][v];
+        }
+
+        /** Edge weights. */
+        private final double[][] _w;
+    }
+
+    /** Shortest paths over a graph whose edge weights are kept in W. */
+    private static class DSP extends DenseShortestPaths {
+        /** Paths in G, with edge weights W. */
+        DSP(Graph G, double[][] w) {
+            super(G, 0);
+            _w = w;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _w[u][v];
+        }
+
+        /** Edge weights. */
+        private final double[][] _w;
+    }
+
+    @Test
+    public void line() {
+        UndirectedGraph g = new UndirectedGraph();
+        double[][] w = new double[6][6];
+        for (int i = 0; i < 5; i += 1) {
+            g.add();
+        }
+        for (int v = 1; v < 5; v += 1) {
+            g.add(v, v + 1);
+            w[v][v + 1] = w[v + 1][v] = v;
+        }
+        CH ch = new CH(g, w);
+        ch.contract();
+        for (int v = 1; v <= 5; v += 1) {
+            assertTrue(ch.rank(v) >= 1 && ch.rank(v) <= 5);
+        }
+        assertEquals(asList(1, 2, 3, 4, 5), ch.pathTo(1, 5));
+        assertEquals(asList(4, 3, 2), ch.pathTo(4, 2));
+        assertEquals(10.0, ch.distance(5, 1), 0.0);
+        assertEquals(asList(3), ch.pathTo(3, 3));
+    }
+
+    @Test
+    public void unreachable() {
+        DirectedGraph g = new DirectedGraph();
+        double[][] w = new double[4][4];
+        for (int i = 0; i < 3; i += 1) {
+            g.add();
+        }
+        g.add(1, 2);
+        w[1][2] = 1;
+        CH ch = new CH(g, w);
+        ch.contract();
+        assertTrue(ch.pathTo(2, 1).isEmpty());
+        assertTrue(ch.pathTo(1, 3).isEmpty());
+        assertEquals(Double.MAX_VALUE, ch.distance(3, 1), 0.0);
+        assertEquals(0, ch.rank(7));
+    }
+
+    @Test
+    public void matchesDijkstra() {
+        final int n = 300;
+        Random r = new Random(61);
+        DirectedGraph g = new DirectedGraph();
+        double[][] w = new double[n + 1][n + 1];
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+        }
+        for (int i = 0; i < 4 * n; i += 1) {
+            int u = r.nextInt(n) + 1, v = r.nextInt(n) + 1;
+            g.add(u, v);
+            w[u][v] = r.nextInt(100);
+        }
+        CH ch = new CH(g, w);
+        ch.contract();
+        DSP sp = new DSP(g, w);
+        for (int i = 0; i < 200; i += 1) {
+            int s = r.nextInt(n) + 1, t = r.nextInt(n) + 1;
+            sp.setPaths(s, t);
+            List<Integer> path = ch.pathTo(s, t);
+            if (sp.getWeight(t) == Double.MAX_VALUE) {
+                assertTrue(path.isEmpty());
+                continue;
+            }
+            assertEquals(sp.getWeight(t), ch.distance(s, t), 1e-9);
+            double len;
+            len = 0.0;
+            for (int k = 1; k < path.size(); k += 1) {
+                assertTrue(g.contains(path.get(k - 1), path.get(k)));
+                len += w[path.get(k - 1)][path.get(k)];
+            }
+            assertEquals(s, (int) path.get(0));
+            assertEquals(t, (int) path.get(path.size() - 1));
+            assertEquals(sp.getWeight(t), len, 1e-9);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** A partial implementation of ShortestPaths that, like
+ *  SimpleShortestPaths, contains the weights of the vertices and the
+ *  predecessor edges, but keeps them in arrays indexed by vertex number
+ *  rather than in hash maps (see PathLabels).  Starting a new search
+ *  (through setPaths(source, dest)) invalidates all entries in O(1)
+ *  time, so a sequence of searches on the same graph allocates almost
+ *  nothing.  The client needs to supply only the two-argument getWeight
+ *  method.
+ *  @author Leslie Yang
+ */
+public abstract class DenseShortestPaths extends ShortestPaths {
+
+    /** The shortest paths in G from SOURCE. */
+    public DenseShortestPaths(Graph G, int source) {
+        this(G, source, 0);
+    }
+
+    /** A shortest path in G from SOURCE to DEST. */
+    public DenseShortestPaths(Graph G, int source, int dest) {
+        super(G, source, dest);
+        _labels = new PathLabels(0);
+    }
+
+    /** Returns the current weight of edge (U, V) in the graph.  If (U, V) is
+     *  not in the graph, returns positive infinity. */
+    @Override
+    protected abstract double getWeight(int u, int v);
+
+    @Override
+    public double getWeight(int v) {
+        return _labels.weight(v);
+    }
+
+    @Override
+    protected void setWeight(int v, double w) {
+        _labels.setWeight(v, w);
+    }
+
+    @Override
+    public int getPredecessor(int v) {
+        return _labels.predecessor(v);
+    }
+
+    @Override
+    protected void setPredecessor(int v, int u) {
+        _labels.setPredecessor(v, u);
+    }
+
+    /** Starts a new search by advancing the search number, which makes
+     *  every vertex's weight Double.MAX_VALUE and predecessor 0. */
+    @Override
+    protected void initializePaths() {
+        _labels.reset(_G.maxVertex() + 1);
+    }
+
+    /** Vertex weights and predecessors. */
+    private final PathLabels _labels;
+
+}
@@ -0,0 +1,247 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+
+/** Unit tests for the DenseShortestPaths class.
+ *  @author Leslie Yang
+ */
+public class DenseShortestPathsTesting {
+
+    /** Edges (u, v, weight) of a small test graph. */
+    private static final int[][] EDGES = {
+        { 1, 2, 2 }, { 1, 3, 5 }, { 2, 3, 1 }, { 3, 4, 1 },
+        { 2, 4, 6 }, { 4, 5, 3 }, { 5, 1, 1 },
+    };
+
+    /** Shortest paths over a graph whose edge weights are kept in W. */
+    private static class DSP extends DenseShortestPaths {
+        /** Paths in G from SOURCE, with edge weights W. */
+        DSP(Graph G, int source, double[][] w) {
+            super(G, source);
+            _w = w;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _w[u][v];
+        }
+
+        /** Edge weights. */
+        private final double[][] _w;
+    }
+
+    /** Returns a directed graph with 5 vertices and edges EDGES, whose
+     *  weights are stored in W. */
+    private static Graph makeGraph(double[][] w) {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 5; i += 1) {
+            g.add();
+        }
+        for (int[] e : EDGES) {
+            g.add(e[0], e[1]);
+            w[e[0]][e[1]] = e[2];
+        }
+        return g;
+    }
+
+    @Test
+    public void singleSource() {
+        double[][] w = new double[6][6];
+        DSP sp = new DSP(makeGraph(w), 1, w);
+        sp.setPaths();
+        assertEquals(0.0, sp.getWeight(1), 0.0);
+        assertEquals(3.0, sp.getWeight(3), 0.0);
+        assertEquals(7.0, sp.getWeight(5), 0.0);
+        assertEquals(3, sp.getPredecessor(4));
+        assertEquals(asList(1, 2, 3, 4, 5), sp.pathTo(5));
+    }
+
+    @Test
+    public void reuse() {
+        double[][] w = new double[6][6];
+        Graph g = makeGraph(w);
+        DSP sp = new DSP(g, 1, w);
+        sp.setPaths();
+        sp.setPaths(4, 2);
+        assertEquals(4, sp.getSource());
+        assertEquals(asList(4, 5, 1, 2), sp.pathTo());
+        assertEquals(6.0, sp.getWeight(2), 0.0);
+        assertEquals(0, sp.getPredecessor(4));
+        g.remove(5);
+        sp.setPaths(1, 0);
+        assertEquals(Double.MAX_VALUE, sp.getWeight(5), 0.0);
+        assertEquals(0, sp.getPredecessor(5));
+        assertEquals(4.0, sp.getWeight(4), 0.0);
+    }
+
+    @Test
+    public void manyTargets() {
+        double[][] w = new double[6][6];
+        Graph g = makeGraph(w);
+        DSP sp = new DSP(g, 1, w);
+        sp.setPaths(2, new int[] { 4, 3, 4 });
+        assertEquals(2, sp.getSource());
+        assertEquals(0, sp.getDest());
+        assertEquals(asList(2, 3, 4), sp.pathTo(4));
+        assertEquals(1.0, sp.getWeight(3), 0.0);
+        assertEquals(Double.MAX_VALUE, sp.getWeight(1), 0.0);
+        sp.setPaths(1, new int[] { 5, 1 });
+        assertEquals(asList(1, 2, 3, 4, 5), sp.pathTo(5));
+        assertEquals(0.0, sp.getWeight(1), 0.0);
+        g.remove(4, 5);
+        sp.setPaths(1, new int[] { 5, 3 });
+        assertEquals(Double.MAX_VALUE, sp.getWeight(5), 0.0);
+        assertEquals(3.0, sp.getWeight(3), 0.0);
+    }
+
+    @Test
+    public void withinLimit() {
+        double[][] w = new double[6][6];
+        DSP sp = new DSP(makeGraph(w), 1, w);
+        assertArrayEquals(new int[] { 1, 2, 3, 4 },
+                          sp.setPathsWithin(1, 4.0));
+        assertEquals(4.0, sp.getWeight(4), 0.0);
+        assertArrayEquals(new int[] { 1, 2, 3 }, sp.setPathsWithin(1, 3.5));
+        assertTrue(sp.getWeight(4) > 3.5);
+        assertEquals(Double.MAX_VALUE, sp.getWeight(5), 0.0);
+        assertArrayEquals(new int[] { 5, 1 }, sp.setPathsWithin(5, 1.0));
+    }
+
+    @Test
+    public void bidirectionalMatchesDijkstra() {
+        final int n = 200;
+        Random r = new Random(61);
+        DirectedGraph g = new DirectedGraph();
+        double[][] w = new double[n + 1][n + 1];
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+        }
+        for (int i = 0; i < 4 * n; i += 1) {
+            int u = r.nextInt(n) + 1, v = r.nextInt(n) + 1;
+            g.add(u, v);
+            w[u][v] = r.nextInt(100);
+        }
+        DSP one = new DSP(g, 1, w), two = new DSP(g, 1, w);
+        two.setBidirectional(true);
+        for (int i = 0; i < 100; i += 1) {
+            int s = r.nextInt(n) + 1, t = r.nextInt(n) + 1;
+            one.setPaths(s, t);
+            two.setPaths(s, t);
+            assertEquals(one.getWeight(t), two.getWeight(t), 1e-9);
+            if (one.getWeight(t) < Double.MAX_VALUE) {
+                List<Integer> path = two.pathTo(t);
+                double len;
+                len = 0.0;
+                for (int k = 1; k < path.size(); k += 1) {
+                    assertTrue(g.contains(path.get(k - 1), path.get(k)));
+                    len += w[path.get(k - 1)][path.get(k)];
+                }
+                assertEquals(s, (int) path.get(0));
+                assertEquals(one.getWeight(t), len, 1e-9);
+            }
+        }
+    }
+
+    /** Shortest paths kept in hash maps, with edge weights kept in W. */
+    private static class SSP extends SimpleShortestPaths {
+        /** Paths in G from SOURCE, with edge weights W. */
+        SSP(Graph G, int source, double[][] w) {
+            super(G, source);
+            _w = w;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _w[u][v];
+        }
+
+        /** Edge weights. */
+        private final double[][] _w;
+    }
+
+    @Test
+    public void updateAfterPartialSearch() {
+        DirectedGraph g = new DirectedGraph();
+        double[][] w = new double[7][7];
+        for (int i = 0; i < 6; i += 1) {
+            g.add();
+        }
+        int[][] edges = { { 1, 2 }, { 2, 3 }, { 1, 4 }, { 4, 5 }, { 5, 6 } };
+        for (int[] e : edges) {
+            g.add(e[0], e[1]);
+            w[e[0]][e[1]] = 1;
+        }
+        w[1][4] = 5;
+        SSP sp = new SSP(g, 1, w);
+        sp.setPaths(1, new int[] { 2 });
+        g.remove(2, 3);
+        sp.updatePaths(2, 3);
+        assertEquals(7, sp.getWeight(6), 0.0);
+        assertEquals(Double.MAX_VALUE, sp.getWeight(3), 0.0);
+        g.add(2, 3);
+        sp.setPathsWithin(1, 1.5);
+        g.remove(2, 3);
+        sp.updatePaths(2, 3);
+        assertEquals(6, sp.getWeight(5), 0.0);
+        sp.setPaths(1, 6);
+        g.add(2, 3);
+        sp.updatePaths(2, 3);
+        assertEquals(2, sp.getWeight(3), 0.0);
+        assertEquals(7, sp.getWeight(6), 0.0);
+    }
+
+    @Test
+    public void updatePathsMatchesDijkstra() {
+        final int n = 150;
+        Random r = new Random(19);
+        DirectedGraph g = new DirectedGraph();
+        double[][] w = new double[n + 1][n + 1];
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+        }
+        for (int i = 0; i < 4 * n; i += 1) {
+            int u = r.nextInt(n) + 1, v = r.nextInt(n) + 1;
+            g.add(u, v);
+            w[u][v] = r.nextInt(100);
+        }
+        SSP repaired = new SSP(g, 1, w), fresh = new SSP(g, 1, w);
+        repaired.setPaths();
+        for (int i = 0; i < 200; i += 1) {
+            int u = r.nextInt(n) + 1, v = r.nextInt(n) + 1;
+            switch (r.nextInt(3)) {
+            case 0:
+                g.remove(u, v);
+                break;
+            case 1:
+                g.add(u, v);
+                w[u][v] = r.nextInt(100);
+                break;
+            default:
+                if (repaired.getPredecessor(v) != 0) {
+                    u = repaired.getPredecessor(v);
+                    w[u][v] += r.nextInt(50);
+                }
+                break;
+            }
+            repaired.updatePaths(u, v);
+            fresh.setPaths();
+            for (int x = 1; x <= n; x += 1) {
+                assertEquals(fresh.getWeight(x), repaired.getWeight(x),
+                             1e-9);
+                int p = repaired.getPredecessor(x);
+                if (p != 0) {
+                    assertTrue(g.contains(p, x));
+                    assertEquals(repaired.getWeight(x),
+                                 repaired.getWeight(p) + w[p][x], 1e-9);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+
+/** A store for the labels of the edges of a LabeledGraph, keyed by the
+ *  edges' end points (U, V), with U, V > 0, rather than by edge id.  A
+ *  LabeledGraph of an undirected graph always presents an edge with its
+ *  smaller end first.  The default store (see onHeap) keeps the labels
+ *  in an ordinary list, each edge's slot in it found through an
+ *  EdgeTable, so that the space used is proportional to the number of
+ *  labeled edges, whatever the vertex numbers.  See MappedEdgeLabels for
+ *  a store outside the Java heap.
+ *  @author Leslie Yang
+ */
+public abstract class EdgeLabels<EL> {
+
+    /** Returns a new, empty store that keeps its labels on the Java
+     *  heap. */
+    public static <EL> EdgeLabels<EL> onHeap() {
+        return new Heap<>();
+    }
+
+    /** Returns the label of edge (U, V), or null if it has none. */
+    public abstract EL get(int u, int v);
+
+    /** Set the label of edge (U, V) to LAB, which is not null. */
+    public abstract void put(int u, int v, EL lab);
+
+    /** Remove any label of edge (U, V). */
+    public abstract void remove(int u, int v);
+
+    /** Returns the number of labeled edges. */
+    public abstract int size();
+
+    /** The default store. */
+    private static class Heap<EL> extends EdgeLabels<EL> {
+
+        @Override
+        public EL get(int u, int v) {
+            int slot = _slots.get(u, v);
+            return slot == EdgeTable.NONE ? null : _labels.get(slot);
+        }
+
+        @Override
+        public void put(int u, int v, EL lab) {
+            int slot = _slots.get(u, v);
+            if (slot != EdgeTable.NONE) {
+                _labels.set(slot, lab);
+            } else if (!_free.isEmpty()) {
+                slot = _free.remove(_free.size() - 1);
+                _labels.set(slot, lab);
+                _slots.put(u, v, slot);
+            } else {
+                _slots.put(u, v, _labels.size());
+                _labels.add(lab);
+            }
+        }
+
+        @Override
+        public void remove(int u, int v) {
+            int slot = _slots.remove(u, v);
+            if (slot != EdgeTable.NONE) {
+                _labels.set(slot, null);
+                _free.add(slot);
+            }
+        }
+
+        @Override
+        public int size() {
+            return _slots.size();
+        }
+
+        /** Slot in _labels of each labeled edge. */
+        private final EdgeTable _slots = new EdgeTable();
+        /** Labels, indexed by slot (null in free slots). */
+        private final ArrayList<EL> _labels = new ArrayList<>();
+        /** Free slots in _labels. */
+        private final ArrayList<Integer> _free = new ArrayList<>();
+    }
+
+}
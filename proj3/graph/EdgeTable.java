@@ -0,0 +1,134 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** A hash table mapping edges (U, V), with U, V > 0, to non-negative
+ *  integers.  Uses open addressing with linear probing over primitive
+ *  arrays, so that lookups and updates neither box nor allocate.
+ *  @author Leslie Yang
+ */
+class EdgeTable {
+
+    /** Value returned by get and remove for absent edges. */
+    static final int NONE = -1;
+
+    /** An empty table. */
+    EdgeTable() {
+        clear();
+    }
+
+    /** Returns the key that represents the edge (U, V). */
+    static long key(int u, int v) {
+        return ((long) u << 32) | (v & 0xffffffffL);
+    }
+
+    /** Returns the number of edges in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Remove all edges from me. */
+    void clear() {
+        _keys = new long[INITIAL_CAPACITY];
+        _values = new int[INITIAL_CAPACITY];
+        _size = 0;
+    }
+
+    /** Returns the value stored for (U, V), or NONE if there is none. */
+    int get(int u, int v) {
+        long k = key(u, v);
+        int mask = _keys.length - 1;
+        for (int i = slot(k, mask); _keys[i] != 0; i = (i + 1) & mask) {
+            if (_keys[i] == k) {
+                return _values[i];
+            }
+        }
+        return NONE;
+    }
+
+    /** Returns true iff I contain (U, V). */
+    boolean contains(int u, int v) {
+        return get(u, v) != NONE;
+    }
+
+    /** Set the value stored for (U, V) to VAL, which must be
+     *  non-negative. */
+    void put(int u, int v, int val) {
+        if (2 * (_size + 1) > _keys.length) {
+            resize(2 * _keys.length);
+        }
+        long k = key(u, v);
+        int mask = _keys.length - 1;
+        int i;
+        for (i = slot(k, mask); _keys[i] != 0; i = (i + 1) & mask) {
+            if (_keys[i] == k) {
+                _values[i] = val;
+                return;
+            }
+        }
+        _keys[i] = k;
+        _values[i] = val;
+        _size += 1;
+    }
+
+    /** Remove (U, V) from me, returning its former value, or NONE if
+     *  it was absent. */
+    int remove(int u, int v) {
+        long k = key(u, v);
+        int mask = _keys.length - 1;
+        int i;
+        for (i = slot(k, mask); _keys[i] != k; i = (i + 1) & mask) {
+            if (_keys[i] == 0) {
+                return NONE;
+            }
+        }
+        int result = _values[i];
+        _size -= 1;
+        for (int j = (i + 1) & mask; _keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(_keys[j], mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                _keys[i] = _keys[j];
+                _values[i] = _values[j];
+                i = j;
+            }
+        }
+        _keys[i] = 0;
+        return result;
+    }
+
+    /** Rehash my contents into tables of size CAPACITY. */
+    private void resize(int capacity) {
+        long[] oldKeys = _keys;
+        int[] oldValues = _values;
+        _keys = new long[capacity];
+        _values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j += 1) {
+            if (oldKeys[j] != 0) {
+                int i;
+                for (i = slot(oldKeys[j], mask); _keys[i] != 0;
+                     i = (i + 1) & mask) {
+                    continue;
+                }
+                _keys[i] = oldKeys[j];
+                _values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /** Returns the home slot of key K in a table with index mask MASK. */
+    static int slot(long k, int mask) {
+        k *= 0x9E3779B97F4A7C15L;
+        return (int) (k ^ (k >>> 32)) & mask;
+    }
+
+    /** Initial table size (a power of 2). */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Edge keys, 0 denoting an empty slot. */
+    private long[] _keys;
+    /** Values corresponding to _keys. */
+    private int[] _values;
+    /** Number of occupied slots. */
+    private int _size;
+}
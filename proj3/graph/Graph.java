@@ -12,6 +12,16 @@ package graph;
  *   + You may change parameter names, or add 'final' modifiers to parameters.
  *   + You may add private and package private members.
  *   + You may add additional non-public classes to the graph package.
+ *
+ * The only exceptions are the extensions of the API on which the trip
+ * package relies, which are public so that it can use them: the int
+ * cursors intVertices, intSuccessors, and intPredecessors of Graph and
+ * the class IntIteration; the compact graphs CSRDirectedGraph and
+ * CSRUndirectedGraph; the searches DenseShortestPaths,
+ * ContractionHierarchy, and KShortestPaths, and the methods added
+ * to ShortestPaths for them; and the label stores EdgeLabels and
+ * MappedEdgeLabels, with the LabeledGraph constructor that takes one.
+ * Other changes must still follow the rules above.
  */
 
 /** Represents a general unlabeled graph whose vertices are denoted by
@@ -108,6 +118,26 @@ public abstract class Graph {
         return successors(v);
     }
 
+    /** Returns an IntIteration over all vertices in numerical order.  The
+     *  result may be the same object on each call from a given thread, so
+     *  that a thread must be done with one such iteration before asking for
+     *  the next. */
+    public IntIteration intVertices() {
+        return IntIteration.intIteration(vertices());
+    }
+
+    /** Returns an IntIteration over successors(V).  As for intVertices,
+     *  the result may be reused by the next call from the same thread. */
+    public IntIteration intSuccessors(int v) {
+        return IntIteration.intIteration(successors(v));
+    }
+
+    /** Returns an IntIteration over predecessors(V).  As for intVertices,
+     *  the result may be reused by the next call from the same thread. */
+    public IntIteration intPredecessors(int v) {
+        return IntIteration.intIteration(predecessors(v));
+    }
+
     /** Returns an iteration over all edges in me.  Edges are returned
      *  as two-element arrays (u, v), which are directed if the graph
      *  is.  The values in the array returned by .next() may have changed
@@ -96,6 +96,21 @@ public class GraphFilter extends Graph {
         return _G.predecessors(v);
     }
 
+    @Override
+    public IntIteration intVertices() {
+        return _G.intVertices();
+    }
+
+    @Override
+    public IntIteration intSuccessors(int v) {
+        return _G.intSuccessors(v);
+    }
+
+    @Override
+    public IntIteration intPredecessors(int v) {
+        return _G.intPredecessors(v);
+    }
+
     @Override
     public Iteration<int[]> edges() {
         return _G.edges();
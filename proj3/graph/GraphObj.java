@@ -1,50 +1,69 @@
 package graph;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /* See restrictions in Graph.java. */
 
 /** A partial implementation of Graph containing elements common to
  *  directed and undirected graphs.
  *
+ *  Each vertex v keeps its successors in the array _out[v], in the
+ *  order their edges were added (for an undirected graph, each edge
+ *  appears in the lists of both of its ends).  A directed graph also
+ *  keeps the predecessors of v in _in[v].  An EdgeTable records every
+ *  edge, so that edge membership costs O(1), adding an edge amortized
+ *  O(1), and removing one O(deg).
+ *
  *  @author Leslie Yang
  */
 abstract class GraphObj extends Graph {
 
     /** A new, empty Graph. */
     GraphObj() {
-        allVertices = new ArrayList<Integer>();
-        allEdges = new ArrayList<ArrayList<Integer>>();
+        _vertices = new BitSet();
+        _edges = new EdgeTable();
+        _out = new int[INITIAL_VERTICES][];
+        _outSize = new int[INITIAL_VERTICES];
+        _in = new int[INITIAL_VERTICES][];
+        _inSize = new int[INITIAL_VERTICES];
     }
 
     @Override
     public int vertexSize() {
-        return allVertices.size();
+        return _vertexCount;
     }
 
     /** Return an arraylist that contains all vertices. */
     ArrayList<Integer> getallVertices() {
+        ArrayList<Integer> allVertices = new ArrayList<Integer>();
+        for (int v : vertices()) {
+            allVertices.add(v);
+        }
         return allVertices;
     }
 
     @Override
     public int maxVertex() {
-        if (allVertices.isEmpty()) {
-            return 0;
-        }
-        return Collections.max(allVertices);
+        return Math.max(0, _vertices.length() - 1);
     }
 
     @Override
     public int edgeSize() {
-        return allEdges.size();
+        return _edges.size();
     }
 
     /** Return an arraylist that contains all edges. */
     ArrayList<ArrayList<Integer>> getallEdges() {
+        ArrayList<ArrayList<Integer>> allEdges =
+            new ArrayList<ArrayList<Integer>>();
+        for (int[] e : edges()) {
+            ArrayList<Integer> edge = new ArrayList<Integer>();
+            edge.add(e[0]);
+            edge.add(e[1]);
+            allEdges.add(edge);
+        }
         return allEdges;
     }
 
@@ -53,167 +72,133 @@ abstract class GraphObj extends Graph {
 
     @Override
     public int outDegree(int v) {
-        if (!allVertices.contains(v)) {
+        if (!contains(v)) {
             return 0;
         }
-        return findallsuccessors(v).size();
-
+        return _outSize[v];
     }
 
-
     @Override
     public abstract int inDegree(int v);
 
     @Override
     public boolean contains(int u) {
-        return allVertices.contains(u);
+        return u > 0 && _vertices.get(u);
     }
 
     @Override
     public boolean contains(int u, int v) {
-        ArrayList<Integer> edge = new ArrayList<Integer>();
-        edge.add(u);
-        edge.add(v);
-        if ((allVertices.contains(u)) && (allVertices.contains(v))) {
-            if (isDirected()) {
-                for (ArrayList<Integer> i : allEdges) {
-                    if (i.equals(edge)) {
-                        return true;
-                    }
-                }
-                return false;
-
-            } else {
-                ArrayList<Integer> edgeSame = new ArrayList<Integer>();
-                edgeSame.add(v);
-                edgeSame.add(u);
-                for (ArrayList<Integer> i : allEdges) {
-                    if ((i.equals(edge)) || (i.equals(edgeSame))) {
-                        return true;
-                    }
-                }
-                return false;
-
-            }
+        if (!contains(u) || !contains(v)) {
+            return false;
         }
-        return false;
-
+        if (isDirected()) {
+            return _edges.contains(u, v);
+        }
+        return _edges.contains(Math.min(u, v), Math.max(u, v));
     }
 
     @Override
     public int add() {
-        if (allVertices.size() == 0)  {
-            allVertices.add(1);
-            return 1;
-        } else {
-            if (keeptrack.isEmpty()) {
-                allVertices.add(maxVertex() + 1);
-                return maxVertex();
-            } else {
-                int toadd = keeptrack.poll();
-                allVertices.add(toadd);
-                return toadd;
-            }
+        int v = _vertices.nextClearBit(1);
+        if (v >= _outSize.length) {
+            int n = Math.max(v + 1, 2 * _outSize.length);
+            _out = Arrays.copyOf(_out, n);
+            _outSize = Arrays.copyOf(_outSize, n);
+            _in = Arrays.copyOf(_in, n);
+            _inSize = Arrays.copyOf(_inSize, n);
         }
+        _vertices.set(v);
+        _vertexCount += 1;
+        return v;
     }
 
     @Override
     public int add(int u, int v) {
-        ArrayList<Integer> edge = new ArrayList<Integer>();
-        edge.add(u);
-        edge.add(v);
-        if (isDirected()) {
-            if (!allEdges.contains(edge)) {
-                allEdges.add(edge);
-            }
-            return edgeId(u, v);
-        } else {
-            ArrayList<Integer> edgeSame = new ArrayList<Integer>();
-            edgeSame.add(v);
-            edgeSame.add(u);
-            if (!allEdges.contains(edge) && (!allEdges.contains(edgeSame))) {
-                allEdges.add(edge);
+        checkMyVertex(u);
+        checkMyVertex(v);
+        if (!contains(u, v)) {
+            if (isDirected()) {
+                _edges.put(u, v, _edgeStamp);
+                _out[u] = append(_out[u], _outSize[u], v);
+                _outSize[u] += 1;
+                _in[v] = append(_in[v], _inSize[v], u);
+                _inSize[v] += 1;
+            } else {
+                _edges.put(Math.min(u, v), Math.max(u, v), _edgeStamp);
+                _out[u] = append(_out[u], _outSize[u], v);
+                _outSize[u] += 1;
+                if (u != v) {
+                    _out[v] = append(_out[v], _outSize[v], u);
+                    _outSize[v] += 1;
+                }
             }
-            return edgeId(u, v);
+            _edgeStamp += 1;
         }
+        return edgeId(u, v);
     }
 
     @Override
     public void remove(int v) {
-        if (allVertices.contains(v)) {
-            allVertices.remove(new Integer(v));
-            keeptrack.add(v);
-            List<ArrayList<Integer>> copy
-                    = new ArrayList<ArrayList<Integer>>(allEdges);
-            for (ArrayList<Integer> edge : copy) {
-                if (edge.contains(v)) {
-                    allEdges.remove(edge);
+        if (!contains(v)) {
+            return;
+        }
+        for (int i = 0; i < _outSize[v]; i += 1) {
+            int w = _out[v][i];
+            if (isDirected()) {
+                _edges.remove(v, w);
+                _inSize[w] = delete(_in[w], _inSize[w], v);
+            } else {
+                _edges.remove(Math.min(v, w), Math.max(v, w));
+                if (w != v) {
+                    _outSize[w] = delete(_out[w], _outSize[w], v);
                 }
             }
-
         }
+        for (int i = 0; i < _inSize[v]; i += 1) {
+            int u = _in[v][i];
+            _edges.remove(u, v);
+            _outSize[u] = delete(_out[u], _outSize[u], v);
+        }
+        _out[v] = _in[v] = null;
+        _outSize[v] = _inSize[v] = 0;
+        _vertices.clear(v);
+        _vertexCount -= 1;
     }
 
     @Override
     public void remove(int u, int v) {
-        ArrayList<Integer> edge = new ArrayList<Integer>();
-        edge.add(u);
-        edge.add(v);
+        if (!contains(u, v)) {
+            return;
+        }
         if (isDirected()) {
-            List<ArrayList<Integer>> copy
-                    = new ArrayList<ArrayList<Integer>>(allEdges);
-            for (ArrayList<Integer> i : copy) {
-                if (i.equals(edge)) {
-                    allEdges.remove(i);
-                }
-            }
+            _edges.remove(u, v);
+            _outSize[u] = delete(_out[u], _outSize[u], v);
+            _inSize[v] = delete(_in[v], _inSize[v], u);
         } else {
-            ArrayList<Integer> edgeSame = new ArrayList<Integer>();
-            edgeSame.add(v);
-            edgeSame.add(u);
-            List<ArrayList<Integer>> copy
-                    = new ArrayList<ArrayList<Integer>>(allEdges);
-            for (ArrayList<Integer> i : copy) {
-                if ((i.equals(edge)) || (i.equals(edgeSame))) {
-                    allEdges.remove(i);
-                }
+            _edges.remove(Math.min(u, v), Math.max(u, v));
+            _outSize[u] = delete(_out[u], _outSize[u], v);
+            if (u != v) {
+                _outSize[v] = delete(_out[v], _outSize[v], u);
             }
         }
     }
 
     @Override
     public Iteration<Integer> vertices() {
-        return Iteration.iteration(allVertices);
+        return new VertexIteration(_vertices);
     }
 
     @Override
     public int successor(int v, int k) {
-        if (contains(v)) {
-            ArrayList<Integer> allsuccessors = new ArrayList<Integer>();
-            allsuccessors = findallsuccessors(v);
-            if ((allsuccessors.size() == 0) || (k >= allsuccessors.size())) {
-                return 0;
-            }
-            return allsuccessors.get(k);
-        }
-        return 0;
-
-    }
-
-    /** Return an arraylist that contains successors of V. */
-    private ArrayList<Integer> findallsuccessors(int v) {
-        ArrayList<Integer> allsuccessors = new ArrayList<Integer>();
-        for (int node : allVertices) {
-            if (contains(v, node)) {
-                allsuccessors.add(node);
-            }
+        if (!contains(v) || k < 0 || k >= _outSize[v]) {
+            return 0;
         }
-        return allsuccessors;
+        return _out[v][k];
     }
 
     /** Return an arraylist that contains successors of V. */
     ArrayList<Integer> getallsuccessors(int v) {
-        return findallsuccessors(v);
+        return toList(successors(v));
     }
 
     @Override
@@ -222,64 +207,150 @@ abstract class GraphObj extends Graph {
     @Override
     public Iteration<Integer> successors(int v) {
         if (!contains(v)) {
-            return Iteration.iteration(new ArrayList<Integer>());
-        } else {
-            return Iteration.iteration(findallsuccessorsEdgesorder(v));
+            return new RowIteration(RowIteration.EMPTY, 0, 0);
         }
+        return new RowIteration(_out[v], 0, _outSize[v]);
     }
 
-    /** Return an arraylist that contains successors of V
-     * in edge insertion order. */
-    private ArrayList<Integer> findallsuccessorsEdgesorder(int v) {
-        ArrayList<Integer> allsuccessors = new ArrayList<Integer>();
-        if (isDirected()) {
-            for (ArrayList<Integer> edge : allEdges) {
-                if (edge.get(0).equals(v)) {
-                    allsuccessors.add(edge.get(1));
-                }
-            }
-            return allsuccessors;
-        } else {
-            for (ArrayList<Integer> edge : allEdges) {
-                if (edge.get(0).equals(v)) {
-                    allsuccessors.add(edge.get(1));
-                } else if (edge.get(1).equals(v)) {
-                    allsuccessors.add(edge.get(0));
-                }
+    @Override
+    public abstract Iteration<Integer> predecessors(int v);
 
-            }
-            return allsuccessors;
+    @Override
+    public IntIteration intVertices() {
+        return _vertexCursor.get().reset(_vertices);
+    }
+
+    @Override
+    public IntIteration intSuccessors(int v) {
+        if (!contains(v)) {
+            return _successorCursor.get().reset(RowIteration.EMPTY, 0, 0);
         }
+        return _successorCursor.get().reset(_out[v], 0, _outSize[v]);
     }
 
     @Override
-    public abstract Iteration<Integer> predecessors(int v);
+    public IntIteration intPredecessors(int v) {
+        if (!isDirected()) {
+            return intSuccessors(v);
+        }
+        if (!contains(v)) {
+            return _predecessorCursor.get().reset(RowIteration.EMPTY, 0, 0);
+        }
+        return _predecessorCursor.get().reset(_in[v], 0, _inSize[v]);
+    }
+
+    /** Returns the number of predecessors of V, which must be one of my
+     *  vertices.  Valid only for directed graphs. */
+    int inCount(int v) {
+        return _inSize[v];
+    }
+
+    /** Returns an array whose first inCount(V) elements are the
+     *  predecessors of V, in the order their edges were added.  V must
+     *  be one of my vertices.  Valid only for directed graphs. */
+    int[] inArray(int v) {
+        return _in[v] == null ? RowIteration.EMPTY : _in[v];
+    }
+
+    /** Returns an arraylist of the items delivered by ITER. */
+    static ArrayList<Integer> toList(Iteration<Integer> iter) {
+        ArrayList<Integer> result = new ArrayList<Integer>();
+        for (int v : iter) {
+            result.add(v);
+        }
+        return result;
+    }
 
     @Override
     public Iteration<int[]> edges() {
+        int m = edgeSize();
+        int[] from = new int[m], to = new int[m];
+        long[] order = new long[m];
+        int n;
+        n = 0;
+        for (int u = _vertices.nextSetBit(1); u > 0;
+             u = _vertices.nextSetBit(u + 1)) {
+            for (int i = 0; i < _outSize[u]; i += 1) {
+                int v = _out[u][i];
+                if (isDirected() || u <= v) {
+                    from[n] = u;
+                    to[n] = v;
+                    order[n] = ((long) _edges.get(u, v) << 32) | n;
+                    n += 1;
+                }
+            }
+        }
+        Arrays.sort(order);
         ArrayList<int[]> tempEdges = new ArrayList<int[]>();
-        for (ArrayList<Integer> edge : allEdges) {
-            tempEdges.add(new int[]{edge.get(0), edge.get(1)});
+        for (long key : order) {
+            int e = (int) key;
+            tempEdges.add(new int[]{from[e], to[e]});
         }
         return Iteration.iteration(tempEdges.iterator());
-
     }
 
-
     @Override
     protected int edgeId(int u, int v) {
-        if (!isDirected()) {
-            int x = Math.max(u, v);
-            int y = Math.min(u, v);
-            return ((x + y) * (x + y + 1)) / 2 + y;
+        if (!isDirected() && u > v) {
+            return _edges.get(v, u) + 1;
+        }
+        return _edges.get(u, v) + 1;
+    }
+
+    /** Returns an array whose first N + 1 elements are the first N of
+     *  ITEMS followed by X.  ITEMS may be null if N is 0. */
+    private static int[] append(int[] items, int n, int x) {
+        if (items == null) {
+            items = new int[INITIAL_DEGREE];
+        } else if (n == items.length) {
+            items = Arrays.copyOf(items, 2 * n);
+        }
+        items[n] = x;
+        return items;
+    }
+
+    /** Delete the first occurrence of X from the first N elements of
+     *  ITEMS, shifting later elements down.  Returns the new number of
+     *  elements. */
+    private static int delete(int[] items, int n, int x) {
+        for (int i = 0; i < n; i += 1) {
+            if (items[i] == x) {
+                System.arraycopy(items, i + 1, items, i, n - i - 1);
+                return n - 1;
+            }
         }
-        return ((u + v) * (u + v + 1)) / 2 + v;
+        return n;
     }
 
-    /** All edges. */
-    private ArrayList<Integer> allVertices;
-    /** All edges. */
-    private ArrayList<ArrayList<Integer>> allEdges;
-    /** Keeping track. */
-    private PriorityQueue<Integer> keeptrack = new PriorityQueue<>();
+    /** Initial capacity of the per-vertex arrays. */
+    private static final int INITIAL_VERTICES = 16;
+    /** Initial capacity of an adjacency array. */
+    private static final int INITIAL_DEGREE = 4;
+
+    /** All vertices. */
+    private final BitSet _vertices;
+    /** Number of vertices. */
+    private int _vertexCount;
+    /** All edges, mapped to the sequence numbers in which they were
+     *  added.  Undirected edges are entered as (min, max). */
+    private final EdgeTable _edges;
+    /** Sequence number of the next edge to be added. */
+    private int _edgeStamp;
+    /** Successors of each vertex. */
+    private int[][] _out;
+    /** Number of successors of each vertex. */
+    private int[] _outSize;
+    /** Predecessors of each vertex (directed graphs only). */
+    private int[][] _in;
+    /** Number of predecessors of each vertex (directed graphs only). */
+    private int[] _inSize;
+    /** Per-thread iterations returned by intVertices. */
+    private final ThreadLocal<IntIteration.Members> _vertexCursor =
+        ThreadLocal.withInitial(IntIteration.Members::new);
+    /** Per-thread iterations returned by intSuccessors. */
+    private final ThreadLocal<IntIteration.Row> _successorCursor =
+        ThreadLocal.withInitial(IntIteration.Row::new);
+    /** Per-thread iterations returned by intPredecessors. */
+    private final ThreadLocal<IntIteration.Row> _predecessorCursor =
+        ThreadLocal.withInitial(IntIteration.Row::new);
 }
@@ -561,4 +561,79 @@ public class GraphObjTesting {
         uDGraph.add(3, 1);
         assertEquals(1, uDGraph.degree(3));
     }
+
+    @Test
+    public void largeGraph() {
+        final int n = 100000;
+        DirectedGraph dg = new DirectedGraph();
+        for (int i = 1; i <= n; i += 1) {
+            dg.add();
+        }
+        for (int i = 1; i < n; i += 1) {
+            dg.add(i, i + 1);
+            dg.add(i + 1, i);
+        }
+        for (int i = 2; i < n; i += 1) {
+            assertTrue(dg.contains(i, i - 1));
+            assertEquals(2, dg.outDegree(i));
+            assertEquals(2, dg.inDegree(i));
+            assertEquals(i - 1, dg.successor(i, 0));
+            assertEquals(i + 1, dg.successor(i, 1));
+            assertEquals(i - 1, dg.predecessor(i, 0));
+        }
+        dg.remove(n / 2);
+        assertEquals(1, dg.inDegree(n / 2 + 1));
+        assertFalse(dg.contains(n / 2 - 1, n / 2));
+        assertEquals(2 * n - 6, dg.edgeSize());
+    }
+
+    @Test
+    public void edgeIds() {
+        DirectedGraph dg = new DirectedGraph();
+        UndirectedGraph ug = new UndirectedGraph();
+        for (int i = 1; i <= 65536; i += 1) {
+            dg.add();
+            ug.add();
+        }
+        int e1 = dg.add(32767, 32768);
+        int e2 = dg.add(32768, 32767);
+        int e3 = dg.add(65535, 65536);
+        assertTrue(e1 > 0 && e2 > 0 && e3 > 0);
+        assertTrue(e1 != e2 && e2 != e3 && e1 != e3);
+        assertTrue(e3 <= 3);
+        assertEquals(e2, dg.edgeId(32768, 32767));
+        assertEquals(0, dg.edgeId(1, 2));
+        dg.remove(32767, 32768);
+        assertEquals(0, dg.edgeId(32767, 32768));
+        int e4 = ug.add(65536, 65535);
+        assertTrue(e4 > 0);
+        assertEquals(e4, ug.edgeId(65535, 65536));
+        assertEquals(e4, ug.edgeId(65536, 65535));
+        assertEquals(0, ug.edgeId(1, 65536));
+    }
+
+    @Test
+    public void intIterations() {
+        DirectedGraph dg = new DirectedGraph();
+        dg.add();
+        dg.add();
+        dg.add();
+        dg.add(1, 3);
+        dg.add(2, 3);
+        dg.add(3, 1);
+        IntIteration preds = dg.intPredecessors(3);
+        assertEquals(1, preds.nextInt());
+        assertEquals(2, preds.nextInt());
+        assertFalse(preds.hasNext());
+        IntIteration succs = dg.intSuccessors(3);
+        assertEquals(1, succs.nextInt());
+        assertFalse(succs.hasNext());
+        assertFalse(dg.intSuccessors(2 + 2).hasNext());
+        dg.remove(2);
+        IntIteration vs = dg.intVertices();
+        assertEquals(1, vs.nextInt());
+        assertEquals(3, vs.nextInt());
+        assertFalse(vs.hasNext());
+    }
+
 }
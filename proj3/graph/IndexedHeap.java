@@ -0,0 +1,161 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** A min-priority queue of vertex numbers with double-valued keys,
+ *  supporting O(log n) insertion, removal of the minimum, and decrease
+ *  (or increase) of the key of a queued vertex.  It is a 4-ary heap
+ *  kept in primitive arrays: _heap holds the queued vertices in heap
+ *  order, _pos maps each vertex to its index in _heap (or -1), and
+ *  _keys maps each vertex to its key.
+ *  @author Leslie Yang
+ */
+class IndexedHeap {
+
+    /** An empty heap for vertices in the range 0 .. CAPACITY-1.  The
+     *  range expands as needed. */
+    IndexedHeap(int capacity) {
+        capacity = Math.max(capacity, 1);
+        _heap = new int[capacity];
+        _pos = new int[capacity];
+        Arrays.fill(_pos, -1);
+        _keys = new double[capacity];
+    }
+
+    /** Returns the number of queued vertices. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns true iff no vertices are queued. */
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /** Returns true iff V is queued. */
+    boolean contains(int v) {
+        return v < _pos.length && _pos[v] >= 0;
+    }
+
+    /** Returns the key of V, which must be queued. */
+    double key(int v) {
+        return _keys[v];
+    }
+
+    /** Returns the queued vertex with the smallest key, without removing
+     *  it.  The heap must not be empty. */
+    int peek() {
+        if (_size == 0) {
+            throw new NoSuchElementException("heap is empty");
+        }
+        return _heap[0];
+    }
+
+    /** Queue V with key KEY, or, if V is already queued, change its key
+     *  to KEY. */
+    void put(int v, double key) {
+        if (v >= _pos.length) {
+            expand(v + 1);
+        }
+        int i = _pos[v];
+        if (i < 0) {
+            _keys[v] = key;
+            siftUp(_size, v);
+            _size += 1;
+        } else if (key < _keys[v]) {
+            _keys[v] = key;
+            siftUp(i, v);
+        } else {
+            _keys[v] = key;
+            siftDown(i, v);
+        }
+    }
+
+    /** Remove and return the queued vertex with the smallest key.  The
+     *  heap must not be empty. */
+    int poll() {
+        int top = peek();
+        _size -= 1;
+        _pos[top] = -1;
+        if (_size > 0) {
+            siftDown(0, _heap[_size]);
+        }
+        return top;
+    }
+
+    /** Remove all vertices from the heap. */
+    void clear() {
+        for (int i = 0; i < _size; i += 1) {
+            _pos[_heap[i]] = -1;
+        }
+        _size = 0;
+    }
+
+    /** Place V at heap index I or above, moving larger ancestors down. */
+    private void siftUp(int i, int v) {
+        double key = _keys[v];
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            int p = _heap[parent];
+            if (_keys[p] <= key) {
+                break;
+            }
+            _heap[i] = p;
+            _pos[p] = i;
+            i = parent;
+        }
+        _heap[i] = v;
+        _pos[v] = i;
+    }
+
+    /** Place V at heap index I or below, moving smaller descendants up. */
+    private void siftDown(int i, int v) {
+        double key = _keys[v];
+        while (true) {
+            int first = ARITY * i + 1;
+            if (first >= _size) {
+                break;
+            }
+            int best = first;
+            int last = Math.min(first + ARITY, _size);
+            for (int c = first + 1; c < last; c += 1) {
+                if (_keys[_heap[c]] < _keys[_heap[best]]) {
+                    best = c;
+                }
+            }
+            if (_keys[_heap[best]] >= key) {
+                break;
+            }
+            _heap[i] = _heap[best];
+            _pos[_heap[i]] = i;
+            i = best;
+        }
+        _heap[i] = v;
+        _pos[v] = i;
+    }
+
+    /** Expand my vertex range to at least 0 .. N-1. */
+    private void expand(int n) {
+        int old = _pos.length;
+        n = Math.max(n, 2 * old);
+        _heap = Arrays.copyOf(_heap, n);
+        _pos = Arrays.copyOf(_pos, n);
+        Arrays.fill(_pos, old, n, -1);
+        _keys = Arrays.copyOf(_keys, n);
+    }
+
+    /** Number of children of each heap node. */
+    private static final int ARITY = 4;
+
+    /** The queued vertices, in heap order. */
+    private int[] _heap;
+    /** Index in _heap of each vertex, or -1 if it is not queued. */
+    private int[] _pos;
+    /** Key of each queued vertex. */
+    private double[] _keys;
+    /** Number of queued vertices. */
+    private int _size;
+}
@@ -0,0 +1,70 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+/** Unit tests for the IndexedHeap class.
+ *  @author Leslie Yang
+ */
+public class IndexedHeapTesting {
+
+    @Test
+    public void pollOrder() {
+        IndexedHeap h = new IndexedHeap(4);
+        h.put(3, 5.0);
+        h.put(1, 2.0);
+        h.put(7, 9.0);
+        h.put(2, 1.0);
+        assertEquals(4, h.size());
+        assertTrue(h.contains(7));
+        assertFalse(h.contains(4));
+        assertEquals(2, h.poll());
+        assertEquals(1, h.poll());
+        assertEquals(3, h.poll());
+        assertEquals(7, h.poll());
+        assertTrue(h.isEmpty());
+        assertFalse(h.contains(7));
+    }
+
+    @Test
+    public void changeKeys() {
+        IndexedHeap h = new IndexedHeap(10);
+        for (int v = 1; v < 10; v += 1) {
+            h.put(v, v);
+        }
+        h.put(9, 0.5);
+        h.put(1, 20.0);
+        assertEquals(0.5, h.key(9), 0.0);
+        assertEquals(9, h.poll());
+        assertEquals(2, h.poll());
+        h.clear();
+        assertTrue(h.isEmpty());
+        assertFalse(h.contains(3));
+    }
+
+    @Test
+    public void randomized() {
+        final int n = 2000;
+        Random r = new Random(61);
+        IndexedHeap h = new IndexedHeap(1);
+        double[] keys = new double[n];
+        for (int v = 0; v < n; v += 1) {
+            keys[v] = r.nextDouble();
+            h.put(v, keys[v]);
+        }
+        for (int i = 0; i < n; i += 1) {
+            int v = r.nextInt(n);
+            keys[v] = r.nextDouble();
+            h.put(v, keys[v]);
+        }
+        double last = Double.NEGATIVE_INFINITY;
+        while (!h.isEmpty()) {
+            int v = h.poll();
+            assertTrue(keys[v] >= last);
+            last = keys[v];
+        }
+    }
+
+}
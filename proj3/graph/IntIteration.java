@@ -0,0 +1,115 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+/** An IntIteration delivers a sequence of int values (typically vertex
+ *  numbers) without boxing them.  For example,
+ *      for (IntIteration s = G.intSuccessors(v); s.hasNext(); ) {
+ *          int w = s.nextInt();
+ *          ...
+ *      }
+ *  The Graph methods that return IntIterations may return the same
+ *  object on each call from a given thread, so that walking a graph need
+ *  not allocate anything.
+ *  @author Leslie Yang
+ */
+public abstract class IntIteration {
+
+    /** Returns true iff there are more values. */
+    public abstract boolean hasNext();
+
+    /** Returns the next value.  Requires hasNext(). */
+    public abstract int nextInt();
+
+    /** An IntIteration that unboxes the values delivered by ITER. */
+    private static class Unboxing extends IntIteration {
+        /** An IntIteration over the values of ITER. */
+        Unboxing(Iteration<Integer> iter) {
+            _iter = iter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _iter.hasNext();
+        }
+
+        @Override
+        public int nextInt() {
+            return _iter.next();
+        }
+
+        /** The iteration with which I was constructed. */
+        private final Iteration<Integer> _iter;
+    }
+
+    /** A reusable IntIteration over a slice of an int array. */
+    static class Row extends IntIteration {
+        /** Set me to deliver ITEMS[START .. END-1], and return me. */
+        Row reset(int[] items, int start, int end) {
+            _items = items;
+            _next = start;
+            _end = end;
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next < _end;
+        }
+
+        @Override
+        public int nextInt() {
+            if (_next >= _end) {
+                throw new NoSuchElementException();
+            }
+            _next += 1;
+            return _items[_next - 1];
+        }
+
+        /** The array being iterated. */
+        private int[] _items;
+        /** Index of the next item, and end of the slice. */
+        private int _next, _end;
+    }
+
+    /** A reusable IntIteration over the positive members of a BitSet,
+     *  in increasing order. */
+    static class Members extends IntIteration {
+        /** Set me to deliver the positive members of SET, and return
+         *  me. */
+        Members reset(BitSet set) {
+            _set = set;
+            _next = set.nextSetBit(1);
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next > 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (_next <= 0) {
+                throw new NoSuchElementException();
+            }
+            int v = _next;
+            _next = _set.nextSetBit(v + 1);
+            return v;
+        }
+
+        /** The set being iterated. */
+        private BitSet _set;
+        /** The next member, or -1 if none. */
+        private int _next;
+    }
+
+    /** Returns an IntIteration that delegates to ITER. */
+    static IntIteration intIteration(Iteration<Integer> iter) {
+        return new Unboxing(iter);
+    }
+
+}
@@ -0,0 +1,179 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** The K shortest loopless paths between two vertices of an edge-weighted
+ *  graph, in order of increasing weight, found by Yen's algorithm.  The
+ *  client supplies the edge weights by overriding getWeight(u, v), and
+ *  may guide the searches toward the destination by overriding
+ *  estimatedDistance, just as for ShortestPaths.
+ *
+ *  Each path after the first deviates from an earlier one at some "spur"
+ *  vertex: it follows the earlier path (the root) to the spur and then
+ *  takes a shortest path to the destination that avoids the root's other
+ *  vertices and the next edges of all earlier paths sharing that root.
+ *  All of these spur searches are made by one DenseShortestPaths, whose
+ *  storage is reused from search to search, and which sees the avoided
+ *  edges and vertices as having infinite weight.
+ *
+ *  The search can stop early: paths longer than a given stretch (a
+ *  multiple of the weight of the shortest path) are never returned, and
+ *  candidates that exceed it are discarded as soon as they are found.
+ *  @author Leslie Yang
+ */
+public abstract class KShortestPaths {
+
+    /** Paths in G. */
+    public KShortestPaths(Graph G) {
+        _spur = new Spur(G);
+    }
+
+    /** Returns the weight of edge (U, V) of my graph. */
+    protected abstract double getWeight(int u, int v);
+
+    /** Returns a lower bound on the weight of a path from V to DEST,
+     *  satisfying the conditions on ShortestPaths.estimatedDistance.
+     *  Is 0 by default. */
+    protected double estimatedDistance(int v, int dest) {
+        return 0.0;
+    }
+
+    /** Returns up to K shortest loopless paths from SOURCE to DEST, each
+     *  a list of vertices starting with SOURCE and ending with DEST, in
+     *  order of increasing weight.  Paths whose weight exceeds STRETCH
+     *  times that of the shortest are omitted.  The result is empty if
+     *  DEST cannot be reached. */
+    public List<List<Integer>> paths(int source, int dest, int k,
+                                     double stretch) {
+        ArrayList<List<Integer>> result = new ArrayList<>();
+        _spur.setPaths(source, dest);
+        if (k <= 0 || _spur.getWeight(dest) == Double.MAX_VALUE) {
+            return result;
+        }
+        result.add(_spur.pathTo(dest));
+        double bound = stretch * _spur.getWeight(dest);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        HashSet<List<Integer>> seen = new HashSet<>(result);
+        while (result.size() < k) {
+            List<Integer> last = result.get(result.size() - 1);
+            double rootWeight;
+            rootWeight = 0.0;
+            for (int i = 0; i + 1 < last.size(); i += 1) {
+                List<Integer> root = last.subList(0, i + 1);
+                int spur = last.get(i);
+                for (List<Integer> path : result) {
+                    if (path.size() > i + 1
+                        && path.subList(0, i + 1).equals(root)) {
+                        ban(path.get(i), path.get(i + 1));
+                    }
+                }
+                for (int j = 0; j < i; j += 1) {
+                    _bannedVertices.set(last.get(j));
+                }
+                _spur.setPaths(spur, dest);
+                double weight = rootWeight + _spur.getWeight(dest);
+                if (_spur.getWeight(dest) != Double.MAX_VALUE
+                    && weight <= bound) {
+                    ArrayList<Integer> path = new ArrayList<>(root);
+                    List<Integer> tail = _spur.pathTo(dest);
+                    path.addAll(tail.subList(1, tail.size()));
+                    if (seen.add(path)) {
+                        candidates.add(new Candidate(path, weight));
+                    }
+                }
+                unban();
+                rootWeight += getWeight(spur, last.get(i + 1));
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            result.add(candidates.poll()._path);
+        }
+        return result;
+    }
+
+    /** Returns the weight of PATH, a list of vertices each joined to the
+     *  next by an edge. */
+    public double weight(List<Integer> path) {
+        double result;
+        result = 0.0;
+        for (int i = 0; i + 1 < path.size(); i += 1) {
+            result += getWeight(path.get(i), path.get(i + 1));
+        }
+        return result;
+    }
+
+    /** Make edge (U, V) unusable by the next spur search. */
+    private void ban(int u, int v) {
+        if (!_bannedEdges.contains(u, v)) {
+            _bannedEdges.put(u, v, 0);
+            _banned.add(EdgeTable.key(u, v));
+        }
+    }
+
+    /** Make all edges and vertices usable again. */
+    private void unban() {
+        for (long key : _banned) {
+            _bannedEdges.remove((int) (key >>> Integer.SIZE), (int) key);
+        }
+        _banned.clear();
+        _bannedVertices.clear();
+    }
+
+    /** A path found by a spur search, ordered by weight. */
+    private static class Candidate implements Comparable<Candidate> {
+        /** The path PATH, of weight WEIGHT. */
+        Candidate(List<Integer> path, double weight) {
+            _path = path;
+            _weight = weight;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(_weight, other._weight);
+        }
+
+        /** The path. */
+        private final List<Integer> _path;
+        /** Its weight. */
+        private final double _weight;
+    }
+
+    /** The searches for shortest paths, which see banned edges and
+     *  vertices as infinitely far away. */
+    private class Spur extends DenseShortestPaths {
+        /** Searches of G. */
+        Spur(Graph G) {
+            super(G, 0, 0);
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            if (_bannedVertices.get(v) || _bannedEdges.contains(u, v)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return KShortestPaths.this.getWeight(u, v);
+        }
+
+        @Override
+        protected double estimatedDistance(int v) {
+            return KShortestPaths.this.estimatedDistance(v, getDest());
+        }
+    }
+
+    /** Search used for all shortest paths. */
+    private final Spur _spur;
+    /** Edges unusable by the current spur search. */
+    private final EdgeTable _bannedEdges = new EdgeTable();
+    /** Keys of the edges in _bannedEdges. */
+    private final ArrayList<Long> _banned = new ArrayList<>();
+    /** Vertices unusable by the current spur search. */
+    private final BitSet _bannedVertices = new BitSet();
+
+}
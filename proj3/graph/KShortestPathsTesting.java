@@ -0,0 +1,112 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+
+/** Unit tests for the KShortestPaths class.
+ *  @author Leslie Yang
+ */
+public class KShortestPathsTesting {
+
+    /** K shortest paths over a graph whose edge weights are kept in W. */
+    private static class KSP extends KShortestPaths {
+        /** Paths in G, with edge weights W. */
+        KSP(Graph G, double[][] w) {
+            super(G);
+            _w = w;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _w[u][v];
+        }
+
+        /** Edge weights. */
+        private final double[][] _w;
+    }
+
+    @Test
+    public void diamond() {
+        DirectedGraph g = new DirectedGraph();
+        double[][] w = new double[5][5];
+        for (int i = 0; i < 4; i += 1) {
+            g.add();
+        }
+        int[][] edges = { { 1, 2, 1 }, { 2, 4, 1 }, { 1, 3, 3 },
+                          { 3, 4, 2 }, { 2, 3, 1 } };
+        for (int[] e : edges) {
+            g.add(e[0], e[1]);
+            w[e[0]][e[1]] = e[2];
+        }
+        KSP ksp = new KSP(g, w);
+        List<List<Integer>> paths = ksp.paths(1, 4, 5, 10.0);
+        assertEquals(3, paths.size());
+        assertEquals(asList(1, 2, 4), paths.get(0));
+        assertEquals(asList(1, 2, 3, 4), paths.get(1));
+        assertEquals(asList(1, 3, 4), paths.get(2));
+        assertEquals(2, ksp.paths(1, 4, 5, 2.0).size());
+        assertEquals(1, ksp.paths(1, 4, 1, 10.0).size());
+        assertTrue(ksp.paths(4, 1, 3, 10.0).isEmpty());
+    }
+
+    /** Add to RESULT the weights of all loopless paths in G from the last
+     *  vertex of PATH to DEST that extend PATH, whose weight so far is
+     *  SOFAR, with edge weights W. */
+    private static void allPaths(Graph g, double[][] w, List<Integer> path,
+                                 double sofar, int dest,
+                                 List<Double> result) {
+        int v = path.get(path.size() - 1);
+        if (v == dest) {
+            result.add(sofar);
+            return;
+        }
+        for (int x : g.successors(v)) {
+            if (!path.contains(x)) {
+                path.add(x);
+                allPaths(g, w, path, sofar + w[v][x], dest, result);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    @Test
+    public void matchesEnumeration() {
+        final int n = 9;
+        Random r = new Random(7);
+        for (int trial = 0; trial < 20; trial += 1) {
+            DirectedGraph g = new DirectedGraph();
+            double[][] w = new double[n + 1][n + 1];
+            for (int i = 0; i < n; i += 1) {
+                g.add();
+            }
+            for (int i = 0; i < 3 * n; i += 1) {
+                int u = r.nextInt(n) + 1, v = r.nextInt(n) + 1;
+                if (u != v) {
+                    g.add(u, v);
+                    w[u][v] = 1 + r.nextInt(20);
+                }
+            }
+            ArrayList<Double> expected = new ArrayList<>();
+            allPaths(g, w, new ArrayList<>(asList(1)), 0.0, n, expected);
+            Collections.sort(expected);
+            KSP ksp = new KSP(g, w);
+            List<List<Integer>> paths = ksp.paths(1, n, 6, 100.0);
+            assertEquals(Math.min(6, expected.size()), paths.size());
+            for (int k = 0; k < paths.size(); k += 1) {
+                List<Integer> path = paths.get(k);
+                assertEquals(1, (int) path.get(0));
+                assertEquals(n, (int) path.get(path.size() - 1));
+                assertEquals(path.size(), path.stream().distinct().count());
+                assertEquals(expected.get(k), ksp.weight(path), 1e-9);
+            }
+        }
+    }
+
+}
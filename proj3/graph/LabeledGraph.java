@@ -5,7 +5,10 @@ package graph;
 import java.util.ArrayList;
 
 /** A Graph whose vertices are labeled with type VL and whose edges are
- *  labeled with type EL.
+ *  labeled with type EL.  Vertex labels are kept in a list indexed by
+ *  vertex number, and edge labels in an EdgeLabels store keyed by the
+ *  edges' end points, so that both take space proportional to the size
+ *  of the graph.
  *  @author P. N. Hilfinger
  */
 public class LabeledGraph<VL, EL> extends GraphFilter {
@@ -15,7 +18,15 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
      *  G have undefined effects upon the labeled version created by this
      *  constructor. */
     public LabeledGraph(Graph G) {
+        this(G, EdgeLabels.onHeap());
+    }
+
+    /** A labeling of the graph G, as for LabeledGraph(G), that keeps its
+     *  edge labels in EDGELABELS, which must contain no labels other
+     *  than those of edges of G. */
+    public LabeledGraph(Graph G, EdgeLabels<EL> edgeLabels) {
         super(G);
+        _elabels = edgeLabels;
     }
 
     /** Returns the label on vertex V, which must be one of my
@@ -28,11 +39,12 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
     /** Returns the label on the edge (U, V), which must be one of
      *  my edges. */
     public EL getLabel(int u, int v) {
-        int e = edgeId(u, v);
-        if (e == 0) {
+        EL lab = isDirected() || u <= v ? _elabels.get(u, v)
+            : _elabels.get(v, u);
+        if (lab == null && !contains(u, v)) {
             throw new IllegalArgumentException("no such edge");
         }
-        return e < _elabel.size() ? _elabel.get(e) : null;
+        return lab;
     }
 
     /** Set getVertexLabel(V) to LAB.  V must be one of my vertices. */
@@ -46,13 +58,15 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
 
     /** Set getEdgeLabel(U, V) to LAB. (U, V) must be one of my edges. */
     public void setLabel(int u, int v, EL lab) {
-        int e = edgeId(u, v);
-        if (e == 0) {
+        if (!contains(u, v)) {
             throw new IllegalArgumentException("no such edge");
         }
-        if (lab != null || e < _elabel.size()) {
-            expand(_elabel, e + 1);
-            _elabel.set(e, lab);
+        if (!isDirected() && u > v) {
+            setLabel(v, u, lab);
+        } else if (lab == null) {
+            _elabels.remove(u, v);
+        } else {
+            _elabels.put(u, v, lab);
         }
     }
 
@@ -70,15 +84,20 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
      *  an edge (U, V), sets its label to EL. */
     public int add(int u, int v, EL lab) {
         int e = add(u, v);
-        if (lab != null || e < _elabel.size()) {
-            expand(_elabel, e + 1);
-            _elabel.set(e, lab);
-        }
+        setLabel(u, v, lab);
         return e;
     }
 
     @Override
     public void remove(int v) {
+        if (contains(v)) {
+            for (int w : successors(v)) {
+                setLabel(v, w, null);
+            }
+            for (int w : predecessors(v)) {
+                setLabel(w, v, null);
+            }
+        }
         super.remove(v);
         if (v < _vlabel.size()) {
             _vlabel.set(v, null);
@@ -87,12 +106,9 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
 
     @Override
     public void remove(int u, int v) {
-        int e = edgeId(u, v);
-        if (e != 0) {
+        if (contains(u, v)) {
+            setLabel(u, v, null);
             super.remove(u, v);
-            if (e < _elabel.size()) {
-                _elabel.set(e, null);
-            }
         }
     }
 
@@ -106,6 +122,6 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
 
     /** Mapping of vertex numbers to vertex labels. */
     private final ArrayList<VL> _vlabel = new ArrayList<>();
-    /** Mapping of unique edge ids to edge labels. */
-    private final ArrayList<EL> _elabel = new ArrayList<>();
+    /** Mapping of edges to edge labels. */
+    private final EdgeLabels<EL> _elabels;
 }
@@ -0,0 +1,158 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Random;
+
+/** Unit tests for the LabeledGraph class and its EdgeLabels stores.
+ *  @author Leslie Yang
+ */
+public class LabeledGraphTesting {
+
+    /** Encodes Double labels as 8 bytes. */
+    private static class DoubleCodec extends MappedEdgeLabels.Codec<Double> {
+        @Override
+        public int size() {
+            return 8;
+        }
+
+        @Override
+        public void write(Double lab, ByteBuffer buf, int pos) {
+            buf.putDouble(pos, lab);
+        }
+
+        @Override
+        public Double read(ByteBuffer buf, int pos) {
+            return buf.getDouble(pos);
+        }
+    }
+
+    /** Check that STORE behaves like a map under a random sequence of
+     *  puts and removes of edges among the vertices 1 .. 50. */
+    private static void checkStore(EdgeLabels<Double> store) {
+        Random rand = new Random(25);
+        HashMap<Long, Double> expected = new HashMap<>();
+        for (int k = 0; k < 20000; k += 1) {
+            int u = 1 + rand.nextInt(50), v = 1 + rand.nextInt(50);
+            if (rand.nextInt(3) == 0) {
+                store.remove(u, v);
+                expected.remove(EdgeTable.key(u, v));
+            } else {
+                double lab = rand.nextDouble();
+                store.put(u, v, lab);
+                expected.put(EdgeTable.key(u, v), lab);
+            }
+            assertEquals(expected.size(), store.size());
+        }
+        for (int u = 1; u <= 50; u += 1) {
+            for (int v = 1; v <= 50; v += 1) {
+                assertEquals(expected.get(EdgeTable.key(u, v)),
+                             store.get(u, v));
+            }
+        }
+    }
+
+    @Test
+    public void heapStore() {
+        checkStore(EdgeLabels.onHeap());
+    }
+
+    @Test
+    public void directStore() {
+        checkStore(new MappedEdgeLabels<>(new DoubleCodec()));
+    }
+
+    @Test
+    public void mappedStore() throws IOException {
+        File file = File.createTempFile("labels", ".edl");
+        file.delete();
+        try {
+            MappedEdgeLabels<Double> store =
+                new MappedEdgeLabels<>(new DoubleCodec(), file.getPath());
+            checkStore(store);
+            store.put(7, 9, 2.5);
+            store.flush();
+            MappedEdgeLabels<Double> reopened =
+                new MappedEdgeLabels<>(new DoubleCodec(), file.getPath());
+            assertEquals(store.size(), reopened.size());
+            assertEquals(2.5, reopened.get(7, 9), 0.0);
+            assertNull(reopened.get(51, 1));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void largeVertexNumbers() {
+        LabeledGraph<String, Double> g =
+            new LabeledGraph<>(new DirectedGraph(),
+                               new MappedEdgeLabels<>(new DoubleCodec()));
+        int n = 100000;
+        for (int v = 1; v <= n; v += 1) {
+            g.add("v" + v);
+        }
+        g.add(n, n - 1, 1.5);
+        g.add(n - 1, n, 2.5);
+        g.add(1, n, 3.5);
+        assertEquals(1.5, g.getLabel(n, n - 1), 0.0);
+        assertEquals(2.5, g.getLabel(n - 1, n), 0.0);
+        assertEquals(3.5, g.getLabel(1, n), 0.0);
+        g.remove(n);
+        assertFalse(g.contains(1, n));
+        int w = g.add("again");
+        g.add(1, w);
+        assertNull(g.getLabel(1, w));
+    }
+
+    @Test
+    public void edgesAbove32767() {
+        int[][] edges = { { 32767, 32768 }, { 65535, 65536 },
+                          { 55606, 37075 } };
+        LabeledGraph<String, Double> dg =
+            new LabeledGraph<>(new DirectedGraph());
+        LabeledGraph<String, Double> ug =
+            new LabeledGraph<>(new UndirectedGraph());
+        for (int v = 1; v <= 65536; v += 1) {
+            dg.add("v" + v);
+            ug.add("v" + v);
+        }
+        for (int k = 0; k < edges.length; k += 1) {
+            int u = edges[k][0], v = edges[k][1];
+            dg.add(u, v, k + 0.5);
+            ug.add(u, v, k + 0.5);
+            assertEquals(k + 0.5, dg.getLabel(u, v), 0.0);
+            assertEquals(k + 0.5, ug.getLabel(v, u), 0.0);
+            dg.setLabel(u, v, (double) k);
+            assertEquals(k, dg.getLabel(u, v), 0.0);
+        }
+        try {
+            dg.getLabel(32768, 32767);
+            fail("label of a missing edge");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void undirectedLabels() {
+        LabeledGraph<String, String> g =
+            new LabeledGraph<>(new UndirectedGraph());
+        g.add("a");
+        g.add("b");
+        g.add(2, 1, "ab");
+        assertEquals("ab", g.getLabel(1, 2));
+        assertEquals("ab", g.getLabel(2, 1));
+        g.setLabel(1, 2, "ba");
+        assertEquals("ba", g.getLabel(2, 1));
+        g.remove(2, 1);
+        assertFalse(g.contains(1, 2));
+        g.add(1, 2);
+        assertNull(g.getLabel(1, 2));
+    }
+
+}
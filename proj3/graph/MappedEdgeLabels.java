@@ -0,0 +1,265 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/** An EdgeLabels store that keeps its labels outside the Java heap, in a
+ *  direct buffer or in a memory-mapped file, for labels that a Codec can
+ *  encode in a fixed number of bytes.  The store is an open-addressing
+ *  hash table with linear probing, like EdgeTable, whose slots are
+ *  records of the buffer: each is an edge key (see EdgeTable.key; 0 in
+ *  empty slots) followed by the encoded label.  The buffer starts with a
+ *  header of four ints: MAGIC, the record size, the number of slots (a
+ *  power of 2), and the number of labeled edges.  Since the labels
+ *  themselves are decoded on each access, the heap holds none of them.
+ *
+ *  A file-backed store may be reopened by later runs, or mapped by
+ *  several processes at once, which then share one copy of the labels
+ *  in memory.  Only one process may modify it, however, and when the
+ *  table must grow, it is rebuilt in a new file that replaces the old
+ *  one, so other processes must reopen it to see later changes.
+ *  @author Leslie Yang
+ */
+public class MappedEdgeLabels<EL> extends EdgeLabels<EL> {
+
+    /** Magic number identifying label stores ("EDGL"). */
+    public static final int MAGIC = 0x4544474c;
+
+    /** Translates labels of type EL to and from a fixed number of
+     *  bytes. */
+    public abstract static class Codec<EL> {
+        /** Returns the number of bytes in each encoded label. */
+        public abstract int size();
+
+        /** Write LAB, which is not null, into BUF starting at POS, using
+         *  only absolute puts. */
+        public abstract void write(EL lab, ByteBuffer buf, int pos);
+
+        /** Returns the label encoded in BUF starting at POS, using only
+         *  absolute gets. */
+        public abstract EL read(ByteBuffer buf, int pos);
+    }
+
+    /** An empty store of labels encoded by CODEC, in a direct buffer. */
+    public MappedEdgeLabels(Codec<EL> codec) {
+        _codec = codec;
+        _file = null;
+        _record = 8 + codec.size();
+        _data = allocate(INITIAL_SLOTS, null);
+    }
+
+    /** A store of labels encoded by CODEC, in the file named NAME.  If
+     *  the file exists, it must hold a store written with the same codec,
+     *  whose labels I then contain; otherwise it is created, empty. */
+    public MappedEdgeLabels(Codec<EL> codec, String name) {
+        _codec = codec;
+        _file = Paths.get(name);
+        _record = 8 + codec.size();
+        if (!Files.exists(_file)) {
+            _data = allocate(INITIAL_SLOTS, _file);
+            return;
+        }
+        try (FileChannel channel =
+                 FileChannel.open(_file, StandardOpenOption.READ,
+                                  StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw badFile(name);
+            }
+            _data = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException("cannot open " + name);
+        }
+        int slots = _data.getInt(8);
+        if (_data.getInt(0) != MAGIC || _data.getInt(4) != _record
+            || slots <= 0 || (slots & (slots - 1)) != 0
+            || HEADER + (long) slots * _record != _data.capacity()
+            || _data.getInt(12) < 0 || _data.getInt(12) > slots) {
+            throw badFile(name);
+        }
+    }
+
+    @Override
+    public EL get(int u, int v) {
+        int i = find(EdgeTable.key(u, v));
+        return _data.getLong(position(i)) == 0 ? null
+            : _codec.read(_data, position(i) + 8);
+    }
+
+    @Override
+    public void put(int u, int v, EL lab) {
+        if (2 * (size() + 1) > slots()) {
+            _data = rehash(2 * slots());
+        }
+        long k = EdgeTable.key(u, v);
+        int i = find(k);
+        int pos = position(i);
+        if (_data.getLong(pos) == 0) {
+            _data.putLong(pos, k);
+            _data.putInt(12, size() + 1);
+        }
+        _codec.write(lab, _data, pos + 8);
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        int i = find(EdgeTable.key(u, v));
+        if (_data.getLong(position(i)) == 0) {
+            return;
+        }
+        int mask = slots() - 1;
+        for (int j = (i + 1) & mask; _data.getLong(position(j)) != 0;
+             j = (j + 1) & mask) {
+            int home = EdgeTable.slot(_data.getLong(position(j)), mask);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                copy(j, i);
+                i = j;
+            }
+        }
+        _data.putLong(position(i), 0);
+        _data.putInt(12, size() - 1);
+    }
+
+    @Override
+    public int size() {
+        return _data.getInt(12);
+    }
+
+    /** Write any changes to my file, if I have one, to the disk. */
+    public void flush() {
+        if (_data instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) _data).force();
+        }
+    }
+
+    /** Returns my number of slots. */
+    private int slots() {
+        return _data.getInt(8);
+    }
+
+    /** Returns the position in _data of slot I. */
+    private int position(int i) {
+        return HEADER + i * _record;
+    }
+
+    /** Returns the slot holding key K, or else the empty slot at which
+     *  it would be added. */
+    private int find(long k) {
+        int mask = slots() - 1;
+        int i;
+        for (i = EdgeTable.slot(k, mask); _data.getLong(position(i)) != 0;
+             i = (i + 1) & mask) {
+            if (_data.getLong(position(i)) == k) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /** Copy the record in slot FROM to slot TO. */
+    private void copy(int from, int to) {
+        int src = position(from), dst = position(to);
+        for (int b = 0; b < _record; b += 1) {
+            _data.put(dst + b, _data.get(src + b));
+        }
+    }
+
+    /** Returns a new buffer for an empty table of SLOTS slots, mapped
+     *  from the file FILE, which is created or replaced, or a direct
+     *  buffer if FILE is null. */
+    private ByteBuffer allocate(int slots, Path file) {
+        long size = HEADER + (long) slots * _record;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many edge labels");
+        }
+        ByteBuffer result;
+        if (file == null) {
+            result = ByteBuffer.allocateDirect((int) size);
+        } else {
+            try (FileChannel channel =
+                     FileChannel.open(file, StandardOpenOption.CREATE,
+                                      StandardOpenOption.TRUNCATE_EXISTING,
+                                      StandardOpenOption.READ,
+                                      StandardOpenOption.WRITE)) {
+                result = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                     size);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException("cannot write " + file);
+            }
+        }
+        result.putInt(0, MAGIC);
+        result.putInt(4, _record);
+        result.putInt(8, slots);
+        result.putInt(12, 0);
+        return result;
+    }
+
+    /** Returns a buffer holding my table rebuilt with SLOTS slots.  If I
+     *  have a file, the new table is built in a new file, which then
+     *  replaces it. */
+    private ByteBuffer rehash(int slots) {
+        Path file = _file == null ? null
+            : _file.resolveSibling(_file.getFileName() + ".new");
+        ByteBuffer result = allocate(slots, file);
+        int mask = slots - 1;
+        for (int j = 0; j < slots(); j += 1) {
+            int src = position(j);
+            long k = _data.getLong(src);
+            if (k != 0) {
+                int i;
+                for (i = EdgeTable.slot(k, mask);
+                     result.getLong(HEADER + i * _record) != 0;
+                     i = (i + 1) & mask) {
+                    continue;
+                }
+                int dst = HEADER + i * _record;
+                for (int b = 0; b < _record; b += 1) {
+                    result.put(dst + b, _data.get(src + b));
+                }
+            }
+        }
+        result.putInt(12, size());
+        if (file != null) {
+            ((MappedByteBuffer) result).force();
+            try {
+                Files.move(file, _file, StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException("cannot write " + _file);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the exception reporting that the file named NAME does not
+     *  hold a store for my codec. */
+    private static IllegalArgumentException badFile(String name) {
+        return new IllegalArgumentException(name
+                                            + " is not a matching edge"
+                                            + " label file");
+    }
+
+    /** Size of the header, in bytes. */
+    private static final int HEADER = 16;
+    /** Number of slots in a new table (a power of 2). */
+    private static final int INITIAL_SLOTS = 16;
+
+    /** Encodes and decodes my labels. */
+    private final Codec<EL> _codec;
+    /** My file, or null if my buffer is not mapped. */
+    private final Path _file;
+    /** Size of my records, in bytes. */
+    private final int _record;
+    /** My table. */
+    private ByteBuffer _data;
+
+}
@@ -0,0 +1,99 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+
+/** The weights and predecessors assigned to vertices by a shortest-path
+ *  search, kept in arrays indexed by vertex number.  Each entry carries
+ *  the number of the search that set it, so that reset() invalidates all
+ *  entries in O(1) time.  Vertices not set during the current search have
+ *  weight Double.MAX_VALUE and predecessor 0.
+ *  @author Leslie Yang
+ */
+class PathLabels {
+
+    /** Labels for vertices 0 .. N-1 (expanded as needed). */
+    PathLabels(int n) {
+        _weights = new double[n];
+        _predecessors = new int[n];
+        _stamps = new int[n];
+        _epoch = 1;
+    }
+
+    /** Start a new search over vertices 0 .. N-1, discarding all current
+     *  labels. */
+    void reset(int n) {
+        if (n > _stamps.length) {
+            _weights = new double[n];
+            _predecessors = new int[n];
+            _stamps = new int[n];
+            _epoch = 0;
+        }
+        _epoch += 1;
+        if (_epoch == Integer.MAX_VALUE) {
+            Arrays.fill(_stamps, 0);
+            _epoch = 1;
+        }
+    }
+
+    /** Returns true iff V has been labeled during the current search. */
+    boolean reached(int v) {
+        return v >= 0 && v < _stamps.length && _stamps[v] == _epoch;
+    }
+
+    /** Returns the weight of V. */
+    double weight(int v) {
+        return reached(v) ? _weights[v] : Double.MAX_VALUE;
+    }
+
+    /** Returns the predecessor of V. */
+    int predecessor(int v) {
+        return reached(v) ? _predecessors[v] : 0;
+    }
+
+    /** Set the weight of V to W. */
+    void setWeight(int v, double w) {
+        touch(v);
+        _weights[v] = w;
+    }
+
+    /** Set the predecessor of V to U. */
+    void setPredecessor(int v, int u) {
+        touch(v);
+        _predecessors[v] = u;
+    }
+
+    /** Set the weight of V to W and its predecessor to U. */
+    void set(int v, double w, int u) {
+        touch(v);
+        _weights[v] = w;
+        _predecessors[v] = u;
+    }
+
+    /** Make the entries for V belong to the current search, giving them
+     *  their initial values if they did not already. */
+    private void touch(int v) {
+        if (v >= _stamps.length) {
+            int n = Math.max(v + 1, 2 * _stamps.length);
+            _weights = Arrays.copyOf(_weights, n);
+            _predecessors = Arrays.copyOf(_predecessors, n);
+            _stamps = Arrays.copyOf(_stamps, n);
+        }
+        if (_stamps[v] != _epoch) {
+            _stamps[v] = _epoch;
+            _weights[v] = Double.MAX_VALUE;
+            _predecessors[v] = 0;
+        }
+    }
+
+    /** Vertex weights, valid where _stamps[v] == _epoch. */
+    private double[] _weights;
+    /** Vertex predecessors, valid where _stamps[v] == _epoch. */
+    private int[] _predecessors;
+    /** Number of the search that last set each entry. */
+    private int[] _stamps;
+    /** Number of the current search. */
+    private int _epoch;
+
+}
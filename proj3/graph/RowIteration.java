@@ -0,0 +1,41 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.NoSuchElementException;
+
+/** An Iteration over a slice of an array of vertex numbers.  Used by the
+ *  graph representations that keep adjacencies in int arrays.
+ *  @author Leslie Yang
+ */
+class RowIteration extends Iteration<Integer> {
+
+    /** An iteration over ITEMS[START .. END-1]. */
+    RowIteration(int[] items, int start, int end) {
+        _items = items;
+        _next = start;
+        _end = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return _next < _end;
+    }
+
+    @Override
+    public Integer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        _next += 1;
+        return _items[_next - 1];
+    }
+
+    /** An empty array, for iterations over nothing. */
+    static final int[] EMPTY = new int[0];
+
+    /** The array being iterated. */
+    private final int[] _items;
+    /** Index of the next item, and end of the slice. */
+    private int _next, _end;
+}
@@ -4,11 +4,9 @@ package graph;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.PriorityQueue;
-import java.util.HashSet;
-import java.util.Set;
 
 /** The shortest paths through an edge-weighted graph.
  *  By overriding methods getWeight, setWeight, getPredecessor, and
@@ -29,66 +27,369 @@ public abstract class ShortestPaths {
         _G = G;
         _source = source;
         _dest = dest;
-        _comp = new CompareVertices();
+    }
 
+    /** Initialize the shortest paths.  Must be called before using
+     *  getWeight, getPredecessor, and pathTo.
+     *
+     *  Vertices enter the fringe only when first reached, and the fringe
+     *  is an IndexedHeap keyed on getWeight(v) + estimatedDistance(v), so
+     *  that an improved path to a queued vertex costs O(log V) rather than
+     *  a removal and reinsertion.  A vertex that is reached by a shorter
+     *  path after leaving the fringe (possible only if estimatedDistance
+     *  is inconsistent) is queued again. */
+    public void setPaths() {
+        _complete = false;
+        if (_bidirectional && _dest != 0) {
+            setBidirectionalPaths();
+            return;
+        }
+        initializePaths();
+        IndexedHeap fringe = fringe();
+        setWeight(_source, 0);
+        setPredecessor(_source, 0);
+        fringe.put(_source, estimatedDistance(_source));
+        while (!fringe.isEmpty()) {
+            int current = fringe.poll();
+            if (current == _dest) {
+                return;
+            }
+            double costsofar = getWeight(current);
+            for (IntIteration succs = _G.intSuccessors(current);
+                 succs.hasNext();) {
+                int next = succs.nextInt();
+                double newcost = costsofar + getWeight(current, next);
+                if (newcost < getWeight(next)) {
+                    setWeight(next, newcost);
+                    setPredecessor(next, current);
+                    fringe.put(next, newcost + estimatedDistance(next));
+                }
+            }
+        }
+        _complete = true;
     }
 
-    /** A comparator. */
-    private class CompareVertices implements Comparator<Integer> {
-        @Override
-        public int compare(Integer a, Integer b) {
-            double x = estimatedDistance(a) + getWeight(a);
-            double y = estimatedDistance(b) + getWeight(b);
-            if (y <= x) {
-                return 1;
+    /** Initialize the shortest path from _source to _dest by searching
+     *  forward from _source and backward (along predecessor edges) from
+     *  _dest at the same time, always advancing the smaller fringe.
+     *
+     *  The forward search is keyed on getWeight(v) + potential(v), and the
+     *  backward one on its own distance to _dest minus potential(v).  These
+     *  are A* searches with consistent heuristics, and the best path found
+     *  so far, of weight BEST, is a shortest path once the sum of the two
+     *  smallest keys reaches BEST.  The backward labels are then copied
+     *  into the forward ones along that path, so that getWeight,
+     *  getPredecessor, and pathTo() describe it as usual. */
+    private void setBidirectionalPaths() {
+        initializePaths();
+        IndexedHeap fringe = fringe(),
+            backFringe = _backFringe;
+        PathLabels back = _backLabels;
+        if (backFringe == null) {
+            backFringe = _backFringe = new IndexedHeap(_G.maxVertex() + 1);
+            back = _backLabels = new PathLabels(_G.maxVertex() + 1);
+        } else {
+            backFringe.clear();
+            back.reset(_G.maxVertex() + 1);
+        }
+        setWeight(_source, 0);
+        setPredecessor(_source, 0);
+        if (_source == _dest) {
+            return;
+        }
+        back.set(_dest, 0, 0);
+        fringe.put(_source, potential(_source));
+        backFringe.put(_dest, -potential(_dest));
+        double best = Double.MAX_VALUE;
+        int meetFrom, meetTo;
+        meetFrom = meetTo = 0;
+        while (!fringe.isEmpty() && !backFringe.isEmpty()
+               && fringe.key(fringe.peek()) + backFringe.key(backFringe.peek())
+                  < best) {
+            if (fringe.size() <= backFringe.size()) {
+                int v = fringe.poll();
+                double costsofar = getWeight(v);
+                for (IntIteration succs = _G.intSuccessors(v);
+                     succs.hasNext();) {
+                    int next = succs.nextInt();
+                    double newcost = costsofar + getWeight(v, next);
+                    if (newcost < getWeight(next)) {
+                        setWeight(next, newcost);
+                        setPredecessor(next, v);
+                        fringe.put(next, newcost + potential(next));
+                    }
+                    if (back.reached(next)
+                        && newcost + back.weight(next) < best) {
+                        best = newcost + back.weight(next);
+                        meetFrom = v;
+                        meetTo = next;
+                    }
+                }
+            } else {
+                int v = backFringe.poll();
+                double costsofar = back.weight(v);
+                for (IntIteration preds = _G.intPredecessors(v);
+                     preds.hasNext();) {
+                    int prev = preds.nextInt();
+                    double newcost = costsofar + getWeight(prev, v);
+                    if (newcost < back.weight(prev)) {
+                        back.set(prev, newcost, v);
+                        backFringe.put(prev, newcost - potential(prev));
+                    }
+                    if (getWeight(prev) < Double.MAX_VALUE
+                        && getWeight(prev) + newcost < best) {
+                        best = getWeight(prev) + newcost;
+                        meetFrom = prev;
+                        meetTo = v;
+                    }
+                }
+            }
+        }
+        if (meetTo != 0) {
+            setWeight(meetTo,
+                      getWeight(meetFrom) + getWeight(meetFrom, meetTo));
+            setPredecessor(meetTo, meetFrom);
+            for (int v = meetTo; v != _dest; v = back.predecessor(v)) {
+                int next = back.predecessor(v);
+                setWeight(next, getWeight(v) + getWeight(v, next));
+                setPredecessor(next, v);
             }
-            return -1;
         }
     }
 
+    /** Returns the potential of V used by setBidirectionalPaths: the
+     *  average of estimatedDistance(V) and -estimatedSourceDistance(V). */
+    private double potential(int v) {
+        return (estimatedDistance(v) - estimatedSourceDistance(v)) / 2.0;
+    }
 
+    /** Returns my forward fringe, emptied for a new search. */
+    private IndexedHeap fringe() {
+        if (_fringe == null) {
+            _fringe = new IndexedHeap(_G.maxVertex() + 1);
+        } else {
+            _fringe.clear();
+        }
+        return _fringe;
+    }
 
-    /** Initialize the shortest paths.  Must be called before using
-     *  getWeight, getPredecessor, and pathTo. */
-    public void setPaths() {
-        Set<Integer> visited = new HashSet<Integer>();
-        PriorityQueue<Integer> queueofNext =
-                new PriorityQueue<Integer>(_G.vertexSize(), _comp);
-        for (int vertex: _G.vertices()) {
-            setWeight(vertex, Double.MAX_VALUE);
-            queueofNext.add(vertex);
-            setPredecessor(vertex, 0);
+    /** If ON, have setPaths search from both the source and the
+     *  destination at once when there is a destination (see
+     *  estimatedSourceDistance).  This generally examines far fewer
+     *  vertices on large graphs, but leaves getWeight and getPredecessor
+     *  valid only for vertices on pathTo(). */
+    public void setBidirectional(boolean on) {
+        _bidirectional = on;
+    }
+
+    /** Returns true iff setPaths searches from both ends. */
+    public boolean isBidirectional() {
+        return _bidirectional;
+    }
+
+    /** Make SOURCE and DEST my starting and target vertices (DEST being 0
+     *  if there is none), and then initialize the shortest paths as for
+     *  setPaths().  Allows one ShortestPaths object, and whatever storage
+     *  it keeps, to serve a sequence of queries. */
+    public void setPaths(int source, int dest) {
+        _source = source;
+        _dest = dest;
+        setPaths();
+    }
+
+    /** Make SOURCE my starting vertex, with no destination, and find
+     *  shortest paths from it to each vertex in DESTS with a single
+     *  Dijkstra search, which stops as soon as all of DESTS are settled.
+     *  Afterwards, getWeight, getPredecessor, and pathTo are valid for
+     *  each member of DESTS (a member that cannot be reached has weight
+     *  Double.MAX_VALUE).  Because it serves several destinations at once,
+     *  this search does not use estimatedDistance.  Like setPaths(source,
+     *  dest), it reuses the storage of previous searches. */
+    public void setPaths(int source, int[] dests) {
+        _source = source;
+        _dest = 0;
+        _complete = false;
+        initializePaths();
+        IndexedHeap fringe = fringe();
+        BitSet pending = _pending;
+        int remaining;
+        remaining = 0;
+        for (int v : dests) {
+            if (_G.contains(v) && !pending.get(v)) {
+                pending.set(v);
+                remaining += 1;
+            }
         }
-        setWeight(_source, 0);
-        setPredecessor(_source, 0);
-        queueofNext.add(_source);
-        boolean found = false;
-        while ((!queueofNext.isEmpty()) && (!found)) {
-            int current = queueofNext.poll();
-            visited.add(current);
-            if (current == _dest) {
-                found = true;
-                return;
+        setWeight(source, 0);
+        setPredecessor(source, 0);
+        fringe.put(source, 0);
+        while (remaining > 0 && !fringe.isEmpty()) {
+            int current = fringe.poll();
+            if (pending.get(current)) {
+                pending.clear(current);
+                remaining -= 1;
+            }
+            double costsofar = getWeight(current);
+            for (IntIteration succs = _G.intSuccessors(current);
+                 succs.hasNext();) {
+                int next = succs.nextInt();
+                double newcost = costsofar + getWeight(current, next);
+                if (newcost < getWeight(next)) {
+                    setWeight(next, newcost);
+                    setPredecessor(next, current);
+                    fringe.put(next, newcost);
+                }
+            }
+        }
+        pending.clear();
+    }
+
+    /** Make SOURCE my starting vertex, with no destination, and settle
+     *  exactly the vertices whose distance from it is at most LIMIT, by a
+     *  Dijkstra search that stops as soon as the nearest unsettled vertex
+     *  lies beyond LIMIT.  Returns the settled vertices in order of
+     *  distance.  Afterwards, getWeight and getPredecessor are valid for
+     *  them, and any other vertex has a weight greater than LIMIT
+     *  (Double.MAX_VALUE if it was not reached).  Like setPaths(source,
+     *  dests), this search does not use estimatedDistance and reuses the
+     *  storage of previous searches. */
+    public int[] setPathsWithin(int source, double limit) {
+        _source = source;
+        _dest = 0;
+        _complete = false;
+        initializePaths();
+        IndexedHeap fringe = fringe();
+        int[] settled = new int[16];
+        int n;
+        n = 0;
+        setWeight(source, 0);
+        setPredecessor(source, 0);
+        fringe.put(source, 0);
+        while (!fringe.isEmpty() && fringe.key(fringe.peek()) <= limit) {
+            int current = fringe.poll();
+            if (n == settled.length) {
+                settled = Arrays.copyOf(settled, 2 * n);
             }
-            for (int next: _G.successors(current)) {
-                double costsofar = getWeight(next);
-                double newcost = getWeight(current) + getWeight(current, next);
-                double costfunction = costsofar - newcost;
-                if ((visited.contains(next)) && (costfunction < 0)) {
-                    continue;
-                } else if ((!queueofNext.contains(next))
-                        || (costfunction > 0)) {
+            settled[n] = current;
+            n += 1;
+            double costsofar = getWeight(current);
+            for (IntIteration succs = _G.intSuccessors(current);
+                 succs.hasNext();) {
+                int next = succs.nextInt();
+                double newcost = costsofar + getWeight(current, next);
+                if (newcost < getWeight(next)) {
                     setWeight(next, newcost);
                     setPredecessor(next, current);
-                    if (queueofNext.contains(next)) {
-                        queueofNext.remove(next);
-                        queueofNext.add(next);
+                    fringe.put(next, newcost);
+                }
+            }
+        }
+        return Arrays.copyOf(settled, n);
+    }
+
+    /** Bring my shortest paths up to date after the weight of edge (U, V)
+     *  has changed, or the edge has been added to or removed from the
+     *  graph, recomputing only the paths that the change affects.
+     *
+     *  If the edge now gives V a shorter path, the improvement is
+     *  propagated from V by Dijkstra's algorithm, which stops where it no
+     *  longer shortens any path.  If instead the edge has become longer
+     *  or been removed and lies on the shortest-path tree, only the
+     *  subtree below it is affected (as in dynamic SSSP algorithms such
+     *  as Ramalingam and Reps's or LPA*): its vertices are reset, each is
+     *  given its best path through an in-neighbor outside the subtree,
+     *  and those paths are propagated within the subtree.  Any other
+     *  change leaves the paths as they were.
+     *
+     *  This requires that my last search was a complete one from the
+     *  source: a unidirectional setPaths() that was not stopped early by
+     *  reaching its destination (and not a one-to-many or bounded search).
+     *  Otherwise, it simply repeats setPaths().  Vertices must not have
+     *  been added or removed since that search.  In an undirected graph,
+     *  a change to edge (U, V) requires updatePaths(U, V) and
+     *  updatePaths(V, U). */
+    public void updatePaths(int u, int v) {
+        if (!_complete) {
+            setPaths();
+            return;
+        }
+        IndexedHeap fringe = fringe();
+        boolean present = _G.contains(u, v);
+        double viaU = getWeight(u) == Double.MAX_VALUE || !present
+            ? Double.MAX_VALUE : getWeight(u) + getWeight(u, v);
+        if (viaU < getWeight(v)) {
+            setWeight(v, viaU);
+            setPredecessor(v, u);
+            fringe.put(v, viaU);
+        } else if (v != _source && getPredecessor(v) == u
+                   && viaU > getWeight(v)) {
+            BitSet affected = new BitSet();
+            ArrayList<Integer> subtree = new ArrayList<>();
+            subtree.add(v);
+            affected.set(v);
+            for (int i = 0; i < subtree.size(); i += 1) {
+                int w = subtree.get(i);
+                for (IntIteration succs = _G.intSuccessors(w);
+                     succs.hasNext();) {
+                    int x = succs.nextInt();
+                    if (!affected.get(x) && x != _source
+                        && getPredecessor(x) == w) {
+                        affected.set(x);
+                        subtree.add(x);
+                    }
+                }
+            }
+            for (int x : subtree) {
+                setWeight(x, Double.MAX_VALUE);
+                setPredecessor(x, 0);
+            }
+            for (int x : subtree) {
+                for (IntIteration preds = _G.intPredecessors(x);
+                     preds.hasNext();) {
+                    int p = preds.nextInt();
+                    if (!affected.get(p)
+                        && getWeight(p) != Double.MAX_VALUE) {
+                        double cost = getWeight(p) + getWeight(p, x);
+                        if (cost < getWeight(x)) {
+                            setWeight(x, cost);
+                            setPredecessor(x, p);
+                        }
                     }
                 }
+                if (getWeight(x) != Double.MAX_VALUE) {
+                    fringe.put(x, getWeight(x));
+                }
+            }
+        } else {
+            return;
+        }
+        while (!fringe.isEmpty()) {
+            int current = fringe.poll();
+            double costsofar = getWeight(current);
+            for (IntIteration succs = _G.intSuccessors(current);
+                 succs.hasNext();) {
+                int next = succs.nextInt();
+                double newcost = costsofar + getWeight(current, next);
+                if (newcost < getWeight(next)) {
+                    setWeight(next, newcost);
+                    setPredecessor(next, current);
+                    fringe.put(next, newcost);
+                }
             }
         }
     }
 
+    /** Set the weight of every vertex to Double.MAX_VALUE and its
+     *  predecessor to 0, in preparation for a search.  Subclasses whose
+     *  representation can do so more cheaply may override this. */
+    protected void initializePaths() {
+        for (IntIteration vertices = _G.intVertices(); vertices.hasNext();) {
+            int vertex = vertices.nextInt();
+            setWeight(vertex, Double.MAX_VALUE);
+            setPredecessor(vertex, 0);
+        }
+    }
+
     /** Returns the starting vertex. */
     public int getSource() {
         return _source;
@@ -120,6 +421,14 @@ public abstract class ShortestPaths {
         return 0.0;
     }
 
+    /** Returns an estimated heuristic weight of the shortest path from the
+     *  source vertex to vertex V, used only by bidirectional searches.  As
+     *  for estimatedDistance, this is assumed to be less than the actual
+     *  weight, and is 0 by default. */
+    protected double estimatedSourceDistance(int v) {
+        return 0.0;
+    }
+
     /** Returns the current weight of edge (U, V) in the graph.  If (U, V) is
      *  not in the graph, returns positive infinity. */
     protected abstract double getWeight(int u, int v);
@@ -149,10 +458,22 @@ public abstract class ShortestPaths {
     /** The graph being searched. */
     protected final Graph _G;
     /** The starting vertex. */
-    private final int _source;
+    private int _source;
     /** The target vertex. */
-    private final int _dest;
-    /** The comparator. */
-    private Comparator<Integer> _comp;
+    private int _dest;
+    /** True iff setPaths is to search from both ends. */
+    private boolean _bidirectional;
+    /** True iff my last search found the shortest paths from _source to
+     *  all vertices. */
+    private boolean _complete;
+    /** The fringe of the most recent search, kept for reuse. */
+    private IndexedHeap _fringe;
+    /** The backward fringe of the most recent bidirectional search. */
+    private IndexedHeap _backFringe;
+    /** Distances to _dest and successors on the way, found by the most
+     *  recent bidirectional search. */
+    private PathLabels _backLabels;
+    /** The destinations not yet settled by a one-to-many search. */
+    private final BitSet _pending = new BitSet();
 
 }
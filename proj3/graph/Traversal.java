@@ -5,7 +5,6 @@ package graph;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Queue;
-import java.util.ArrayList;
 
 /** Implements a generalized traversal of a graph.  At any given time,
  *  there is a particular collection of untraversed vertices---the "fringe."
@@ -36,7 +35,12 @@ public abstract class Traversal {
 
     /** Unmark all vertices in the graph. */
     public void clear() {
-        _visitedVertices.clear();
+        _epoch += 1;
+        if (_epoch == Integer.MAX_VALUE) {
+            Arrays.fill(_marks, 0);
+            Arrays.fill(_postMarks, 0);
+            _epoch = 1;
+        }
     }
 
     /** Initialize the fringe to V0 and perform a traversal.
@@ -47,16 +51,17 @@ public abstract class Traversal {
         while (!_fringe.isEmpty()) {
             int curV = _fringe.poll();
             if (marked(curV)) {
-                if (shouldPostVisit(curV) && !_postVisited.contains(curV)) {
+                if (shouldPostVisit(curV) && !postVisited(curV)) {
                     postVisit(curV);
-                    _postVisited.add(curV);
-
+                    _postMarks = stamp(_postMarks, curV);
                 }
             } else {
                 mark(curV);
                 visit(curV);
                 _fringe.add(curV);
-                for (int v : _G.successors(curV)) {
+                for (IntIteration succs = _G.intSuccessors(curV);
+                     succs.hasNext();) {
+                    int v = succs.nextInt();
                     if (!marked(v)) {
                         _fringe.add(v);
                     }
@@ -73,15 +78,30 @@ public abstract class Traversal {
 
     /** Returns true iff V has been marked. */
     protected boolean marked(int v) {
-        if (_visitedVertices.contains(v)) {
-            return true;
-        }
-        return false;
+        return v < _marks.length && _marks[v] == _epoch;
     }
 
     /** Mark vertex V. */
     protected void mark(int v) {
-        _visitedVertices.add(v);
+        _marks = stamp(_marks, v);
+    }
+
+    /** Returns true iff V has been post-visited since the last clear. */
+    private boolean postVisited(int v) {
+        return v < _postMarks.length && _postMarks[v] == _epoch;
+    }
+
+    /** Set STAMPS[V] to the current epoch, first expanding STAMPS to
+     *  cover all my graph's vertices, if necessary.  Returns STAMPS, or
+     *  its expanded replacement. */
+    private int[] stamp(int[] stamps, int v) {
+        if (v >= stamps.length) {
+            int n = Math.max(Math.max(v, _G.maxVertex()) + 1,
+                             2 * stamps.length);
+            stamps = Arrays.copyOf(stamps, n);
+        }
+        stamps[v] = _epoch;
+        return stamps;
     }
 
     /** Perform a visit on vertex V.  Returns false iff the traversal is to
@@ -118,11 +138,12 @@ public abstract class Traversal {
     private final Graph _G;
     /** The fringe. */
     protected final Queue<Integer> _fringe;
-    /** The visited vertices. */
-    private ArrayList<Integer> _visitedVertices = new ArrayList<Integer>();
-    /** The post visits. */
-    private ArrayList<Integer> _postVisited = new ArrayList<Integer>();;
-
-
+    /** Vertex v is marked iff _marks[v] == _epoch. */
+    private int[] _marks = new int[0];
+    /** Vertex v has been post-visited iff _postMarks[v] == _epoch. */
+    private int[] _postMarks = new int[0];
+    /** The current marking epoch.  Incrementing it unmarks all vertices
+     *  at once. */
+    private int _epoch = 1;
 
 }
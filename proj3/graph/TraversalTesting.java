@@ -0,0 +1,98 @@
+package graph;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+/** Unit tests for the Traversal class and its marks.
+ *  @author Leslie Yang
+ */
+public class TraversalTesting {
+
+    /** A depth-first traversal that records its visits and post-visits. */
+    private static class Recorder extends DepthFirstTraversal {
+        /** A Recorder for G. */
+        Recorder(Graph G) {
+            super(G);
+        }
+
+        @Override
+        protected boolean visit(int v) {
+            visited.add(v);
+            return true;
+        }
+
+        @Override
+        protected boolean postVisit(int v) {
+            postVisited.add(v);
+            return true;
+        }
+
+        /** Vertices visited, in order. */
+        private final ArrayList<Integer> visited = new ArrayList<>();
+        /** Vertices post-visited, in order. */
+        private final ArrayList<Integer> postVisited = new ArrayList<>();
+    }
+
+    /** Returns a directed graph with vertices 1 .. N and edges (i, i+1). */
+    private static DirectedGraph chain(int n) {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 1; i <= n; i += 1) {
+            g.add();
+        }
+        for (int i = 1; i < n; i += 1) {
+            g.add(i, i + 1);
+        }
+        return g;
+    }
+
+    @Test
+    public void marksAcrossClear() {
+        Recorder t = new Recorder(chain(3));
+        t.mark(2);
+        assertTrue(t.marked(2));
+        assertFalse(t.marked(1));
+        t.traverse(1);
+        assertEquals("[1]", t.visited.toString());
+        t.clear();
+        assertFalse(t.marked(1));
+        assertFalse(t.marked(2));
+        t.traverse(1);
+        assertEquals("[1, 1, 2, 3]", t.visited.toString());
+        assertTrue(t.marked(3));
+    }
+
+    @Test
+    public void postVisitsCleared() {
+        Recorder t = new Recorder(chain(3));
+        t.traverse(1);
+        assertEquals("[3, 2, 1]", t.postVisited.toString());
+        t.traverse(1);
+        assertEquals("[3, 2, 1]", t.postVisited.toString());
+        t.clear();
+        t.traverse(2);
+        assertEquals("[3, 2, 1, 3, 2]", t.postVisited.toString());
+    }
+
+    @Test
+    public void marksGrowWithGraph() {
+        DirectedGraph g = chain(3);
+        Recorder t = new Recorder(g);
+        t.traverse(1);
+        for (int i = 4; i <= 1000; i += 1) {
+            g.add();
+        }
+        g.add(3, 1000);
+        assertFalse(t.marked(1000));
+        t.mark(999);
+        assertTrue(t.marked(999));
+        assertFalse(t.marked(998));
+        t.clear();
+        t.traverse(1);
+        assertEquals("[1, 2, 3, 1, 2, 3, 1000]", t.visited.toString());
+        assertTrue(t.marked(1000));
+        assertFalse(t.marked(999));
+    }
+
+}
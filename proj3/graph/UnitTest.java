@@ -15,7 +15,15 @@ public class UnitTest {
 
     /** Run all JUnit tests in the graph package. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(graph.GraphTesting.class));
+        System.exit(textui.runClasses(graph.GraphTesting.class,
+                                      graph.GraphObjTesting.class,
+                                      graph.CSRGraphTesting.class,
+                                      graph.IndexedHeapTesting.class,
+                                      graph.DenseShortestPathsTesting.class,
+                                      graph.ContractionHierarchyTesting.class,
+                                      graph.KShortestPathsTesting.class,
+                                      graph.LabeledGraphTesting.class,
+                                      graph.TraversalTesting.class));
     }
 
 }
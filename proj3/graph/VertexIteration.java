@@ -0,0 +1,39 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+/** An Iteration over the vertices in a set of vertex numbers, in
+ *  increasing order.
+ *  @author Leslie Yang
+ */
+class VertexIteration extends Iteration<Integer> {
+
+    /** An iteration over the members of VERTICES. */
+    VertexIteration(BitSet vertices) {
+        _vertices = vertices;
+        _next = vertices.nextSetBit(1);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return _next > 0;
+    }
+
+    @Override
+    public Integer next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int v = _next;
+        _next = _vertices.nextSetBit(v + 1);
+        return v;
+    }
+
+    /** The vertex set being iterated. */
+    private final BitSet _vertices;
+    /** The next vertex to be delivered, or -1 if none. */
+    private int _next;
+}
@@ -0,0 +1,210 @@
+package trip;
+
+import java.util.Arrays;
+
+/** A non-decreasing piecewise-linear function giving the time of arrival
+ *  somewhere as a function of the time of departure, over an interval of
+ *  departure times.  It is represented by its breakpoints (x[i], y[i]),
+ *  with the x[i] increasing, between which it is linear.
+ *  @author Leslie Yang
+ */
+class ArrivalFunction {
+
+    /** The function through the points (X[i], Y[i]), where X is
+     *  increasing and Y non-decreasing. */
+    ArrivalFunction(double[] x, double[] y) {
+        _x = x;
+        _y = y;
+    }
+
+    /** Returns the function y = x on [FROM, TO]. */
+    static ArrivalFunction identity(double from, double to) {
+        if (to > from) {
+            return new ArrivalFunction(new double[] { from, to },
+                                       new double[] { from, to });
+        }
+        return new ArrivalFunction(new double[] { from },
+                                   new double[] { from });
+    }
+
+    /** Returns the number of breakpoints. */
+    int size() {
+        return _x.length;
+    }
+
+    /** Returns the earliest departure time. */
+    double start() {
+        return _x[0];
+    }
+
+    /** Returns the latest departure time. */
+    double end() {
+        return _x[_x.length - 1];
+    }
+
+    /** Returns the earliest arrival time (that for start()). */
+    double earliest() {
+        return _y[0];
+    }
+
+    /** Returns the latest arrival time (that for end()). */
+    double latest() {
+        return _y[_y.length - 1];
+    }
+
+    /** Returns the arrival time for departure time T, which is clamped to
+     *  my interval. */
+    double at(double t) {
+        int n = _x.length;
+        if (t <= _x[0]) {
+            return _y[0];
+        } else if (t >= _x[n - 1]) {
+            return _y[n - 1];
+        }
+        int i = Arrays.binarySearch(_x, t);
+        if (i >= 0) {
+            return _y[i];
+        }
+        i = -i - 2;
+        return _y[i] + (_y[i + 1] - _y[i]) * (t - _x[i])
+            / (_x[i + 1] - _x[i]);
+    }
+
+    /** Returns the departure time in my interval with the shortest travel
+     *  time (the earliest, if there are several). */
+    double bestDeparture() {
+        int best;
+        best = 0;
+        for (int i = 1; i < _x.length; i += 1) {
+            if (_y[i] - _x[i] < _y[best] - _x[best] - EPSILON) {
+                best = i;
+            }
+        }
+        return _x[best];
+    }
+
+    /** Returns the function that gives the arrival time of a departure
+     *  that, on arrival according to me, continues according to NEXT:
+     *  NEXT(THIS(t)).  NEXT must be defined for all of my arrival
+     *  times. */
+    ArrivalFunction then(ArrivalFunction next) {
+        int n = _x.length;
+        double[] x = new double[n + next._x.length],
+            y = new double[x.length];
+        int m, k;
+        m = k = 0;
+        for (int i = 0; i < n; i += 1) {
+            if (i > 0 && _y[i] > _y[i - 1]) {
+                while (k < next._x.length && next._x[k] <= _y[i - 1]) {
+                    k += 1;
+                }
+                for (; k < next._x.length && next._x[k] < _y[i]; k += 1) {
+                    x[m] = _x[i - 1] + (next._x[k] - _y[i - 1])
+                        * (_x[i] - _x[i - 1]) / (_y[i] - _y[i - 1]);
+                    y[m] = next._y[k];
+                    m += 1;
+                }
+            }
+            x[m] = _x[i];
+            y[m] = next.at(_y[i]);
+            m += 1;
+        }
+        return simplified(x, y, m);
+    }
+
+    /** Returns the pointwise minimum of me and OTHER, which must have the
+     *  same interval. */
+    ArrivalFunction min(ArrivalFunction other) {
+        double[] xs = mergedBreakpoints(other);
+        double[] x = new double[2 * xs.length], y = new double[x.length];
+        int m;
+        m = 0;
+        for (int i = 0; i < xs.length; i += 1) {
+            double a = at(xs[i]), b = other.at(xs[i]);
+            if (i > 0) {
+                double a0 = at(xs[i - 1]), b0 = other.at(xs[i - 1]);
+                double d0 = a0 - b0, d1 = a - b;
+                if ((d0 < 0 && d1 > 0) || (d0 > 0 && d1 < 0)) {
+                    double t = xs[i - 1]
+                        + (xs[i] - xs[i - 1]) * d0 / (d0 - d1);
+                    x[m] = t;
+                    y[m] = Math.min(at(t), other.at(t));
+                    m += 1;
+                }
+            }
+            x[m] = xs[i];
+            y[m] = Math.min(a, b);
+            m += 1;
+        }
+        return simplified(x, y, m);
+    }
+
+    /** Returns true iff I am nowhere later than OTHER (to within a small
+     *  tolerance), where OTHER has the same interval as I. */
+    boolean noLaterThan(ArrivalFunction other) {
+        for (double t : mergedBreakpoints(other)) {
+            if (at(t) > other.at(t) + EPSILON) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the union of my breakpoints and OTHER's, in order. */
+    private double[] mergedBreakpoints(ArrivalFunction other) {
+        double[] result = new double[_x.length + other._x.length];
+        int i, j, m;
+        i = j = m = 0;
+        while (i < _x.length || j < other._x.length) {
+            double t;
+            if (j == other._x.length
+                || (i < _x.length && _x[i] <= other._x[j])) {
+                t = _x[i];
+                i += 1;
+            } else {
+                t = other._x[j];
+                j += 1;
+            }
+            if (m == 0 || t > result[m - 1]) {
+                result[m] = t;
+                m += 1;
+            }
+        }
+        return Arrays.copyOf(result, m);
+    }
+
+    /** Returns the function through the first M points (X[i], Y[i]),
+     *  omitting points that are (nearly) repeated or that lie on the line
+     *  through their neighbors. */
+    private static ArrivalFunction simplified(double[] x, double[] y,
+                                              int m) {
+        int n;
+        n = 0;
+        for (int i = 0; i < m; i += 1) {
+            if (n > 0 && x[i] - x[n - 1] < EPSILON) {
+                y[n - 1] = Math.min(y[n - 1], y[i]);
+                continue;
+            }
+            if (n > 1) {
+                double predicted = y[n - 2] + (y[n - 1] - y[n - 2])
+                    * (x[i] - x[n - 2]) / (x[n - 1] - x[n - 2]);
+                if (Math.abs(predicted - y[i]) < EPSILON) {
+                    n -= 1;
+                }
+            }
+            x[n] = x[i];
+            y[n] = y[i];
+            n += 1;
+        }
+        return new ArrivalFunction(Arrays.copyOf(x, n), Arrays.copyOf(y, n));
+    }
+
+    /** Tolerance for comparing times (in minutes). */
+    static final double EPSILON = 1e-7;
+
+    /** Breakpoint departure times. */
+    private final double[] _x;
+    /** Breakpoint arrival times. */
+    private final double[] _y;
+
+}
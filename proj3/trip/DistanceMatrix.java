@@ -0,0 +1,115 @@
+package trip;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** The shortest road distances from each of a list of source locations to
+ *  each of a list of target locations, as computed by
+ *  Trip.distanceMatrix, and optionally the shortest-path trees from each
+ *  source by which they were found.
+ *  @author Leslie Yang
+ */
+class DistanceMatrix {
+
+    /** A matrix whose entry (i, j) is DISTANCES[i][j], the distance from
+     *  the location named SOURCES[i], whose vertex is FROM[i], to that
+     *  named TARGETS[j], whose vertex is TO[j] (Double.MAX_VALUE if there
+     *  is no route).  TREES is null, or TREES[i][v] is the predecessor of
+     *  vertex v on a shortest path from source i (0 if v is source i or
+     *  was not reached). */
+    DistanceMatrix(List<String> sources, int[] from,
+                   List<String> targets, int[] to,
+                   double[][] distances, int[][] trees) {
+        _sources = sources;
+        _targets = targets;
+        _from = from;
+        _to = to;
+        _distances = distances;
+        _trees = trees;
+    }
+
+    /** Returns the number of sources. */
+    int sources() {
+        return _sources.size();
+    }
+
+    /** Returns the number of targets. */
+    int targets() {
+        return _targets.size();
+    }
+
+    /** Returns the distance from source I to target J, or
+     *  Double.MAX_VALUE if there is no route. */
+    double distance(int i, int j) {
+        return _distances[i][j];
+    }
+
+    /** Returns the distances, indexed by source and then target.  The
+     *  result is my own array, and must not be modified. */
+    double[][] distances() {
+        return _distances;
+    }
+
+    /** Returns true iff I contain shortest-path trees. */
+    boolean hasTrees() {
+        return _trees != null;
+    }
+
+    /** Returns the predecessor of vertex V on a shortest path from source
+     *  I, or 0 if there is none.  Requires hasTrees(). */
+    int predecessor(int i, int v) {
+        int[] tree = _trees[i];
+        return v < tree.length ? tree[v] : 0;
+    }
+
+    /** Returns the vertices on a shortest path from source I to target J,
+     *  or an empty list if there is no route.  Requires hasTrees(). */
+    List<Integer> path(int i, int j) {
+        if (_distances[i][j] == Double.MAX_VALUE) {
+            return Collections.emptyList();
+        }
+        ArrayList<Integer> path = new ArrayList<>();
+        for (int v = _to[j]; v != _from[i]; v = predecessor(i, v)) {
+            path.add(v);
+        }
+        path.add(_from[i]);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Print me on OUT as a tab-separated table with a row for each
+     *  source and a column for each target, giving distances in miles to
+     *  one decimal place ("-" where there is no route). */
+    void print(PrintStream out) {
+        StringBuilder line = new StringBuilder();
+        for (String target : _targets) {
+            line.append('\t').append(target);
+        }
+        out.println(line);
+        for (int i = 0; i < _sources.size(); i += 1) {
+            line.setLength(0);
+            line.append(_sources.get(i));
+            for (int j = 0; j < _targets.size(); j += 1) {
+                line.append('\t');
+                if (_distances[i][j] == Double.MAX_VALUE) {
+                    line.append('-');
+                } else {
+                    line.append(String.format("%.1f", _distances[i][j]));
+                }
+            }
+            out.println(line);
+        }
+    }
+
+    /** Names of the sources and targets. */
+    private final List<String> _sources, _targets;
+    /** Vertices of the sources and targets. */
+    private final int[] _from, _to;
+    /** Distances, indexed by source and target. */
+    private final double[][] _distances;
+    /** Predecessor arrays, indexed by source and vertex, or null. */
+    private final int[][] _trees;
+
+}
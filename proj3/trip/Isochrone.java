@@ -0,0 +1,117 @@
+package trip;
+
+import java.io.PrintStream;
+
+/** The part of a map within a given road distance (the budget) of a
+ *  depot, as computed by Trip.isochrone: the locations that can be
+ *  reached within the budget, with their distances, and the boundary
+ *  road segments, which start at such a location but cannot be followed
+ *  to their ends within the budget.
+ *  @author Leslie Yang
+ */
+class Isochrone {
+
+    /** The region within BUDGET miles of DEPOT, containing the locations
+     *  LOCATIONS, in order of their distances DISTANCES, and whose
+     *  boundary segments run from location FROM[i] to location TO[i]
+     *  along road ROADS[i], of which REACH[i] miles are within the
+     *  budget. */
+    Isochrone(String depot, double budget, String[] locations,
+              double[] distances, String[] from, String[] to, Road[] roads,
+              double[] reach) {
+        _depot = depot;
+        _budget = budget;
+        _locations = locations;
+        _distances = distances;
+        _from = from;
+        _to = to;
+        _roads = roads;
+        _reach = reach;
+    }
+
+    /** Returns the name of the depot. */
+    String depot() {
+        return _depot;
+    }
+
+    /** Returns the budget, in miles. */
+    double budget() {
+        return _budget;
+    }
+
+    /** Returns the number of locations within the budget. */
+    int size() {
+        return _locations.length;
+    }
+
+    /** Returns the name of location K, in order of distance from the
+     *  depot (which is location 0). */
+    String location(int k) {
+        return _locations[k];
+    }
+
+    /** Returns the distance of location K from the depot. */
+    double distance(int k) {
+        return _distances[k];
+    }
+
+    /** Returns the number of boundary segments. */
+    int boundarySize() {
+        return _roads.length;
+    }
+
+    /** Returns the name of the location at which boundary segment K
+     *  starts. */
+    String boundaryFrom(int k) {
+        return _from[k];
+    }
+
+    /** Returns the name of the location at which boundary segment K
+     *  ends. */
+    String boundaryTo(int k) {
+        return _to[k];
+    }
+
+    /** Returns the road along boundary segment K. */
+    Road boundaryRoad(int k) {
+        return _roads[k];
+    }
+
+    /** Returns the number of miles of boundary segment K, from its start,
+     *  that are within the budget. */
+    double boundaryReach(int k) {
+        return _reach[k];
+    }
+
+    /** Print me on OUT: a heading, then each location and its distance,
+     *  separated by a tab, and then each boundary segment and how far
+     *  along it the budget extends. */
+    void print(PrintStream out) {
+        out.printf("Within %.1f miles of %s:%n", _budget, _depot);
+        for (int k = 0; k < _locations.length; k += 1) {
+            out.printf("%s\t%.1f%n", _locations[k], _distances[k]);
+        }
+        out.printf("Boundary:%n");
+        for (int k = 0; k < _roads.length; k += 1) {
+            out.printf("%s to %s: %s %s, %.1f of %.1f miles%n", _from[k],
+                       _to[k], _roads[k], _roads[k].direction().fullName(),
+                       _reach[k], _roads[k].length());
+        }
+    }
+
+    /** The depot. */
+    private final String _depot;
+    /** The budget. */
+    private final double _budget;
+    /** Names of the locations within the budget, nearest first. */
+    private final String[] _locations;
+    /** Distances of _locations from the depot. */
+    private final double[] _distances;
+    /** Names of the ends of the boundary segments. */
+    private final String[] _from, _to;
+    /** Roads along the boundary segments. */
+    private final Road[] _roads;
+    /** Miles of each boundary segment within the budget. */
+    private final double[] _reach;
+
+}
@@ -0,0 +1,140 @@
+package trip;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/** Shortest distances between a few landmark vertices and every vertex
+ *  of a map, which give lower bounds on the distance between any two
+ *  vertices by the triangle inequality (the ALT heuristic for A*
+ *  search): for any landmark L,
+ *      d(v, t) >= d(L, t) - d(L, v)  and  d(v, t) >= d(v, L) - d(t, L).
+ *  Tables can be saved to and restored from a file, so that they need
+ *  not be recomputed for each run.
+ *  @author Leslie Yang
+ */
+class Landmarks {
+
+    /** Magic number identifying landmark files ("TRPL"). */
+    static final int MAGIC = 0x5452504c;
+
+    /** Landmarks LANDMARKS of a map whose vertices are 1 .. VERTICES and
+     *  whose roads have the signature SIGNATURE (see Trip), where
+     *  FROM[k][v] is the distance from landmark k to vertex v and
+     *  TO[k][v] is the distance from v to landmark k (Double.MAX_VALUE if
+     *  there is no path). */
+    Landmarks(int vertices, long signature, int[] landmarks,
+              double[][] from, double[][] to) {
+        _vertices = vertices;
+        _signature = signature;
+        _landmarks = landmarks;
+        _from = from;
+        _to = to;
+    }
+
+    /** Returns the landmarks saved in the file named NAME, or null if
+     *  there is no such file or it is not a landmark file for a map with
+     *  vertices 1 .. VERTICES and road signature SIGNATURE. */
+    static Landmarks read(String name, int vertices, long signature) {
+        try (DataInputStream inp = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(name)))) {
+            if (inp.readInt() != MAGIC || inp.readInt() != vertices
+                || inp.readLong() != signature) {
+                return null;
+            }
+            int k = inp.readInt();
+            if (k < 0 || k > vertices) {
+                return null;
+            }
+            int[] landmarks = new int[k];
+            for (int i = 0; i < k; i += 1) {
+                landmarks[i] = inp.readInt();
+            }
+            double[][] from = new double[k][], to = new double[k][];
+            for (int i = 0; i < k; i += 1) {
+                from[i] = readDoubles(inp, vertices + 1);
+                to[i] = readDoubles(inp, vertices + 1);
+            }
+            return new Landmarks(vertices, signature, landmarks, from, to);
+        } catch (IOException excp) {
+            return null;
+        }
+    }
+
+    /** Save me in the file named NAME.  Returns false if that is not
+     *  possible. */
+    boolean write(String name) {
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(name)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(_vertices);
+            out.writeLong(_signature);
+            out.writeInt(_landmarks.length);
+            for (int l : _landmarks) {
+                out.writeInt(l);
+            }
+            for (int i = 0; i < _landmarks.length; i += 1) {
+                for (double d : _from[i]) {
+                    out.writeDouble(d);
+                }
+                for (double d : _to[i]) {
+                    out.writeDouble(d);
+                }
+            }
+            return true;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Returns the number of landmarks. */
+    int size() {
+        return _landmarks.length;
+    }
+
+    /** Returns landmark K. */
+    int landmark(int k) {
+        return _landmarks[k];
+    }
+
+    /** Returns a lower bound on the distance from vertex V to vertex T. */
+    double lowerBound(int v, int t) {
+        double best;
+        best = 0.0;
+        for (int k = 0; k < _landmarks.length; k += 1) {
+            double[] from = _from[k], to = _to[k];
+            if (from[t] != Double.MAX_VALUE && from[v] != Double.MAX_VALUE) {
+                best = Math.max(best, from[t] - from[v]);
+            }
+            if (to[v] != Double.MAX_VALUE && to[t] != Double.MAX_VALUE) {
+                best = Math.max(best, to[v] - to[t]);
+            }
+        }
+        return best;
+    }
+
+    /** Returns N doubles read from INP. */
+    private static double[] readDoubles(DataInputStream inp, int n)
+        throws IOException {
+        double[] result = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            result[i] = inp.readDouble();
+        }
+        return result;
+    }
+
+    /** Largest vertex of the map. */
+    private final int _vertices;
+    /** Signature of the map's roads. */
+    private final long _signature;
+    /** The landmark vertices. */
+    private final int[] _landmarks;
+    /** Distances from and to each landmark, indexed by landmark and
+     *  vertex. */
+    private final double[][] _from, _to;
+
+}
@@ -26,6 +26,16 @@ class Location {
         return x.dist(y);
     }
 
+    /** Returns my x coordinate. */
+    double x() {
+        return _x;
+    }
+
+    /** Returns my y coordinate. */
+    double y() {
+        return _y;
+    }
+
     @Override
     public String toString() {
         return _name;
@@ -0,0 +1,252 @@
+package trip;
+
+import java.util.Arrays;
+
+/** A 2-d tree over a fixed set of points, each identified by a vertex
+ *  number, supporting nearest-neighbor and radius queries in roughly
+ *  O(log n) time for evenly spread points.  The tree is implicit: it is
+ *  kept in one array of point indices, where the root of the subtree
+ *  occupying positions lo .. hi-1 is at position (lo + hi) / 2, the
+ *  points before it lie on or below its splitting coordinate and those
+ *  after it on or above.  Splits alternate between x (at even depths)
+ *  and y.
+ *  @author Leslie Yang
+ */
+class LocationIndex {
+
+    /** An index of the points (XS[i], YS[i]), identified by VERTICES[i],
+     *  for 0 <= i < VERTICES.length. */
+    LocationIndex(int[] vertices, double[] xs, double[] ys) {
+        int n = vertices.length;
+        _vertices = vertices.clone();
+        _xs = xs.clone();
+        _ys = ys.clone();
+        _tree = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            _tree[i] = i;
+        }
+        build(0, n, 0);
+    }
+
+    /** Returns the number of points in me. */
+    int size() {
+        return _tree.length;
+    }
+
+    /** Returns the vertex of the point nearest (X, Y), or 0 if I am
+     *  empty. */
+    int nearest(double x, double y) {
+        int[] result = nearest(x, y, 1);
+        return result.length == 0 ? 0 : result[0];
+    }
+
+    /** Returns the vertices of the K points nearest (X, Y) (or of all
+     *  points, if there are fewer than K), nearest first. */
+    int[] nearest(double x, double y, int k) {
+        k = Math.min(k, _tree.length);
+        Nearest found = new Nearest(k);
+        if (k > 0) {
+            nearest(0, _tree.length, 0, x, y, found);
+        }
+        return found.vertices();
+    }
+
+    /** Returns the vertices of all points within distance R of (X, Y),
+     *  in no particular order. */
+    int[] within(double x, double y, double r) {
+        double r2 = r * r;
+        int[] result = new int[8];
+        int n;
+        n = 0;
+        int[] stack = new int[3 * 16];
+        int sp;
+        sp = 0;
+        stack[sp++] = 0;
+        stack[sp++] = _tree.length;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int depth = stack[--sp], hi = stack[--sp], lo = stack[--sp];
+            if (lo >= hi) {
+                continue;
+            }
+            int mid = (lo + hi) / 2;
+            int p = _tree[mid];
+            double dx = _xs[p] - x, dy = _ys[p] - y;
+            if (dx * dx + dy * dy <= r2) {
+                if (n == result.length) {
+                    result = Arrays.copyOf(result, 2 * n);
+                }
+                result[n] = _vertices[p];
+                n += 1;
+            }
+            if (sp + 6 > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+            }
+            double diff = depth % 2 == 0 ? x - _xs[p] : y - _ys[p];
+            if (diff - r <= 0) {
+                stack[sp++] = lo;
+                stack[sp++] = mid;
+                stack[sp++] = depth + 1;
+            }
+            if (diff + r >= 0) {
+                stack[sp++] = mid + 1;
+                stack[sp++] = hi;
+                stack[sp++] = depth + 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Arrange _tree[LO .. HI-1] as a subtree whose root splits on x if
+     *  DEPTH is even, and on y otherwise. */
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) / 2;
+        select(lo, hi, mid, depth % 2 == 0 ? _xs : _ys);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /** Rearrange _tree[LO .. HI-1] so that _tree[K] holds the point whose
+     *  coordinate in C would be at K if they were sorted by it, with no
+     *  greater coordinates before it and no lesser ones after. */
+    private void select(int lo, int hi, int k, double[] c) {
+        hi -= 1;
+        while (lo < hi) {
+            double pivot = c[_tree[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (c[_tree[i]] < pivot) {
+                    i += 1;
+                }
+                while (c[_tree[j]] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    int t = _tree[i];
+                    _tree[i] = _tree[j];
+                    _tree[j] = t;
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Add to FOUND the points of the subtree _tree[LO .. HI-1] at
+     *  DEPTH that are nearer to (X, Y) than those it holds. */
+    private void nearest(int lo, int hi, int depth,
+                         double x, double y, Nearest found) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) / 2;
+        int p = _tree[mid];
+        double dx = _xs[p] - x, dy = _ys[p] - y;
+        found.offer(p, dx * dx + dy * dy);
+        double diff = depth % 2 == 0 ? x - _xs[p] : y - _ys[p];
+        if (diff < 0) {
+            nearest(lo, mid, depth + 1, x, y, found);
+            if (diff * diff < found.bound()) {
+                nearest(mid + 1, hi, depth + 1, x, y, found);
+            }
+        } else {
+            nearest(mid + 1, hi, depth + 1, x, y, found);
+            if (diff * diff < found.bound()) {
+                nearest(lo, mid, depth + 1, x, y, found);
+            }
+        }
+    }
+
+    /** A bounded collection of the nearest points seen so far, kept as a
+     *  max-heap on squared distance. */
+    private class Nearest {
+        /** A collection of at most K points. */
+        Nearest(int k) {
+            _points = new int[k];
+            _dists = new double[k];
+        }
+
+        /** Returns the squared distance that a point must be under to
+         *  enter me. */
+        double bound() {
+            return _size < _points.length ? Double.POSITIVE_INFINITY
+                : _dists[0];
+        }
+
+        /** Add point P, at squared distance D2, if it is among the
+         *  nearest. */
+        void offer(int p, double d2) {
+            if (_size < _points.length) {
+                int i = _size;
+                _size += 1;
+                while (i > 0 && _dists[(i - 1) / 2] < d2) {
+                    _points[i] = _points[(i - 1) / 2];
+                    _dists[i] = _dists[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                _points[i] = p;
+                _dists[i] = d2;
+            } else if (d2 < _dists[0]) {
+                siftDown(p, d2, _size);
+            }
+        }
+
+        /** Place point P, at squared distance D2, at the root of the
+         *  first N heap entries, moving larger children up. */
+        private void siftDown(int p, double d2, int n) {
+            int i;
+            i = 0;
+            while (2 * i + 1 < n) {
+                int c = 2 * i + 1;
+                if (c + 1 < n && _dists[c + 1] > _dists[c]) {
+                    c += 1;
+                }
+                if (_dists[c] <= d2) {
+                    break;
+                }
+                _points[i] = _points[c];
+                _dists[i] = _dists[c];
+                i = c;
+            }
+            _points[i] = p;
+            _dists[i] = d2;
+        }
+
+        /** Returns the vertices of my points, nearest first.  Empties
+         *  me. */
+        int[] vertices() {
+            int[] result = new int[_size];
+            for (int n = _size; n > 0; n -= 1) {
+                result[n - 1] = _vertices[_points[0]];
+                siftDown(_points[n - 1], _dists[n - 1], n - 1);
+            }
+            _size = 0;
+            return result;
+        }
+
+        /** Indices of my points, in heap order. */
+        private final int[] _points;
+        /** Squared distances of my points. */
+        private final double[] _dists;
+        /** Number of my points. */
+        private int _size;
+    }
+
+    /** Vertex numbers of the points. */
+    private final int[] _vertices;
+    /** Coordinates of the points. */
+    private final double[] _xs, _ys;
+    /** Indices of the points, arranged as a 2-d tree. */
+    private final int[] _tree;
+
+}
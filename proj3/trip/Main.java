@@ -1,13 +1,23 @@
 package trip;
 
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.FileNotFoundException;
+import java.io.Writer;
 import java.util.regex.Pattern;
+import java.util.ArrayList;
 import java.util.List;
 import ucb.util.CommandArgs;
 
+import static java.util.Arrays.asList;
+
 /** Initial class for the 'trip' program.
  *  @author P. N. Hilfinger
  */
@@ -18,17 +28,68 @@ public final class Main {
 
     /** Entry point for the CS61B trip program.  RAWARGS may contain options
      *  and targets:
-     *      [ -m MAP ] [ -o OUT ] [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] [ -a K ] [ -b ] [ -c ] [ -t PENALTY ]
+     *      [ -w BINMAP ] [ -W PARTMAP [ -n CELLSIZE ] ] [ -f FORMAT ]
+     *      [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] -p PROFILES [ -l TIME[-TIME] ]
+     *      [ -f FORMAT ] [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] [ -a K ] -k N [ -x STRETCH ] [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] -d SOURCES TARGETS
+     *      [ -m MAP ] [ -o OUT ] -r MILES DEPOT ...
+     *      [ -m MAP ] [ -o OUT ] [ -a K ] [ -b ] [ -c ] [ -t PENALTY ]
+     *      [ -f FORMAT ] -s [ REQUESTS ]
      *  where MAP (default Map) contains the map data, OUT (default standard
      *  output) takes the result, and REQUEST (default standard input) contains
-     *  the locations along the requested trip.
+     *  the locations along the requested trip.  With -a, A* searches also
+     *  use K landmarks, whose tables are saved in MAP.alt.  With -b, each
+     *  leg is found by a bidirectional search.  With -c, legs are found
+     *  using a contraction hierarchy of the map, which is faster for long
+     *  trips with many legs.  With -t, routes minimize their length plus
+     *  PENALTY miles for each change of road or direction.  With -p, trips
+     *  arrive as early as possible given the time-dependent road speeds in
+     *  PROFILES (see SpeedProfiles), leaving at TIME (HH:MM, default
+     *  00:00), or at the time in the window TIME-TIME that makes the trip
+     *  shortest, and the report gives the departure and arrival times
+     *  (-p may also be used with -s).
+     *  With -k, the report instead gives up to N alternative routes for
+     *  each leg, shortest first, omitting those more than STRETCH
+     *  (default 1.5) times as long as the shortest.  With -f json or
+     *  -f csv, a trip report is instead a record of each road segment
+     *  along the trip, giving the locations at its ends, its road and
+     *  direction, its length, and the distance along the trip to its end,
+     *  as a JSON object per line, or as CSV with a header line (-f text
+     *  is the default form).
+     *  MAP may also be a compiled map, as written by -w, which saves MAP
+     *  in compiled form to the file BINMAP; with -w, REQUEST may be
+     *  omitted.  Likewise, -W saves MAP in partitioned form (see
+     *  PartitionedMap), with at most CELLSIZE (default 1024) locations per
+     *  cell, to the file PARTMAP.  MAP may be such a file, which is read
+     *  only in part, as needed; it supports only trips (on which -a, -b,
+     *  and -c have no effect), and not -d, -k, -p, -r, -t, -w, -W, or
+     *  locations given as @X,Y.  With -d, the output is instead a table
+     *  of the shortest distances from each of the comma-separated
+     *  locations in SOURCES to each of those in TARGETS.  With -r, it
+     *  instead lists, for each DEPOT, the locations within MILES of it by
+     *  road, with their distances, and the roads that leave that region
+     *  (see Isochrone), the depots being handled in parallel.  Any
+     *  location may be given as @X,Y, which denotes the location nearest
+     *  (X, Y).  With -s, the map is read once and then each line of
+     *  REQUESTS (default standard input) is a separate trip request; the
+     *  reports appear in the order of the requests, separated by blank
+     *  lines.
      */
     public static void main(String... rawArgs) {
         String mapFileName;
         String outFileName;
+        String binFileName;
+        String partFileName;
         List<String> targets;
         CommandArgs args =
-            new CommandArgs("-m={0,1} -o={0,1} --={2,}", rawArgs);
+            new CommandArgs("-m={0,1} -o={0,1} -a={0,1} -b -c -d -s"
+                            + " -t={0,1} -p={0,1} -l={0,1} -k={0,1} -x={0,1}"
+                            + " -r={0,1} -f={0,1} -w={0,1} -W={0,1}"
+                            + " -n={0,1} --={0,}",
+                            rawArgs);
 
         if (!args.ok()) {
             usage();
@@ -37,14 +98,91 @@ public final class Main {
         mapFileName = args.getFirst("-m", "Map");
         outFileName = args.getFirst("-o");
         targets = args.get("--");
+        binFileName = args.getFirst("-w");
+        partFileName = args.getFirst("-W");
+        if (args.contains("-d") ? targets.size() != 2
+            : args.contains("-s") ? targets.size() > 1
+            : args.contains("-r") ? targets.isEmpty()
+            : binFileName == null && partFileName == null
+              && targets.size() < 2) {
+            usage();
+        }
+        if (args.contains("-l") && !args.contains("-p")
+            || args.contains("-x") && !args.contains("-k")
+            || args.contains("-n") && partFileName == null
+            || args.contains("-f") && (args.contains("-d")
+                                       || args.contains("-k")
+                                       || args.contains("-r"))) {
+            usage();
+        }
+        boolean searchOptions = args.contains("-b") || args.contains("-c")
+            || args.contains("-t");
+        boolean otherReports = args.contains("-d") || args.contains("-k")
+            || args.contains("-r");
+        if (args.contains("-p") && (searchOptions || args.contains("-a")
+                                    || otherReports)
+            || otherReports && searchOptions
+            || (args.contains("-d") || args.contains("-r"))
+               && args.contains("-a")) {
+            usage();
+        }
 
         setFiles(outFileName);
 
         Trip trip = new Trip();
+        trip.setBidirectional(args.contains("-b"));
+        trip.setContracted(args.contains("-c"));
+        if (args.contains("-a")) {
+            try {
+                trip.setLandmarks(Integer.parseInt(args.getFirst("-a")));
+            } catch (NumberFormatException excp) {
+                usage();
+            }
+        }
+        if (args.contains("-t")) {
+            try {
+                trip.setTurnPenalty(
+                    Double.parseDouble(args.getFirst("-t")));
+            } catch (NumberFormatException excp) {
+                usage();
+            }
+        }
 
         try {
+            if (args.contains("-f")) {
+                trip.setReportFormat(ReportFormat.parse(args.getFirst("-f")));
+            }
             trip.readMap(mapFileName);
-            trip.makeTrip(targets);
+            if (args.contains("-p")) {
+                trip.setSpeedProfiles(SpeedProfiles.read(args.getFirst("-p")));
+                String[] window = args.getFirst("-l", "0:00").split("-");
+                if (window.length > 2) {
+                    error("bad departure time: %s", args.getFirst("-l"));
+                }
+                trip.setDeparture(Trip.parseClock(window[0]),
+                                  Trip.parseClock(window[window.length - 1]));
+            }
+            if (binFileName != null) {
+                trip.writeMap(binFileName);
+            }
+            if (partFileName != null) {
+                writePartitionedMap(trip, partFileName, args.getFirst("-n"));
+            }
+            if (args.contains("-s")) {
+                streamRequests(trip, targets.isEmpty() ? null
+                               : targets.get(0));
+            } else if (args.contains("-d")) {
+                trip.distanceMatrix(locationList(targets.get(0)),
+                                    locationList(targets.get(1)),
+                                    false).print(System.out);
+            } else if (args.contains("-r")) {
+                printIsochrones(trip, targets, args.getFirst("-r"));
+            } else if (args.contains("-k") && !targets.isEmpty()) {
+                makeAlternatives(trip, targets, args.getFirst("-k"),
+                                 args.getFirst("-x"));
+            } else if (!targets.isEmpty()) {
+                trip.makeTrip(targets);
+            }
         } catch (IllegalArgumentException excp) {
             System.err.printf("trip: %s%n", excp.getMessage());
             System.exit(1);
@@ -52,6 +190,93 @@ public final class Main {
     }
 
 
+    /** Print, using TRIP, up to K alternative routes for each leg of the
+     *  trip along TARGETS, no more than STRETCH (if not null) times as
+     *  long as the shortest. */
+    private static void makeAlternatives(Trip trip, List<String> targets,
+                                         String k, String stretch) {
+        try {
+            trip.makeAlternatives(targets, Integer.parseInt(k),
+                                  stretch == null ? Trip.DEFAULT_STRETCH
+                                  : Double.parseDouble(stretch));
+        } catch (NumberFormatException excp) {
+            usage();
+        }
+    }
+
+    /** Write the map of TRIP to the file named NAME in partitioned form,
+     *  with at most CELLSIZE (if not null) locations per cell. */
+    private static void writePartitionedMap(Trip trip, String name,
+                                            String cellSize) {
+        int size;
+        size = PartitionedMap.DEFAULT_CELL_SIZE;
+        try {
+            if (cellSize != null) {
+                size = Integer.parseInt(cellSize);
+            }
+        } catch (NumberFormatException excp) {
+            usage();
+        }
+        trip.writePartitionedMap(name, size);
+    }
+
+    /** Returns the items of the comma-separated list LIST, in which a
+     *  location given as @X,Y (see Trip.snap) is a single item. */
+    static List<String> locationList(String list) {
+        String[] items = LISTSEP.split(list);
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < items.length; i += 1) {
+            if (items[i].startsWith("@") && i + 1 < items.length) {
+                result.add(items[i] + "," + items[i + 1]);
+                i += 1;
+            } else {
+                result.add(items[i]);
+            }
+        }
+        return result;
+    }
+
+    /** Print, using TRIP, the locations and boundary roads within BUDGET
+     *  miles of each of DEPOTS, computed in parallel. */
+    private static void printIsochrones(Trip trip, List<String> depots,
+                                        String budget) {
+        double miles;
+        miles = 0.0;
+        try {
+            miles = Double.parseDouble(budget);
+        } catch (NumberFormatException excp) {
+            usage();
+        }
+        boolean first;
+        first = true;
+        for (Isochrone region : trip.isochrones(depots, miles)) {
+            if (!first) {
+                System.out.println();
+            }
+            first = false;
+            region.print(System.out);
+        }
+    }
+
+    /** Answer the trip requests in the file named REQUESTFILE (the
+     *  standard input if null), one per line, using TRIP, with one worker
+     *  thread per processor. */
+    private static void streamRequests(Trip trip, String requestFile) {
+        try (BufferedReader in = requestFile == null
+                 ? new BufferedReader(new InputStreamReader(System.in))
+                 : new BufferedReader(new FileReader(requestFile))) {
+            Writer out =
+                new BufferedWriter(new OutputStreamWriter(System.out));
+            Writer err = new OutputStreamWriter(System.err);
+            int workers = Runtime.getRuntime().availableProcessors();
+            new RequestStream(trip, workers).run(in, out, err);
+        } catch (FileNotFoundException excp) {
+            error("cannot find request file %s", requestFile);
+        } catch (IOException excp) {
+            error("error reading requests: %s", excp.getMessage());
+        }
+    }
+
     /** Set System.in to read from INFILE, if non-null; otherwise, leaves
      *  System.in unchanged.  Set System.out to go to OUTFILE, if non-null;
      *  otherwise leaves System.out unchanged. */
@@ -78,7 +303,24 @@ public final class Main {
     /** Print a brief usage message and exit program abnormally. */
     private static void usage() {
         System.err.printf("Usage: java trip.Main [ -m MAPFILE ] [ -o OUTFILE ]"
-                          + " [ REQUESTFILE ]%n");
+                          + " [ -a K ] [ -b ] [ -c ]%n"
+                          + "           [ -t PENALTY ] [ -w BINMAPFILE ]"
+                          + " [ -W PARTMAPFILE [ -n CELLSIZE ] ]%n"
+                          + "           [ -f FORMAT ] [ REQUESTFILE ]%n"
+                          + "       java trip.Main [ -m MAPFILE ]"
+                          + " [ -o OUTFILE ] -p PROFILES [ -l TIME[-TIME] ]"
+                          + "%n           [ -f FORMAT ] [ REQUESTFILE ]%n"
+                          + "       java trip.Main [ -m MAPFILE ]"
+                          + " [ -o OUTFILE ] [ -a K ] -k N [ -x STRETCH ]"
+                          + " [ REQUESTFILE ]%n"
+                          + "       java trip.Main [ -m MAPFILE ]"
+                          + " [ -o OUTFILE ] -d SOURCES TARGETS%n"
+                          + "       java trip.Main [ -m MAPFILE ]"
+                          + " [ -o OUTFILE ] -r MILES DEPOT ...%n"
+                          + "       java trip.Main [ -m MAPFILE ]"
+                          + " [ -o OUTFILE ] [ -a K ] [ -b ] [ -c ]"
+                          + " [ -t PENALTY ]%n"
+                          + "           [ -f FORMAT ] -s [ REQUESTFILE ]%n");
         System.exit(1);
     }
 
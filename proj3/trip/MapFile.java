@@ -0,0 +1,288 @@
+package trip;
+
+import graph.IntIteration;
+import graph.LabeledGraph;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static trip.Main.error;
+
+/** A compiled (binary) map file, read through a memory mapping of the
+ *  file so that loading a map involves almost no parsing.  All values are
+ *  big-endian.  The file contains, in order,
+ *      MAGIC, VERSION,
+ *      n, the number of locations,
+ *      m, the number of road segments (two for each road of a text map),
+ *      k, the number of distinct road names,
+ *      n doubles: the x coordinates of the locations,
+ *      n doubles: their y coordinates,
+ *      n + 1 ints: the start of each location's segments in the arrays
+ *          that follow (its segments are start[i] .. start[i + 1] - 1),
+ *      m ints: the location at the end of each segment,
+ *      m ints: the road name (index into the k road names) of each segment,
+ *      m doubles: the length of each segment,
+ *      m bytes: the Direction (ordinal) of each segment,
+ *      n strings: the location names,
+ *      k strings: the road names,
+ *  where each string is an int byte count followed by UTF-8 bytes.
+ *  Locations are numbered from 0 in the order of the text map, and each
+ *  location's segments appear in the order of its map successors.
+ *  @author Leslie Yang
+ */
+class MapFile {
+
+    /** Magic number identifying compiled maps ("TRPM"). */
+    static final int MAGIC = 0x5452504d;
+    /** Format version. */
+    static final int VERSION = 1;
+
+    /** Returns true iff the file named NAME exists and starts with
+     *  MAGIC. */
+    static boolean isCompiled(String name) {
+        try (InputStream inp = Files.newInputStream(Paths.get(name))) {
+            byte[] head = inp.readNBytes(4);
+            return head.length == 4
+                && ByteBuffer.wrap(head).getInt() == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Write MAP, whose vertices are 1 .. MAP.vertexSize(), to the file
+     *  named NAME in compiled form. */
+    static void write(String name, LabeledGraph<Location, Road> map) {
+        int n = map.vertexSize();
+        HashMap<String, Integer> nameIndex = new HashMap<>();
+        ArrayList<String> roadNames = new ArrayList<>();
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(name)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(map.edgeSize());
+            for (int v = 1; v <= n; v += 1) {
+                for (IntIteration succs = map.intSuccessors(v);
+                     succs.hasNext();) {
+                    String road =
+                        map.getLabel(v, succs.nextInt()).toString();
+                    if (!nameIndex.containsKey(road)) {
+                        nameIndex.put(road, roadNames.size());
+                        roadNames.add(road);
+                    }
+                }
+            }
+            out.writeInt(roadNames.size());
+            for (int v = 1; v <= n; v += 1) {
+                out.writeDouble(map.getLabel(v).x());
+            }
+            for (int v = 1; v <= n; v += 1) {
+                out.writeDouble(map.getLabel(v).y());
+            }
+            int start;
+            start = 0;
+            for (int v = 1; v <= n + 1; v += 1) {
+                out.writeInt(start);
+                start += map.outDegree(v);
+            }
+            for (int v = 1; v <= n; v += 1) {
+                for (IntIteration succs = map.intSuccessors(v);
+                     succs.hasNext();) {
+                    out.writeInt(succs.nextInt() - 1);
+                }
+            }
+            for (int v = 1; v <= n; v += 1) {
+                for (IntIteration succs = map.intSuccessors(v);
+                     succs.hasNext();) {
+                    Road road = map.getLabel(v, succs.nextInt());
+                    out.writeInt(nameIndex.get(road.toString()));
+                }
+            }
+            for (int v = 1; v <= n; v += 1) {
+                for (IntIteration succs = map.intSuccessors(v);
+                     succs.hasNext();) {
+                    Road road = map.getLabel(v, succs.nextInt());
+                    out.writeDouble(road.length());
+                }
+            }
+            for (int v = 1; v <= n; v += 1) {
+                for (IntIteration succs = map.intSuccessors(v);
+                     succs.hasNext();) {
+                    Road road = map.getLabel(v, succs.nextInt());
+                    out.writeByte(road.direction().ordinal());
+                }
+            }
+            for (int v = 1; v <= n; v += 1) {
+                writeString(out, map.getLabel(v).toString());
+            }
+            for (String road : roadNames) {
+                writeString(out, road);
+            }
+        } catch (IOException excp) {
+            error("cannot write %s: %s", name, excp.getMessage());
+        }
+    }
+
+    /** The compiled map in the file named NAME. */
+    MapFile(String name) {
+        _name = name;
+        Path path = Paths.get(name);
+        try (FileChannel channel =
+                 FileChannel.open(path, StandardOpenOption.READ)) {
+            _data = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                channel.size());
+        } catch (IOException excp) {
+            error("cannot read %s", name);
+        }
+        try {
+            if (_data.getInt(0) != MAGIC) {
+                error("%s is not a compiled map", name);
+            } else if (_data.getInt(4) != VERSION) {
+                error("%s: unsupported compiled map version", name);
+            }
+            _locations = _data.getInt(8);
+            _segments = _data.getInt(12);
+            int names = _data.getInt(16);
+            if (_locations < 0 || _segments < 0 || names < 0) {
+                corrupt();
+            }
+            _xs = 20;
+            _ys = _xs + 8L * _locations;
+            _starts = _ys + 8L * _locations;
+            _targets = _starts + 4L * (_locations + 1);
+            _roadNames = _targets + 4L * _segments;
+            _lengths = _roadNames + 4L * _segments;
+            _directions = _lengths + 8L * _segments;
+            _data.position(checkedOffset(_directions + _segments));
+            _locationNameTable = new String[_locations];
+            for (int i = 0; i < _locations; i += 1) {
+                _locationNameTable[i] = readString();
+            }
+            _roadNameTable = new String[names];
+            for (int i = 0; i < names; i += 1) {
+                _roadNameTable[i] = readString();
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException excp) {
+            corrupt();
+        }
+    }
+
+    /** Returns the number of locations. */
+    int locations() {
+        return _locations;
+    }
+
+    /** Returns the name of location L. */
+    String locationName(int l) {
+        return _locationNameTable[l];
+    }
+
+    /** Returns the x coordinate of location L. */
+    double x(int l) {
+        return _data.getDouble(checkedOffset(_xs + 8L * l));
+    }
+
+    /** Returns the y coordinate of location L. */
+    double y(int l) {
+        return _data.getDouble(checkedOffset(_ys + 8L * l));
+    }
+
+    /** Returns the index of the first road segment leaving location L.
+     *  Its segments are segmentStart(L) .. segmentStart(L + 1) - 1. */
+    int segmentStart(int l) {
+        return _data.getInt(checkedOffset(_starts + 4L * l));
+    }
+
+    /** Returns the location at which segment S ends. */
+    int target(int s) {
+        return _data.getInt(checkedOffset(_targets + 4L * s));
+    }
+
+    /** Returns the road name of segment S. */
+    String roadName(int s) {
+        int k = _data.getInt(checkedOffset(_roadNames + 4L * s));
+        if (k < 0 || k >= _roadNameTable.length) {
+            corrupt();
+        }
+        return _roadNameTable[k];
+    }
+
+    /** Returns the length of segment S. */
+    double length(int s) {
+        return _data.getDouble(checkedOffset(_lengths + 8L * s));
+    }
+
+    /** Returns the direction of segment S. */
+    Direction direction(int s) {
+        int code = _data.get(checkedOffset(_directions + s));
+        if (code < 0 || code >= DIRECTIONS.length) {
+            corrupt();
+        }
+        return DIRECTIONS[code];
+    }
+
+    /** Report that my file is corrupt. */
+    void corrupt() {
+        error("compiled map %s is corrupt", _name);
+    }
+
+    /** Returns OFFSET as an int, reporting an error if it lies beyond the
+     *  end of my file. */
+    private int checkedOffset(long offset) {
+        if (offset < 0 || offset > _data.limit()) {
+            corrupt();
+        }
+        return (int) offset;
+    }
+
+    /** Returns the string at the current position of _data, advancing
+     *  past it. */
+    private String readString() {
+        int len = _data.getInt();
+        if (len < 0 || len > _data.remaining()) {
+            corrupt();
+        }
+        byte[] bytes = new byte[len];
+        _data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Write S to OUT as a byte count followed by its UTF-8 bytes. */
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Directions, indexed by ordinal. */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** Name of my file. */
+    private final String _name;
+    /** The contents of my file. */
+    private MappedByteBuffer _data;
+    /** Number of locations and of road segments. */
+    private int _locations, _segments;
+    /** Offsets in _data of the sections of my file. */
+    private long _xs, _ys, _starts, _targets, _roadNames, _lengths,
+        _directions;
+    /** Location names, indexed by location. */
+    private String[] _locationNameTable;
+    /** Road names, indexed by name number. */
+    private String[] _roadNameTable;
+
+}
@@ -0,0 +1,532 @@
+package trip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/** A parallel parser for text maps (see Trip.readMap).  The file is split
+ *  into line-aligned chunks, which are memory-mapped and parsed at the
+ *  same time into primitive arrays.  The entries are then checked in
+ *  file order, and the road endpoints resolved, also in parallel.  Only
+ *  then are they added to the map, locations first and roads second, in
+ *  file order, so that the resulting graph is the same as a sequential
+ *  reading would produce.
+ *
+ *  This loader handles only well-formed maps whose numbers have the
+ *  plain form [+-]ddd[.ddd][e[+-]ddd] and in which no entry spans a
+ *  chunk boundary (which it will not if each entry is on one line).
+ *  For any other file, including any file containing an error, read
+ *  returns null, and the caller should fall back to the sequential
+ *  reader, which reports the first error with its entry number.
+ *  @author Leslie Yang
+ */
+class MapLoader {
+
+    /** Returns the parsed contents of the text map named NAME, to be
+     *  added to a map whose existing locations are given by SITES, or
+     *  null if it must be read sequentially. */
+    static MapLoader read(String name, Map<String, Integer> sites)
+        throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        try (FileChannel channel =
+                 FileChannel.open(Paths.get(name), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size,
+                                        4 * pool.getParallelism());
+            ArrayList<Callable<Chunk>> parsers = new ArrayList<>();
+            for (int c = 0; c + 1 < bounds.length; c += 1) {
+                long start = bounds[c], end = bounds[c + 1];
+                parsers.add(() -> {
+                    Chunk chunk = new Chunk();
+                    ByteBuffer buf =
+                        channel.map(FileChannel.MapMode.READ_ONLY,
+                                    start, end - start);
+                    return chunk.parse(buf) ? chunk : null;
+                });
+            }
+            List<Chunk> chunks = results(pool.invokeAll(parsers));
+            if (chunks == null) {
+                return null;
+            }
+            MapLoader result = new MapLoader(chunks);
+            return result.resolve(sites, pool) ? result : null;
+        }
+    }
+
+    /** Returns the number of new locations. */
+    int locations() {
+        return _names.size();
+    }
+
+    /** Returns the name of new location I. */
+    String name(int i) {
+        return _names.get(i);
+    }
+
+    /** Returns the x coordinate of new location I. */
+    double x(int i) {
+        return _xs[i];
+    }
+
+    /** Returns the y coordinate of new location I. */
+    double y(int i) {
+        return _ys[i];
+    }
+
+    /** Returns the chunks of roads, in file order. */
+    List<Chunk> chunks() {
+        return _chunks;
+    }
+
+    /** The parsed contents of one chunk of a map file. */
+    static class Chunk {
+
+        /** Returns the number of roads in me. */
+        int roads() {
+            return _roadCount;
+        }
+
+        /** Returns the start of road R: a new location index if
+         *  non-negative, and otherwise the negated vertex of an existing
+         *  location. */
+        int from(int r) {
+            return _from[r];
+        }
+
+        /** Returns the end of road R, encoded as for from(R). */
+        int to(int r) {
+            return _to[r];
+        }
+
+        /** Returns the Road for road R, from its start to its end. */
+        Road forward(int r) {
+            return _forward[r];
+        }
+
+        /** Returns the Road for road R, from its end to its start. */
+        Road backward(int r) {
+            return _backward[r];
+        }
+
+        /** Parse the entries in BUF, returning false if they are not all
+         *  well-formed. */
+        boolean parse(ByteBuffer buf) {
+            _buf = buf;
+            _pos = 0;
+            HashMap<String, String> roadNames = new HashMap<>();
+            while (nextToken()) {
+                _entries += 1;
+                if (_end - _start != 1) {
+                    return false;
+                }
+                byte type = _buf.get(_start);
+                if (type == 'L') {
+                    String name = nextName();
+                    double x = nextNumber(), y = nextNumber();
+                    if (_bad) {
+                        return false;
+                    }
+                    addLocation(name, x, y);
+                } else if (type == 'R') {
+                    String from = nextName(), road = nextName();
+                    double length = nextNumber();
+                    String dir = nextName(), to = nextName();
+                    if (_bad || length < 0) {
+                        return false;
+                    }
+                    Direction d = direction(dir);
+                    if (d == null) {
+                        return false;
+                    }
+                    String shared = roadNames.putIfAbsent(road, road);
+                    addRoad(from, shared == null ? road : shared, length,
+                            d, to);
+                } else {
+                    return false;
+                }
+            }
+            _buf = null;
+            return true;
+        }
+
+        /** Advance to the next token, setting _start and _end to its
+         *  bounds.  Returns false if there is none. */
+        private boolean nextToken() {
+            int limit = _buf.limit();
+            while (_pos < limit && isSpace(_buf.get(_pos))) {
+                _pos += 1;
+            }
+            if (_pos >= limit) {
+                return false;
+            }
+            _start = _pos;
+            while (_pos < limit && !isSpace(_buf.get(_pos))) {
+                _pos += 1;
+            }
+            _end = _pos;
+            return true;
+        }
+
+        /** Returns the next token as a string, or null (setting _bad) if
+         *  there is none or it contains a non-ASCII whitespace
+         *  character. */
+        private String nextName() {
+            if (_bad || !nextToken()) {
+                _bad = true;
+                return null;
+            }
+            byte[] bytes = new byte[_end - _start];
+            _buf.get(_start, bytes);
+            boolean ascii;
+            ascii = true;
+            for (byte b : bytes) {
+                ascii &= b >= 0;
+            }
+            if (ascii) {
+                return new String(bytes, StandardCharsets.ISO_8859_1);
+            }
+            String result = new String(bytes, StandardCharsets.UTF_8);
+            for (int i = 0; i < result.length(); i += 1) {
+                if (Character.isWhitespace(result.charAt(i))) {
+                    _bad = true;
+                }
+            }
+            return result;
+        }
+
+        /** Returns the value of the next token, which must be a plain
+         *  decimal number, or sets _bad. */
+        private double nextNumber() {
+            if (_bad || !nextToken()) {
+                _bad = true;
+                return 0.0;
+            }
+            int i = _start;
+            if (i < _end && (_buf.get(i) == '+' || _buf.get(i) == '-')) {
+                i += 1;
+            }
+            int digits = skipDigits(i);
+            i += digits;
+            if (i < _end && _buf.get(i) == '.') {
+                int fraction = skipDigits(i + 1);
+                digits += fraction;
+                i += 1 + fraction;
+            }
+            if (digits == 0) {
+                _bad = true;
+                return 0.0;
+            }
+            if (i < _end && (_buf.get(i) == 'e' || _buf.get(i) == 'E')) {
+                i += 1;
+                if (i < _end
+                    && (_buf.get(i) == '+' || _buf.get(i) == '-')) {
+                    i += 1;
+                }
+                int exponent = skipDigits(i);
+                if (exponent == 0) {
+                    _bad = true;
+                    return 0.0;
+                }
+                i += exponent;
+            }
+            if (i != _end) {
+                _bad = true;
+                return 0.0;
+            }
+            byte[] bytes = new byte[_end - _start];
+            _buf.get(_start, bytes);
+            return Double.parseDouble(
+                new String(bytes, StandardCharsets.ISO_8859_1));
+        }
+
+        /** Returns the number of decimal digits in the current token
+         *  starting at position I. */
+        private int skipDigits(int i) {
+            int n;
+            n = 0;
+            while (i + n < _end && Character.isDigit(_buf.get(i + n))) {
+                n += 1;
+            }
+            return n;
+        }
+
+        /** Record location NAME at (X, Y), from my current entry. */
+        private void addLocation(String name, double x, double y) {
+            if (_locationCount == _xs.length) {
+                int n = 2 * _locationCount;
+                _xs = Arrays.copyOf(_xs, n);
+                _ys = Arrays.copyOf(_ys, n);
+                _locationEntries = Arrays.copyOf(_locationEntries, n);
+            }
+            _names.add(name);
+            _xs[_locationCount] = x;
+            _ys[_locationCount] = y;
+            _locationEntries[_locationCount] = _entries;
+            _locationCount += 1;
+        }
+
+        /** Record a road named NAME from location FROM to location TO of
+         *  given LENGTH and direction DIR, from my current entry. */
+        private void addRoad(String from, String name, double length,
+                             Direction dir, String to) {
+            if (_roadCount == _lengths.length) {
+                int n = 2 * _roadCount;
+                _lengths = Arrays.copyOf(_lengths, n);
+                _directions = Arrays.copyOf(_directions, n);
+                _roadEntries = Arrays.copyOf(_roadEntries, n);
+            }
+            _fromNames.add(from);
+            _toNames.add(to);
+            _roadNames.add(name);
+            _lengths[_roadCount] = length;
+            _directions[_roadCount] = (byte) dir.ordinal();
+            _roadEntries[_roadCount] = _entries;
+            _roadCount += 1;
+        }
+
+        /** Resolve the endpoints of my roads, given the new locations
+         *  LOCATIONS (mapped to their indices), the entry numbers of the
+         *  new locations ENTRIES, the number of entries preceding me
+         *  BASE, and the existing locations SITES.  Returns false if any
+         *  road refers to a location not defined before it. */
+        boolean resolve(Map<String, Integer> locations, int[] entries,
+                        int base, Map<String, Integer> sites) {
+            _from = new int[_roadCount];
+            _to = new int[_roadCount];
+            _forward = new Road[_roadCount];
+            _backward = new Road[_roadCount];
+            Direction[] directions = Direction.values();
+            for (int r = 0; r < _roadCount; r += 1) {
+                int entry = base + _roadEntries[r];
+                _from[r] = endpoint(_fromNames.get(r), entry, locations,
+                                    entries, sites);
+                _to[r] = endpoint(_toNames.get(r), entry, locations,
+                                  entries, sites);
+                if (_from[r] == Integer.MIN_VALUE
+                    || _to[r] == Integer.MIN_VALUE) {
+                    return false;
+                }
+                Direction dir = directions[_directions[r]];
+                _forward[r] = new Road(_roadNames.get(r), dir, _lengths[r]);
+                _backward[r] = new Road(_roadNames.get(r), dir.reverse(),
+                                        _lengths[r]);
+            }
+            _fromNames = _toNames = _roadNames = null;
+            return true;
+        }
+
+        /** Returns the encoding (see from) of the location NAME referred
+         *  to by entry ENTRY, given LOCATIONS, ENTRIES, and SITES as for
+         *  resolve, or Integer.MIN_VALUE if there is none defined before
+         *  ENTRY. */
+        private static int endpoint(String name, int entry,
+                                    Map<String, Integer> locations,
+                                    int[] entries,
+                                    Map<String, Integer> sites) {
+            Integer i = locations.get(name);
+            if (i != null) {
+                return entries[i] < entry ? i : Integer.MIN_VALUE;
+            }
+            Integer v = sites.get(name);
+            return v == null ? Integer.MIN_VALUE : -v;
+        }
+
+        /** Returns the Direction named NAME, or null if there is none. */
+        private static Direction direction(String name) {
+            for (Direction d : Direction.values()) {
+                if (d.name().equals(name)) {
+                    return d;
+                }
+            }
+            return null;
+        }
+
+        /** Returns true iff B is an ASCII whitespace character (as
+         *  defined by Character.isWhitespace). */
+        private static boolean isSpace(byte b) {
+            return b == ' ' || (b >= '\t' && b <= '\r')
+                || (b >= 0x1c && b <= 0x1f);
+        }
+
+        /** The text being parsed. */
+        private ByteBuffer _buf;
+        /** Position of the next character of _buf to parse. */
+        private int _pos;
+        /** Bounds of the current token. */
+        private int _start, _end;
+        /** True if the current entry is malformed. */
+        private boolean _bad;
+        /** Number of entries parsed. */
+        private int _entries;
+
+        /** Names of my locations. */
+        private ArrayList<String> _names = new ArrayList<>();
+        /** Coordinates of my locations. */
+        private double[] _xs = new double[16], _ys = new double[16];
+        /** Entry number (within me) of each location. */
+        private int[] _locationEntries = new int[16];
+        /** Number of my locations. */
+        private int _locationCount;
+
+        /** Endpoint and road names of my roads, until resolved. */
+        private ArrayList<String> _fromNames = new ArrayList<>(),
+            _toNames = new ArrayList<>(), _roadNames = new ArrayList<>();
+        /** Lengths of my roads. */
+        private double[] _lengths = new double[16];
+        /** Direction ordinals of my roads. */
+        private byte[] _directions = new byte[16];
+        /** Entry number (within me) of each road. */
+        private int[] _roadEntries = new int[16];
+        /** Number of my roads. */
+        private int _roadCount;
+        /** Resolved endpoints of my roads (see from). */
+        private int[] _from, _to;
+        /** Labels of my roads in each direction. */
+        private Road[] _forward, _backward;
+    }
+
+    /** Parsed contents of CHUNKS, in file order. */
+    private MapLoader(List<Chunk> chunks) {
+        _chunks = chunks;
+        int n;
+        n = 0;
+        for (Chunk chunk : chunks) {
+            n += chunk._locationCount;
+        }
+        _names = new ArrayList<>(n);
+        _xs = new double[n];
+        _ys = new double[n];
+        _entries = new int[n];
+    }
+
+    /** Check that my locations are distinct from each other and from
+     *  those in SITES, and resolve the endpoints of all roads on POOL.
+     *  Returns false if there is an error. */
+    private boolean resolve(Map<String, Integer> sites, ForkJoinPool pool)
+        throws IOException {
+        HashMap<String, Integer> locations = new HashMap<>();
+        int[] bases = new int[_chunks.size()];
+        int base, i;
+        base = i = 0;
+        for (int c = 0; c < _chunks.size(); c += 1) {
+            Chunk chunk = _chunks.get(c);
+            bases[c] = base;
+            for (int k = 0; k < chunk._locationCount; k += 1) {
+                String name = chunk._names.get(k);
+                if (sites.containsKey(name)
+                    || locations.putIfAbsent(name, i) != null) {
+                    return false;
+                }
+                _names.add(name);
+                _xs[i] = chunk._xs[k];
+                _ys[i] = chunk._ys[k];
+                _entries[i] = base + chunk._locationEntries[k];
+                i += 1;
+            }
+            chunk._names = null;
+            base += chunk._entries;
+        }
+        ArrayList<Callable<Chunk>> resolvers = new ArrayList<>();
+        for (int c = 0; c < _chunks.size(); c += 1) {
+            Chunk chunk = _chunks.get(c);
+            int chunkBase = bases[c];
+            resolvers.add(() -> chunk.resolve(locations, _entries, chunkBase,
+                                              sites) ? chunk : null);
+        }
+        return results(pool.invokeAll(resolvers)) != null;
+    }
+
+    /** Returns the results of TASKS, or null if any is null. */
+    private static List<Chunk> results(List<Future<Chunk>> tasks)
+        throws IOException {
+        ArrayList<Chunk> result = new ArrayList<>();
+        try {
+            for (Future<Chunk> task : tasks) {
+                Chunk chunk = task.get();
+                if (chunk == null) {
+                    return null;
+                }
+                result.add(chunk);
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof IOException) {
+                throw (IOException) excp.getCause();
+            }
+            throw new IllegalStateException(excp.getCause());
+        }
+        return result;
+    }
+
+    /** Returns the boundaries of about PARTS chunks of at least
+     *  MIN_CHUNK bytes each that divide the SIZE bytes of CHANNEL just
+     *  after newlines: chunk c is bytes [result[c] .. result[c + 1]).  No
+     *  chunk exceeds MAX_CHUNK bytes. */
+    private static long[] chunkBounds(FileChannel channel, long size,
+                                      int parts) throws IOException {
+        long step = Math.max(MIN_CHUNK, size / Math.max(1, parts));
+        step = Math.min(step, MAX_CHUNK / 2);
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer window = ByteBuffer.allocate(WINDOW);
+        long start;
+        start = 0;
+        while (size - start > step) {
+            long p = start + step;
+            long cut;
+            cut = -1;
+            while (cut < 0 && p < size && p - start < MAX_CHUNK) {
+                window.clear();
+                int n = channel.read(window, p);
+                for (int k = 0; k < n && cut < 0; k += 1) {
+                    if (window.get(k) == '\n') {
+                        cut = p + k + 1;
+                    }
+                }
+                p += Math.max(n, 0);
+            }
+            if (cut < 0 || cut >= size) {
+                break;
+            }
+            bounds.add(cut);
+            start = cut;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int c = 0; c < result.length; c += 1) {
+            result[c] = bounds.get(c);
+        }
+        return result;
+    }
+
+    /** Minimum size of a chunk. */
+    private static final long MIN_CHUNK = 1 << 20;
+    /** Maximum size of a chunk (the limit on a single mapping). */
+    private static final long MAX_CHUNK = Integer.MAX_VALUE;
+    /** Size of the buffer used to look for line ends. */
+    private static final int WINDOW = 1 << 16;
+
+    /** The parsed chunks. */
+    private final List<Chunk> _chunks;
+    /** Names of the new locations. */
+    private final ArrayList<String> _names;
+    /** Coordinates of the new locations. */
+    private final double[] _xs, _ys;
+    /** Entry number in the file of each new location. */
+    private final int[] _entries;
+
+}
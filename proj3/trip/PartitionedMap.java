@@ -0,0 +1,1022 @@
+package trip;
+
+import graph.IntIteration;
+import graph.LabeledGraph;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static trip.Main.error;
+
+/** A road map kept on disk, partitioned into cells of nearby locations,
+ *  for maps too large to hold in memory as a whole.  Only an overlay of
+ *  the map is held in memory: its boundary locations (those with a road
+ *  segment to or from another cell), the segments between cells, and, for
+ *  each cell, the clique distances (the shortest distances within the
+ *  cell between each pair of its boundary locations).  The roads of a
+ *  cell are read from the file when first needed and kept in a cache of
+ *  a bounded number of cells.
+ *
+ *  A route from S to T is found by an A* search of the graph consisting
+ *  of all the road segments of the cells of S and T, together with the
+ *  overlay, in which each cell's clique distances serve as shortcut
+ *  edges between its boundary locations.  Every route leaves a cell (if
+ *  at all) through boundary locations, so this finds shortest routes.
+ *  Finally, each shortcut on the route is expanded into its road segments
+ *  by a search within its cell.
+ *
+ *  Cells are formed by recursive coordinate bisection: the locations are
+ *  split at the median of whichever coordinate has the greater extent,
+ *  and the halves are split in turn until no part has more than the
+ *  requested number of locations.  Locations are numbered from 0 in
+ *  cell order, so that each cell is a range of location numbers.
+ *
+ *  All values in the file are big-endian.  It contains, in order,
+ *      MAGIC, VERSION,
+ *      the cells (see Cell), in order,
+ *      the location names, as strings, in lexicographic order,
+ *      the index, starting with
+ *          n, c, k, b, and e, the numbers of locations, cells, road
+ *              names, boundary locations, and segments between cells,
+ *          c + 1 longs: the offset of each cell (the last being the
+ *              offset of the location names),
+ *          c + 1 ints: the first location of each cell (the last being
+ *              n),
+ *          c + 1 ints: the index of the first boundary location of each
+ *              cell in the list that follows (the last being b),
+ *          b ints: the boundary locations, in increasing order,
+ *          b doubles each: their x and then their y coordinates,
+ *          for each cell, its clique distances, as a row-major matrix of
+ *              doubles indexed by its boundary locations (infinite if
+ *              there is no path),
+ *          b + 1 ints: the start of each boundary location's segments to
+ *              other cells in the lists that follow,
+ *          e ints: the index of the boundary location at the end of each
+ *              such segment,
+ *          e doubles: the length of each such segment,
+ *          k strings: the road names,
+ *          n longs: the offsets of the location names (in lexicographic
+ *              order),
+ *          n ints: the numbers of the corresponding locations,
+ *      and a long giving the offset of the index.
+ *  Strings are written as an int byte count followed by UTF-8 bytes.
+ *  @author Leslie Yang
+ */
+class PartitionedMap {
+
+    /** Magic number identifying partitioned maps ("TRPP"). */
+    static final int MAGIC = 0x54525050;
+    /** Format version. */
+    static final int VERSION = 1;
+    /** Default greatest number of locations per cell. */
+    static final int DEFAULT_CELL_SIZE = 1024;
+    /** Default greatest number of cells held in memory at once. */
+    static final int DEFAULT_CACHED_CELLS = 64;
+
+    /** Returns true iff the file named NAME exists and starts with
+     *  MAGIC. */
+    static boolean isPartitioned(String name) {
+        try (InputStream inp = Files.newInputStream(Paths.get(name))) {
+            byte[] head = inp.readNBytes(4);
+            return head.length == 4
+                && ByteBuffer.wrap(head).getInt() == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Write MAP, whose vertices are 1 .. MAP.vertexSize(), to the file
+     *  named NAME in partitioned form, with at most CELLSIZE locations in
+     *  each cell. */
+    static void write(String name, LabeledGraph<Location, Road> map,
+                      int cellSize) {
+        int n = map.vertexSize();
+        if (cellSize < 1) {
+            error("cells must hold at least one location");
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i + 1;
+        }
+        ArrayList<Integer> bounds = new ArrayList<>();
+        bisect(map, order, 0, n, cellSize, bounds);
+        bounds.add(n);
+        int c = bounds.size() - 1;
+        int[] cellStart = new int[c + 1];
+        for (int i = 0; i <= c; i += 1) {
+            cellStart[i] = bounds.get(i);
+        }
+        int[] number = new int[n + 1], cellOf = new int[n];
+        for (int i = 0; i < c; i += 1) {
+            for (int g = cellStart[i]; g < cellStart[i + 1]; g += 1) {
+                number[order[g]] = g;
+                cellOf[g] = i;
+            }
+        }
+
+        HashMap<String, Integer> roadIndex = new HashMap<>();
+        ArrayList<String> roadNames = new ArrayList<>();
+        Cell[] cells = new Cell[c];
+        boolean[] boundary = new boolean[n];
+        for (int i = 0; i < c; i += 1) {
+            cells[i] = new Cell(map, order, number, cellStart[i],
+                                cellStart[i + 1], roadIndex, roadNames);
+            Cell cell = cells[i];
+            for (int l = 0; l < cell.size(); l += 1) {
+                for (int s = cell.start(l); s < cell.start(l + 1); s += 1) {
+                    int g = cell.target(s);
+                    if (cellOf[g] != i) {
+                        boundary[cell.first() + l] = true;
+                        boundary[g] = true;
+                    }
+                }
+            }
+        }
+        int[] boundaryStart = new int[c + 1];
+        ArrayList<Integer> boundaries = new ArrayList<>();
+        for (int g = 0; g < n; g += 1) {
+            if (boundary[g]) {
+                boundaries.add(g);
+            }
+            boundaryStart[cellOf[g] + 1] = boundaries.size();
+        }
+        int b = boundaries.size();
+        int[] boundaryIndex = new int[n];
+        Arrays.fill(boundaryIndex, -1);
+        for (int j = 0; j < b; j += 1) {
+            boundaryIndex[boundaries.get(j)] = j;
+        }
+
+        Integer[] byName = new Integer[n];
+        for (int g = 0; g < n; g += 1) {
+            byName[g] = g;
+        }
+        Arrays.sort(byName, (g0, g1) -> map.getLabel(order[g0]).toString()
+                    .compareTo(map.getLabel(order[g1]).toString()));
+
+        try (Counter counter = new Counter(
+                 new BufferedOutputStream(new FileOutputStream(name)));
+             DataOutputStream out = new DataOutputStream(counter)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long[] cellOffset = new long[c + 1];
+            for (int i = 0; i < c; i += 1) {
+                cellOffset[i] = counter.count();
+                cells[i].write(out);
+            }
+            cellOffset[c] = counter.count();
+            long[] nameOffset = new long[n];
+            for (int k = 0; k < n; k += 1) {
+                nameOffset[k] = counter.count();
+                writeString(out,
+                            map.getLabel(order[byName[k]]).toString());
+            }
+            long index = counter.count();
+            int e;
+            e = 0;
+            for (int g : boundaries) {
+                Cell cell = cells[cellOf[g]];
+                int l = g - cell.first();
+                for (int s = cell.start(l); s < cell.start(l + 1); s += 1) {
+                    if (cellOf[cell.target(s)] != cellOf[g]) {
+                        e += 1;
+                    }
+                }
+            }
+            for (int v : new int[] { n, c, roadNames.size(), b, e }) {
+                out.writeInt(v);
+            }
+            for (long offset : cellOffset) {
+                out.writeLong(offset);
+            }
+            for (int g : cellStart) {
+                out.writeInt(g);
+            }
+            for (int j : boundaryStart) {
+                out.writeInt(j);
+            }
+            for (int g : boundaries) {
+                out.writeInt(g);
+            }
+            for (int g : boundaries) {
+                out.writeDouble(map.getLabel(order[g]).x());
+            }
+            for (int g : boundaries) {
+                out.writeDouble(map.getLabel(order[g]).y());
+            }
+            for (int i = 0; i < c; i += 1) {
+                Cell cell = cells[i];
+                double[] dist = new double[cell.size()];
+                int[] pred = new int[cell.size()];
+                for (int j = boundaryStart[i]; j < boundaryStart[i + 1];
+                     j += 1) {
+                    cell.search(boundaries.get(j) - cell.first(), -1,
+                                dist, pred);
+                    for (int j1 = boundaryStart[i];
+                         j1 < boundaryStart[i + 1]; j1 += 1) {
+                        out.writeDouble(
+                            dist[boundaries.get(j1) - cell.first()]);
+                    }
+                }
+            }
+            ArrayList<Integer> cutTargets = new ArrayList<>();
+            ArrayList<Double> cutLengths = new ArrayList<>();
+            for (int g : boundaries) {
+                out.writeInt(cutTargets.size());
+                Cell cell = cells[cellOf[g]];
+                int l = g - cell.first();
+                for (int s = cell.start(l); s < cell.start(l + 1); s += 1) {
+                    if (cellOf[cell.target(s)] != cellOf[g]) {
+                        cutTargets.add(boundaryIndex[cell.target(s)]);
+                        cutLengths.add(cell.length(s));
+                    }
+                }
+            }
+            out.writeInt(cutTargets.size());
+            for (int j : cutTargets) {
+                out.writeInt(j);
+            }
+            for (double len : cutLengths) {
+                out.writeDouble(len);
+            }
+            for (String road : roadNames) {
+                writeString(out, road);
+            }
+            for (long offset : nameOffset) {
+                out.writeLong(offset);
+            }
+            for (int g : byName) {
+                out.writeInt(g);
+            }
+            out.writeLong(index);
+        } catch (IOException excp) {
+            error("cannot write %s: %s", name, excp.getMessage());
+        }
+    }
+
+    /** The partitioned map in the file named NAME, keeping at most
+     *  CACHEDCELLS cells in memory at once. */
+    PartitionedMap(String name, int cachedCells) {
+        _name = name;
+        _cells = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Cell> e) {
+                return size() > Math.max(2, cachedCells);
+            }
+        };
+        try {
+            _channel = FileChannel.open(Paths.get(name),
+                                        StandardOpenOption.READ);
+        } catch (IOException excp) {
+            error("cannot read %s", name);
+        }
+        try {
+            long size = _channel.size();
+            ByteBuffer head = read(0, 8);
+            if (head.getInt() != MAGIC) {
+                error("%s is not a partitioned map", name);
+            } else if (head.getInt() != VERSION) {
+                error("%s: unsupported partitioned map version", name);
+            }
+            long index = read(size - 8, 8).getLong();
+            ByteBuffer data = read(index, 20);
+            _locations = data.getInt();
+            int c = data.getInt(), k = data.getInt(), b = data.getInt(),
+                e = data.getInt();
+            if (_locations < 0 || c < 0 || k < 0 || b < 0 || e < 0) {
+                corrupt();
+            }
+            _nameTable = size - 8 - 12L * _locations;
+            if (_nameTable < index + 20) {
+                corrupt();
+            }
+            data = read(index + 20, (int) (_nameTable - index - 20));
+            _cellOffset = new long[c + 1];
+            for (int i = 0; i <= c; i += 1) {
+                _cellOffset[i] = data.getLong();
+            }
+            _cellStart = readInts(data, c + 1);
+            _boundaryStart = readInts(data, c + 1);
+            _boundary = readInts(data, b);
+            _boundaryX = readDoubles(data, b);
+            _boundaryY = readDoubles(data, b);
+            _cliqueStart = new int[c + 1];
+            for (int i = 0; i < c; i += 1) {
+                int nb = _boundaryStart[i + 1] - _boundaryStart[i];
+                _cliqueStart[i + 1] = _cliqueStart[i] + nb * nb;
+            }
+            _clique = readDoubles(data, _cliqueStart[c]);
+            _cutStart = readInts(data, b + 1);
+            _cutTarget = readInts(data, e);
+            _cutLength = readDoubles(data, e);
+            _roadNames = new String[k];
+            for (int i = 0; i < k; i += 1) {
+                _roadNames[i] = readString(data);
+            }
+            check(_cellStart[0] == 0 && _cellStart[c] == _locations
+                  && _boundaryStart[c] == b && _cutStart[b] == e);
+            for (int i = 0; i < c; i += 1) {
+                check(_cellStart[i] < _cellStart[i + 1]
+                      && _boundaryStart[i] <= _boundaryStart[i + 1]
+                      && _cellOffset[i] < _cellOffset[i + 1]);
+            }
+            for (int j : _cutTarget) {
+                check(j >= 0 && j < b);
+            }
+        } catch (IOException | IndexOutOfBoundsException
+                 | BufferUnderflowException | NegativeArraySizeException
+                 excp) {
+            corrupt();
+        }
+    }
+
+    /** Returns the number of locations. */
+    int locations() {
+        return _locations;
+    }
+
+    /** Returns the number of cells. */
+    int cells() {
+        return _cellStart.length - 1;
+    }
+
+    /** Returns the number of boundary locations. */
+    int boundarySize() {
+        return _boundary.length;
+    }
+
+    /** Returns the number of cells now held in memory. */
+    synchronized int cachedCells() {
+        return _cells.size();
+    }
+
+    /** Returns the number of the location named NAME, or -1 if there is
+     *  none.  The names are searched on disk. */
+    int vertex(String name) {
+        int lo, hi;
+        lo = 0;
+        hi = _locations - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            ByteBuffer entry = read(_nameTable + 8L * mid, 8);
+            int cmp = readString(entry.getLong()).compareTo(name);
+            if (cmp == 0) {
+                int g = read(_nameTable + 8L * _locations + 4L * mid, 4)
+                    .getInt();
+                if (g < 0 || g >= _locations) {
+                    corrupt();
+                }
+                return g;
+            } else if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the location numbered V. */
+    Location location(int v) {
+        Cell cell = cell(cellOf(v));
+        int l = v - cell.first();
+        return new Location(cell.name(l), cell.x(l), cell.y(l));
+    }
+
+    /** Returns the road segment from location U to location V, or null
+     *  if there is none. */
+    Road road(int u, int v) {
+        Cell cell = cell(cellOf(u));
+        int l = u - cell.first();
+        for (int s = cell.start(l); s < cell.start(l + 1); s += 1) {
+            if (cell.target(s) == v) {
+                return new Road(_roadNames[cell.road(s)], cell.direction(s),
+                                cell.length(s));
+            }
+        }
+        return null;
+    }
+
+    /** Returns a shortest path from location SOURCE to location DEST, as
+     *  a list of locations starting with SOURCE and ending with DEST, or
+     *  an empty list if there is none.  May be called by several threads
+     *  at once. */
+    List<Integer> path(int source, int dest) {
+        int sourceCell = cellOf(source), destCell = cellOf(dest);
+        Cell[] open = { cell(sourceCell), cell(destCell) };
+        Location goal = location(dest);
+        HashMap<Integer, Double> dist = new HashMap<>();
+        HashMap<Integer, Integer> pred = new HashMap<>();
+        PriorityQueue<double[]> fringe =
+            new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        dist.put(source, 0.0);
+        fringe.add(new double[] { 0.0, source, 0.0 });
+        while (!fringe.isEmpty()) {
+            double[] entry = fringe.poll();
+            int v = (int) entry[1];
+            double d = entry[2];
+            if (d > dist.get(v)) {
+                continue;
+            }
+            if (v == dest) {
+                break;
+            }
+            int c = cellOf(v);
+            if (c == sourceCell || c == destCell) {
+                Cell cell = open[c == sourceCell ? 0 : 1];
+                int l = v - cell.first();
+                for (int s = cell.start(l); s < cell.start(l + 1); s += 1) {
+                    relax(v, cell.target(s), d + cell.length(s), goal,
+                          dist, pred, fringe);
+                }
+                continue;
+            }
+            int j = Arrays.binarySearch(_boundary, v);
+            int j0 = _boundaryStart[c], nb = _boundaryStart[c + 1] - j0;
+            int row = _cliqueStart[c] + (j - j0) * nb;
+            for (int j1 = 0; j1 < nb; j1 += 1) {
+                if (j1 != j - j0 && _clique[row + j1] != INF) {
+                    relax(v, _boundary[j0 + j1], d + _clique[row + j1], goal,
+                          dist, pred, fringe);
+                }
+            }
+            for (int s = _cutStart[j]; s < _cutStart[j + 1]; s += 1) {
+                relax(v, _boundary[_cutTarget[s]], d + _cutLength[s], goal,
+                      dist, pred, fringe);
+            }
+        }
+        ArrayList<Integer> result = new ArrayList<>();
+        if (!dist.containsKey(dest)) {
+            return result;
+        }
+        for (int v = dest; v != source; v = pred.get(v)) {
+            int u = pred.get(v), c = cellOf(u);
+            if (c == cellOf(v) && c != sourceCell && c != destCell) {
+                expand(u, v, result);
+            } else {
+                result.add(v);
+            }
+        }
+        result.add(source);
+        Collections.reverse(result);
+        return result;
+    }
+
+    /** Record a path of length D to W through V in DIST and PRED, and
+     *  queue W on FRINGE, if it is shorter than any known path to W,
+     *  using distances to GOAL as estimates of the remaining distance. */
+    private void relax(int v, int w, double d, Location goal,
+                       HashMap<Integer, Double> dist,
+                       HashMap<Integer, Integer> pred,
+                       PriorityQueue<double[]> fringe) {
+        Double old = dist.get(w);
+        if (old == null || d < old) {
+            dist.put(w, d);
+            pred.put(w, v);
+            fringe.add(new double[] { d + estimate(w, goal), w, d });
+        }
+    }
+
+    /** Returns the straight-line distance from location V, which is
+     *  either in a cached cell or a boundary location, to GOAL. */
+    private double estimate(int v, Location goal) {
+        int j = Arrays.binarySearch(_boundary, v);
+        if (j >= 0) {
+            double dx = _boundaryX[j] - goal.x(),
+                dy = _boundaryY[j] - goal.y();
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+        return location(v).dist(goal);
+    }
+
+    /** Add to RESULT, in reverse order, the locations after U along a
+     *  shortest path from U to V within their cell, ending with V. */
+    private void expand(int u, int v, List<Integer> result) {
+        Cell cell = cell(cellOf(u));
+        double[] dist = new double[cell.size()];
+        int[] pred = new int[cell.size()];
+        int first = cell.first();
+        cell.search(u - first, v - first, dist, pred);
+        for (int l = v - first; l != u - first; l = pred[l]) {
+            result.add(first + l);
+        }
+    }
+
+    /** Returns the cell containing location V. */
+    private int cellOf(int v) {
+        if (v < 0 || v >= _locations) {
+            corrupt();
+        }
+        int i = Arrays.binarySearch(_cellStart, v);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /** Returns cell I, reading it from the file if it is not cached. */
+    private synchronized Cell cell(int i) {
+        Cell result = _cells.get(i);
+        if (result == null) {
+            long size = _cellOffset[i + 1] - _cellOffset[i];
+            if (size > Integer.MAX_VALUE) {
+                corrupt();
+            }
+            try {
+                result = Cell.read(read(_cellOffset[i], (int) size),
+                                   _cellStart[i], _cellStart[i + 1],
+                                   _roadNames.length);
+            } catch (IndexOutOfBoundsException | BufferUnderflowException
+                     | NegativeArraySizeException excp) {
+                corrupt();
+            }
+            if (result == null) {
+                corrupt();
+            }
+            _cells.put(i, result);
+        }
+        return result;
+    }
+
+    /** Returns a buffer containing the SIZE bytes of my file starting at
+     *  OFFSET. */
+    private ByteBuffer read(long offset, int size) {
+        if (offset < 0 || size < 0) {
+            corrupt();
+        }
+        ByteBuffer result = ByteBuffer.allocate(size);
+        try {
+            while (result.hasRemaining()) {
+                if (_channel.read(result, offset + result.position()) < 0) {
+                    corrupt();
+                }
+            }
+        } catch (IOException excp) {
+            error("cannot read %s", _name);
+        }
+        result.flip();
+        return result;
+    }
+
+    /** Returns the string at OFFSET in my file. */
+    private String readString(long offset) {
+        int len = read(offset, 4).getInt();
+        if (len < 0) {
+            corrupt();
+        }
+        return new String(read(offset + 4, len).array(),
+                          StandardCharsets.UTF_8);
+    }
+
+    /** Report that my file is corrupt. */
+    private void corrupt() {
+        error("partitioned map %s is corrupt", _name);
+    }
+
+    /** Report that my file is corrupt unless COND. */
+    private void check(boolean cond) {
+        if (!cond) {
+            corrupt();
+        }
+    }
+
+    /** Returns the next N ints of DATA. */
+    private static int[] readInts(ByteBuffer data, int n) {
+        int[] result = new int[n];
+        data.asIntBuffer().get(result);
+        data.position(data.position() + 4 * n);
+        return result;
+    }
+
+    /** Returns the next N doubles of DATA. */
+    private static double[] readDoubles(ByteBuffer data, int n) {
+        double[] result = new double[n];
+        data.asDoubleBuffer().get(result);
+        data.position(data.position() + 8 * n);
+        return result;
+    }
+
+    /** Returns the string at the current position of DATA, advancing past
+     *  it. */
+    private static String readString(ByteBuffer data) {
+        int len = data.getInt();
+        byte[] bytes = new byte[len];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Write S to OUT as a byte count followed by its UTF-8 bytes. */
+    private static void writeString(DataOutputStream out, String s)
+        throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Rearrange ORDER[LO .. HI-1], vertices of MAP, into cells of at
+     *  most CELLSIZE vertices by recursive coordinate bisection, adding
+     *  the start of each cell to BOUNDS. */
+    private static void bisect(LabeledGraph<Location, Road> map, int[] order,
+                               int lo, int hi, int cellSize,
+                               List<Integer> bounds) {
+        while (hi - lo > cellSize) {
+            double minX, maxX, minY, maxY;
+            minX = minY = Double.POSITIVE_INFINITY;
+            maxX = maxY = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i += 1) {
+                Location p = map.getLabel(order[i]);
+                minX = Math.min(minX, p.x());
+                maxX = Math.max(maxX, p.x());
+                minY = Math.min(minY, p.y());
+                maxY = Math.max(maxY, p.y());
+            }
+            boolean byX = maxX - minX >= maxY - minY;
+            double[] key = new double[hi - lo];
+            int mid = (lo + hi) >>> 1;
+            select(map, order, lo, hi, mid, byX, key);
+            bisect(map, order, lo, mid, cellSize, bounds);
+            lo = mid;
+        }
+        if (hi > lo) {
+            bounds.add(lo);
+        }
+    }
+
+    /** Rearrange ORDER[LO .. HI-1], vertices of MAP, so that ORDER[K] is
+     *  the vertex that would be there if they were sorted by their x
+     *  coordinates (if BYX) or y coordinates, with smaller coordinates
+     *  before it and larger after it.  KEY is scratch space for at least
+     *  HI - LO coordinates. */
+    private static void select(LabeledGraph<Location, Road> map,
+                               int[] order, int lo, int hi, int k,
+                               boolean byX, double[] key) {
+        for (int i = lo; i < hi; i += 1) {
+            Location p = map.getLabel(order[i]);
+            key[i - lo] = byX ? p.x() : p.y();
+        }
+        int left, right;
+        left = lo;
+        right = hi - 1;
+        while (left < right) {
+            double pivot = key[(left + right) / 2 - lo];
+            int i, j;
+            i = left;
+            j = right;
+            while (i <= j) {
+                while (key[i - lo] < pivot) {
+                    i += 1;
+                }
+                while (key[j - lo] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    double t = key[i - lo];
+                    key[i - lo] = key[j - lo];
+                    key[j - lo] = t;
+                    int v = order[i];
+                    order[i] = order[j];
+                    order[j] = v;
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /** The road segments leaving the locations of one cell, which are
+     *  locations first .. first + size - 1.  In the file, a cell is
+     *      s, the number of its road segments,
+     *      size doubles each: the x and then the y coordinates of its
+     *          locations,
+     *      size + 1 ints: the start of each location's segments in the
+     *          lists that follow,
+     *      s ints: the location at the end of each segment,
+     *      s ints: the road name (index into the road names) of each,
+     *      s doubles: the length of each,
+     *      s bytes: the Direction (ordinal) of each,
+     *      size strings: the location names. */
+    private static class Cell {
+
+        /** The cell containing ORDER[FIRST .. LAST-1], vertices of MAP,
+         *  where NUMBER gives the location number of each vertex, adding
+         *  any new road names to NAMES and their indices to INDEX. */
+        Cell(LabeledGraph<Location, Road> map, int[] order, int[] number,
+             int first, int last, HashMap<String, Integer> index,
+             List<String> names) {
+            int size = last - first;
+            _first = first;
+            _x = new double[size];
+            _y = new double[size];
+            _names = new String[size];
+            _start = new int[size + 1];
+            for (int l = 0; l < size; l += 1) {
+                Location p = map.getLabel(order[first + l]);
+                _x[l] = p.x();
+                _y[l] = p.y();
+                _names[l] = p.toString();
+                _start[l + 1] = _start[l] + map.outDegree(order[first + l]);
+            }
+            int s = _start[size];
+            _target = new int[s];
+            _road = new int[s];
+            _length = new double[s];
+            _direction = new Direction[s];
+            for (int l = 0; l < size; l += 1) {
+                int k;
+                k = _start[l];
+                int v = order[first + l];
+                for (IntIteration succs = map.intSuccessors(v);
+                     succs.hasNext();) {
+                    int w = succs.nextInt();
+                    Road road = map.getLabel(v, w);
+                    String name = road.toString();
+                    if (!index.containsKey(name)) {
+                        index.put(name, names.size());
+                        names.add(name);
+                    }
+                    _target[k] = number[w];
+                    _road[k] = index.get(name);
+                    _length[k] = road.length();
+                    _direction[k] = road.direction();
+                    k += 1;
+                }
+            }
+        }
+
+        /** A cell of locations FIRST .. FIRST + X.length - 1, at (X[l],
+         *  Y[l]), named NAMES[l], whose segments are described by START,
+         *  TARGET, ROAD, LENGTH, and DIRECTION. */
+        private Cell(int first, double[] x, double[] y, String[] names,
+                     int[] start, int[] target, int[] road, double[] length,
+                     Direction[] direction) {
+            _first = first;
+            _x = x;
+            _y = y;
+            _names = names;
+            _start = start;
+            _target = target;
+            _road = road;
+            _length = length;
+            _direction = direction;
+        }
+
+        /** Returns the cell of locations FIRST .. LAST-1 in DATA, whose
+         *  segments are on roads with indices less than ROADS, or null if
+         *  it is malformed. */
+        static Cell read(ByteBuffer data, int first, int last, int roads) {
+            int size = last - first;
+            int s = data.getInt();
+            double[] x = readDoubles(data, size), y = readDoubles(data, size);
+            int[] start = readInts(data, size + 1),
+                target = readInts(data, s),
+                road = readInts(data, s);
+            double[] length = readDoubles(data, s);
+            Direction[] direction = new Direction[s];
+            for (int k = 0; k < s; k += 1) {
+                int code = data.get();
+                if (code < 0 || code >= DIRECTIONS.length) {
+                    return null;
+                }
+                direction[k] = DIRECTIONS[code];
+            }
+            String[] names = new String[size];
+            for (int l = 0; l < size; l += 1) {
+                names[l] = readString(data);
+            }
+            if (start[0] != 0 || start[size] != s) {
+                return null;
+            }
+            for (int l = 0; l < size; l += 1) {
+                if (start[l] > start[l + 1]) {
+                    return null;
+                }
+            }
+            for (int k = 0; k < s; k += 1) {
+                if (target[k] < 0 || road[k] < 0 || road[k] >= roads) {
+                    return null;
+                }
+            }
+            return new Cell(first, x, y, names, start, target, road, length,
+                            direction);
+        }
+
+        /** Write me to OUT. */
+        void write(DataOutputStream out) throws IOException {
+            int size = size();
+            out.writeInt(_target.length);
+            for (double x : _x) {
+                out.writeDouble(x);
+            }
+            for (double y : _y) {
+                out.writeDouble(y);
+            }
+            for (int s : _start) {
+                out.writeInt(s);
+            }
+            for (int g : _target) {
+                out.writeInt(g);
+            }
+            for (int r : _road) {
+                out.writeInt(r);
+            }
+            for (double len : _length) {
+                out.writeDouble(len);
+            }
+            for (Direction dir : _direction) {
+                out.writeByte(dir.ordinal());
+            }
+            for (String name : _names) {
+                writeString(out, name);
+            }
+        }
+
+        /** Returns the number of my first location. */
+        int first() {
+            return _first;
+        }
+
+        /** Returns my number of locations. */
+        int size() {
+            return _x.length;
+        }
+
+        /** Returns the name of my Lth location. */
+        String name(int l) {
+            return _names[l];
+        }
+
+        /** Returns the x coordinate of my Lth location. */
+        double x(int l) {
+            return _x[l];
+        }
+
+        /** Returns the y coordinate of my Lth location. */
+        double y(int l) {
+            return _y[l];
+        }
+
+        /** Returns the index of the first segment leaving my Lth
+         *  location.  Its segments are start(L) .. start(L + 1) - 1. */
+        int start(int l) {
+            return _start[l];
+        }
+
+        /** Returns the location at the end of segment S. */
+        int target(int s) {
+            return _target[s];
+        }
+
+        /** Returns the road name index of segment S. */
+        int road(int s) {
+            return _road[s];
+        }
+
+        /** Returns the length of segment S. */
+        double length(int s) {
+            return _length[s];
+        }
+
+        /** Returns the direction of segment S. */
+        Direction direction(int s) {
+            return _direction[s];
+        }
+
+        /** Find shortest paths from my location FROM to the others using
+         *  only my own segments, stopping once location TO (if not -1) is
+         *  reached.  Sets DIST[l] to the distance to my location l
+         *  (infinite if it cannot be reached) and PRED[l] to its
+         *  predecessor along the path. */
+        void search(int from, int to, double[] dist, int[] pred) {
+            Arrays.fill(dist, INF);
+            PriorityQueue<double[]> fringe =
+                new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+            dist[from] = 0.0;
+            pred[from] = -1;
+            fringe.add(new double[] { 0.0, from });
+            while (!fringe.isEmpty()) {
+                double[] entry = fringe.poll();
+                int l = (int) entry[1];
+                if (entry[0] > dist[l]) {
+                    continue;
+                }
+                if (l == to) {
+                    break;
+                }
+                for (int s = _start[l]; s < _start[l + 1]; s += 1) {
+                    int l1 = _target[s] - _first;
+                    if (l1 >= 0 && l1 < _x.length
+                        && entry[0] + _length[s] < dist[l1]) {
+                        dist[l1] = entry[0] + _length[s];
+                        pred[l1] = l;
+                        fringe.add(new double[] { dist[l1], l1 });
+                    }
+                }
+            }
+        }
+
+        /** Number of my first location. */
+        private final int _first;
+        /** Coordinates of my locations. */
+        private final double[] _x, _y;
+        /** Names of my locations. */
+        private final String[] _names;
+        /** Start of each location's segments. */
+        private final int[] _start;
+        /** Location at the end of each segment, and its road name
+         *  index. */
+        private final int[] _target, _road;
+        /** Length of each segment. */
+        private final double[] _length;
+        /** Direction of each segment. */
+        private final Direction[] _direction;
+    }
+
+    /** An output stream that counts the bytes written through it. */
+    private static class Counter extends FilterOutputStream {
+        /** A stream writing to OUT. */
+        Counter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            _count += 1;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            _count += len;
+        }
+
+        /** Returns the number of bytes written so far. */
+        long count() {
+            return _count;
+        }
+
+        /** Number of bytes written. */
+        private long _count;
+    }
+
+    /** Infinite distance. */
+    private static final double INF = Double.POSITIVE_INFINITY;
+    /** Directions, indexed by ordinal. */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /** Name of my file. */
+    private final String _name;
+    /** My file. */
+    private FileChannel _channel;
+    /** Cached cells, least recently used first. */
+    private final LinkedHashMap<Integer, Cell> _cells;
+    /** Number of locations. */
+    private int _locations;
+    /** Offset in my file of the offsets of the location names. */
+    private long _nameTable;
+    /** Offset of each cell in my file. */
+    private long[] _cellOffset;
+    /** First location of each cell, and first boundary location (index
+     *  into _boundary) of each cell. */
+    private int[] _cellStart, _boundaryStart;
+    /** Boundary locations, in increasing order. */
+    private int[] _boundary;
+    /** Coordinates of the boundary locations. */
+    private double[] _boundaryX, _boundaryY;
+    /** Start of each cell's clique distances in _clique. */
+    private int[] _cliqueStart;
+    /** Clique distances of all cells. */
+    private double[] _clique;
+    /** Start of each boundary location's segments to other cells, and
+     *  the boundary location (index into _boundary) at the end of each
+     *  such segment. */
+    private int[] _cutStart, _cutTarget;
+    /** Length of each segment between cells. */
+    private double[] _cutLength;
+    /** Road names. */
+    private String[] _roadNames;
+
+}
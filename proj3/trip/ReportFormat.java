@@ -0,0 +1,24 @@
+package trip;
+
+import static trip.Main.error;
+
+/** The forms in which trip reports may be written (see RouteWriter).
+ *  @author Leslie Yang
+ */
+enum ReportFormat {
+    /** Formats: TEXT (numbered English directions), JSON (one JSON object
+     *  per road segment, on a line of its own), and CSV (a header line
+     *  and then one line of comma-separated values per road segment). */
+    TEXT, JSON, CSV;
+
+    /** Returns the format named NAME, ignoring case. */
+    static ReportFormat parse(String name) {
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException excp) {
+            error("unknown report format: %s", name);
+            return null;
+        }
+    }
+
+}
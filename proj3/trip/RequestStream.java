@@ -0,0 +1,140 @@
+package trip;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Answers a stream of trip requests, one per line, against a map that
+ *  has already been read.  Each request lists the locations along a trip,
+ *  separated by whitespace or commas, except within locations given as
+ *  @X,Y (see Trip.snap); blank lines are ignored.  Requests are planned
+ *  concurrently by a fixed pool of worker threads, but their reports are
+ *  written in the order of the requests, separated by blank lines.  At
+ *  most a bounded number of requests are in progress at once, so that
+ *  memory use does not grow with the length of the stream.
+ *  @author Leslie Yang
+ */
+class RequestStream {
+
+    /** Matches one location within a request: either @X,Y (see
+     *  Trip.snap) or a name. */
+    static final Pattern LOCATION =
+        Pattern.compile("@[^\\s,]*\\s*,\\s*[^\\s,]+|[^\\s,]+");
+
+    /** Returns the locations listed in the request LINE. */
+    static List<String> locations(String line) {
+        ArrayList<String> result = new ArrayList<>();
+        Matcher mat = LOCATION.matcher(line);
+        while (mat.find()) {
+            result.add(mat.group());
+        }
+        return result;
+    }
+
+    /** A stream of requests against TRIP, planned by WORKERS threads. */
+    RequestStream(Trip trip, int workers) {
+        _trip = trip;
+        _workers = Math.max(1, workers);
+    }
+
+    /** Answer each request read from IN, writing the reports to OUT and
+     *  any error messages to ERR.  OUT is flushed whenever no further
+     *  input is immediately available, and at the end. */
+    void run(BufferedReader in, Writer out, Writer err) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(_workers);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        _first = true;
+        try {
+            while (true) {
+                if (!in.ready()) {
+                    while (!pending.isEmpty() && pending.peek().isDone()) {
+                        write(pending.poll(), out, err);
+                    }
+                    out.flush();
+                    err.flush();
+                }
+                String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<String> dests = locations(line);
+                pending.add(pool.submit(() -> answer(dests)));
+                if (pending.size() >= WINDOW_PER_WORKER * _workers) {
+                    write(pending.poll(), out, err);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, err);
+            }
+        } finally {
+            pool.shutdownNow();
+            out.flush();
+            err.flush();
+        }
+    }
+
+    /** Returns the report for a trip along DESTS, or, if it cannot be
+     *  planned, the error message preceded by ERROR_MARK. */
+    private String answer(List<String> dests) {
+        StringBuilder report = new StringBuilder();
+        try {
+            _trip.makeTrip(new ArrayList<>(dests), _trip.writer(report));
+            return report.toString();
+        } catch (IllegalArgumentException excp) {
+            return ERROR_MARK + excp.getMessage();
+        }
+    }
+
+    /** Wait for the answer to REQUEST and write it to OUT, or its error
+     *  message to ERR. */
+    private void write(Future<String> request, Writer out, Writer err)
+        throws IOException {
+        String answer;
+        try {
+            answer = request.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException excp) {
+            answer = ERROR_MARK + excp.getCause();
+        }
+        if (answer.startsWith(ERROR_MARK)) {
+            out.flush();
+            err.write(String.format("trip: %s%n",
+                                    answer.substring(ERROR_MARK.length())));
+            err.flush();
+        } else {
+            if (!_first) {
+                out.write(System.lineSeparator());
+            }
+            _first = false;
+            out.write(answer);
+        }
+    }
+
+    /** Maximum number of requests in progress per worker. */
+    private static final int WINDOW_PER_WORKER = 4;
+    /** Prefix marking an answer as an error message. */
+    private static final String ERROR_MARK = "\0";
+
+    /** The trip planner. */
+    private final Trip _trip;
+    /** Number of worker threads. */
+    private final int _workers;
+    /** True until the first report has been written. */
+    private boolean _first;
+
+}
@@ -0,0 +1,63 @@
+package trip;
+
+import java.util.List;
+
+/** A planned route between two locations: the vertices along it, and
+ *  its description as a sequence of segments, each following a single
+ *  road in a single direction, as printed by Trip.reportSegment.
+ *  @author Leslie Yang
+ */
+class Route {
+
+    /** A route along the vertices PATH, made of segments along roads
+     *  ROADS[k], heading DIRECTIONS[k] (full names) for LENGTHS[k] miles,
+     *  and ending at the location named DESTINATION. */
+    Route(List<Integer> path, String[] roads, String[] directions,
+          double[] lengths, String destination) {
+        _path = path;
+        _roads = roads;
+        _directions = directions;
+        _lengths = lengths;
+        _destination = destination;
+    }
+
+    /** Returns the vertices along me, starting with my source. */
+    List<Integer> path() {
+        return _path;
+    }
+
+    /** Returns my number of segments. */
+    int size() {
+        return _roads.length;
+    }
+
+    /** Returns the name of the road followed by segment K. */
+    String road(int k) {
+        return _roads[k];
+    }
+
+    /** Returns the full name of the direction of segment K. */
+    String direction(int k) {
+        return _directions[k];
+    }
+
+    /** Returns the length of segment K. */
+    double length(int k) {
+        return _lengths[k];
+    }
+
+    /** Returns the name of my final location. */
+    String destination() {
+        return _destination;
+    }
+
+    /** My vertices. */
+    private final List<Integer> _path;
+    /** The roads and directions of my segments. */
+    private final String[] _roads, _directions;
+    /** The lengths of my segments. */
+    private final double[] _lengths;
+    /** Name of my final location. */
+    private final String _destination;
+
+}
@@ -0,0 +1,98 @@
+package trip;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A bounded cache of Routes keyed by their source and destination
+ *  vertices, which evicts the least recently used route when full.  It
+ *  counts hits and misses, and is safe for use by several threads.
+ *  @author Leslie Yang
+ */
+class RouteCache {
+
+    /** An empty cache holding at most CAPACITY routes. */
+    RouteCache(int capacity) {
+        _capacity = capacity;
+        _routes = new LinkedHashMap<Long, Route>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Route> e) {
+                return size() > _capacity;
+            }
+        };
+    }
+
+    /** Returns the maximum number of routes I hold. */
+    int capacity() {
+        return _capacity;
+    }
+
+    /** Returns the number of routes I hold. */
+    synchronized int size() {
+        return _routes.size();
+    }
+
+    /** Returns the cached route from vertex FROM to vertex TO, or null if
+     *  there is none, counting a hit or a miss. */
+    synchronized Route get(int from, int to) {
+        Route route = _routes.get(key(from, to));
+        if (route == null) {
+            _misses += 1;
+        } else {
+            _hits += 1;
+        }
+        return route;
+    }
+
+    /** Cache ROUTE as the route from vertex FROM to vertex TO. */
+    synchronized void put(int from, int to, Route route) {
+        _routes.put(key(from, to), route);
+    }
+
+    /** Discard the routes that use the road from vertex U to vertex V
+     *  (as when it is closed).  Returns the number discarded. */
+    synchronized int removeUsing(int u, int v) {
+        int before = _routes.size();
+        _routes.values().removeIf(route -> uses(route.path(), u, v));
+        return before - _routes.size();
+    }
+
+    /** Returns true iff PATH contains U immediately followed by V. */
+    private static boolean uses(List<Integer> path, int u, int v) {
+        for (int k = 1; k < path.size(); k += 1) {
+            if (path.get(k - 1) == u && path.get(k) == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Discard all routes (as when the map changes).  The counts of hits
+     *  and misses are kept. */
+    synchronized void clear() {
+        _routes.clear();
+    }
+
+    /** Returns the number of calls to get that found a route. */
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /** Returns the number of calls to get that found no route. */
+    synchronized long misses() {
+        return _misses;
+    }
+
+    /** Returns the key for the route from FROM to TO. */
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    /** Maximum number of routes. */
+    private final int _capacity;
+    /** The routes, in order from least to most recently used. */
+    private final LinkedHashMap<Long, Route> _routes;
+    /** Numbers of successful and unsuccessful lookups. */
+    private long _hits, _misses;
+
+}
@@ -0,0 +1,269 @@
+package trip;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Formatter;
+
+/** A buffered writer of trip reports, in one of the forms given by
+ *  ReportFormat.  In TEXT form, the lines describing the steps of
+ *  a route, which make up nearly all of a report, are assembled directly
+ *  in a reusable buffer, without going through a Formatter; in
+ *  particular, lengths are formatted by a fixed-point routine that gives
+ *  exactly the same text as the format %.1f.  Other text is formatted by
+ *  a Formatter that also writes into the buffer.  The buffer is passed on
+ *  to the destination in blocks of about BLOCK characters, and when
+ *  flushed.  As for a Formatter, IOExceptions from the destination are
+ *  not thrown, but are available from ioException.
+ *
+ *  In JSON and CSV form, a report instead describes each road segment of
+ *  a trip (see segment): the names of the locations at its ends, the
+ *  name and direction of its road, its length, and the distance along
+ *  the trip to its end.  Strings are escaped (JSON) or quoted (CSV) only
+ *  as needed, and numbers are written in full as by Double.toString, all
+ *  directly into the buffer.
+ *  @author Leslie Yang
+ */
+class RouteWriter {
+
+    /** Number of buffered characters that causes the buffer to be passed
+     *  on to the destination. */
+    static final int BLOCK = 8192;
+
+    /** A writer to OUT of TEXT reports.  If OUT is a StringBuilder, text
+     *  is written to it directly, without further buffering. */
+    RouteWriter(Appendable out) {
+        this(out, ReportFormat.TEXT);
+    }
+
+    /** A writer to OUT of reports in form FORMAT.  If OUT is a
+     *  StringBuilder, text is written to it directly, without further
+     *  buffering. */
+    RouteWriter(Appendable out, ReportFormat format) {
+        _out = out;
+        _reportFormat = format;
+        if (out instanceof StringBuilder) {
+            _buffer = (StringBuilder) out;
+        } else {
+            _buffer = new StringBuilder(BLOCK + BLOCK / 2);
+        }
+        _formatter = new Formatter(_buffer);
+        DecimalFormatSymbols symbols =
+            DecimalFormatSymbols.getInstance(_formatter.locale());
+        _plain = symbols.getDecimalSeparator() == '.'
+            && symbols.getZeroDigit() == '0';
+    }
+
+    /** Write ARGS formatted according to FORMAT, as for
+     *  Formatter.format.  Returns this writer. */
+    RouteWriter format(String format, Object... args) {
+        _formatter.format(format, args);
+        spill();
+        return this;
+    }
+
+    /** Write the line describing step number SEQ of a route, which
+     *  follows ROAD in DIRECTION for LENGTH miles, ending at DESTINATION
+     *  if it is not null.  That is, the line written is that given by the
+     *  format "%d. Take %s %s for %.1f miles.\n", or, with a destination,
+     *  by "%d. Take %s %s for %.1f miles to %s.\n". */
+    void step(int seq, String road, String direction, double length,
+              String destination) {
+        if (!_plain) {
+            if (destination == null) {
+                format("%d. Take %s %s for %.1f miles.\n",
+                       seq, road, direction, length);
+            } else {
+                format("%d. Take %s %s for %.1f miles to %s.\n",
+                       seq, road, direction, length, destination);
+            }
+            return;
+        }
+        _buffer.append(seq).append(". Take ").append(road).append(' ')
+            .append(direction).append(" for ");
+        appendTenths(length);
+        _buffer.append(" miles");
+        if (destination != null) {
+            _buffer.append(" to ").append(destination);
+        }
+        _buffer.append(".\n");
+        spill();
+    }
+
+    /** Returns the form of my reports. */
+    ReportFormat reportFormat() {
+        return _reportFormat;
+    }
+
+    /** Start a JSON or CSV report, by writing the header line of a CSV
+     *  report. */
+    void begin() {
+        if (_reportFormat == ReportFormat.CSV) {
+            _buffer.append(CSV_HEADER);
+        }
+    }
+
+    /** Write the JSON or CSV record of a road segment from the location
+     *  named FROM to that named TO, along ROAD heading DIRECTION for
+     *  LENGTH miles, which ends DISTANCE miles along the trip. */
+    void segment(String from, String to, String road, String direction,
+                 double length, double distance) {
+        if (_reportFormat == ReportFormat.JSON) {
+            _buffer.append("{\"from\":");
+            appendJson(from);
+            _buffer.append(",\"to\":");
+            appendJson(to);
+            _buffer.append(",\"road\":");
+            appendJson(road);
+            _buffer.append(",\"direction\":");
+            appendJson(direction);
+            _buffer.append(",\"length\":").append(length)
+                .append(",\"distance\":").append(distance).append("}\n");
+        } else {
+            appendCsv(from);
+            _buffer.append(',');
+            appendCsv(to);
+            _buffer.append(',');
+            appendCsv(road);
+            _buffer.append(',');
+            appendCsv(direction);
+            _buffer.append(',').append(length).append(',').append(distance)
+                .append('\n');
+        }
+        spill();
+    }
+
+    /** Pass everything written so far on to the destination, and flush
+     *  the destination if it is Flushable. */
+    void flush() {
+        if (_buffer != _out && _buffer.length() > 0) {
+            try {
+                _out.append(_buffer);
+            } catch (IOException excp) {
+                _ioException = excp;
+            }
+            _buffer.setLength(0);
+        }
+        if (_out instanceof Flushable) {
+            try {
+                ((Flushable) _out).flush();
+            } catch (IOException excp) {
+                _ioException = excp;
+            }
+        }
+    }
+
+    /** Returns the last IOException thrown by the destination, or null if
+     *  there has been none. */
+    IOException ioException() {
+        return _ioException;
+    }
+
+    /** Append X to _buffer as by the format %.1f, which rounds the
+     *  shortest decimal representation of X (that of Double.toString) to
+     *  one place, rounding halves up.  Except near such halves, this is
+     *  the same as rounding 10 X to an integer, which is done directly. */
+    private void appendTenths(double x) {
+        if (x >= 0.0 && x < MAX_FAST) {
+            double t = 10.0 * x;
+            long tenths = (long) t;
+            double frac = t - tenths;
+            if (Math.abs(frac - 0.5) > TIE_MARGIN) {
+                if (frac > 0.5) {
+                    tenths += 1;
+                }
+                _buffer.append(tenths / 10).append('.')
+                    .append((char) ('0' + tenths % 10));
+                return;
+            }
+            _buffer.append(new BigDecimal(Double.toString(x))
+                           .setScale(1, RoundingMode.HALF_UP)
+                           .toPlainString());
+            return;
+        }
+        _formatter.format("%.1f", x);
+    }
+
+    /** Append S to _buffer as a JSON string. */
+    private void appendJson(String s) {
+        _buffer.append('"');
+        for (int i = 0; i < s.length(); i += 1) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                _buffer.append('\\').append(c);
+            } else if (c < ' ') {
+                _buffer.append("\\u00").append(HEX_DIGITS.charAt(c >> 4))
+                    .append(HEX_DIGITS.charAt(c & 0xf));
+            } else {
+                _buffer.append(c);
+            }
+        }
+        _buffer.append('"');
+    }
+
+    /** Append S to _buffer as a CSV field, quoted if it contains a comma,
+     *  quotation mark, or line break. */
+    private void appendCsv(String s) {
+        boolean quoted;
+        quoted = false;
+        for (int i = 0; i < s.length() && !quoted; i += 1) {
+            char c = s.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            _buffer.append(s);
+            return;
+        }
+        _buffer.append('"');
+        for (int i = 0; i < s.length(); i += 1) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                _buffer.append('"');
+            }
+            _buffer.append(c);
+        }
+        _buffer.append('"');
+    }
+
+    /** Pass the contents of the buffer on to the destination if it has
+     *  reached BLOCK characters. */
+    private void spill() {
+        if (_buffer.length() >= BLOCK && _buffer != _out) {
+            try {
+                _out.append(_buffer);
+            } catch (IOException excp) {
+                _ioException = excp;
+            }
+            _buffer.setLength(0);
+        }
+    }
+
+    /** Values at least this large are formatted by _formatter. */
+    private static final double MAX_FAST = 1e6;
+    /** Fractions of tenths within this distance of one half are rounded
+     *  using their decimal representations. */
+    private static final double TIE_MARGIN = 1e-6;
+
+    /** Header line of CSV reports. */
+    private static final String CSV_HEADER =
+        "from,to,road,direction,length,distance\n";
+    /** Hexadecimal digits, for JSON escapes. */
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    /** The destination. */
+    private final Appendable _out;
+    /** The form of my reports. */
+    private final ReportFormat _reportFormat;
+    /** Text not yet passed on to _out (or _out itself). */
+    private final StringBuilder _buffer;
+    /** Formats text into _buffer. */
+    private final Formatter _formatter;
+    /** True iff numbers in the locale of _formatter are written with
+     *  ASCII digits and a period, as appendTenths writes them. */
+    private final boolean _plain;
+    /** Last exception thrown by _out, or null. */
+    private IOException _ioException;
+
+}
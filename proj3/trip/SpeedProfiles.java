@@ -0,0 +1,210 @@
+package trip;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Scanner;
+
+import static trip.Main.error;
+
+/** Travel speeds on the roads of a map as a function of the time of day.
+ *  Times are in minutes after midnight of the first day, and the day is
+ *  divided into buckets of BUCKET minutes, in each of which a road's
+ *  speed is constant.  Each line of a profile file has the form
+ *      ROAD S0 S1 ... Sn-1
+ *  giving the speeds (in miles per hour) on the road named ROAD in n
+ *  consecutive buckets starting at midnight, repeating every n buckets
+ *  (so that 96 speeds describe a day).  The name * gives the profile of
+ *  roads that have none of their own; without it, they have the constant
+ *  speed DEFAULT_SPEED.
+ *
+ *  Each distinct profile is stored once, as the distance covered since
+ *  time 0 at the start of each of its buckets, D[0 .. n].  Because
+ *  speeds are constant within buckets, the distance covered is a
+ *  piecewise-linear increasing function D(t), and a road of length L
+ *  entered at time t is left at time D^-1(D(t) + L).  That too is a
+ *  piecewise-linear function of t, and it never decreases (no one
+ *  arrives earlier by leaving later).
+ *  @author Leslie Yang
+ */
+class SpeedProfiles {
+
+    /** Minutes per bucket. */
+    static final double BUCKET = 15.0;
+    /** Speed (miles per hour) of roads with no profile. */
+    static final double DEFAULT_SPEED = 30.0;
+
+    /** Profiles read from the file named NAME. */
+    static SpeedProfiles read(String name) {
+        SpeedProfiles result = new SpeedProfiles();
+        try (Scanner inp = new Scanner(new File(name))) {
+            while (inp.hasNextLine()) {
+                Scanner line = new Scanner(inp.nextLine());
+                if (!line.hasNext()) {
+                    continue;
+                }
+                String road = line.next();
+                ArrayList<Double> speeds = new ArrayList<>();
+                while (line.hasNext()) {
+                    if (!line.hasNextDouble()) {
+                        error("bad speed profile for %s", road);
+                    }
+                    speeds.add(line.nextDouble());
+                }
+                double[] mph = new double[speeds.size()];
+                for (int k = 0; k < mph.length; k += 1) {
+                    mph[k] = speeds.get(k);
+                }
+                result.add(road, mph);
+            }
+        } catch (FileNotFoundException excp) {
+            error("cannot find file %s", name);
+        }
+        return result;
+    }
+
+    /** A set of profiles in which every road has the constant speed
+     *  DEFAULT_SPEED until profiles are added. */
+    SpeedProfiles() {
+        _profiles.add(cumulative(new double[] { DEFAULT_SPEED }));
+        _speeds.add(new double[] { DEFAULT_SPEED });
+        _maxSpeed = DEFAULT_SPEED;
+    }
+
+    /** Give the road named ROAD (or all roads without profiles, if ROAD
+     *  is "*") the speeds MPH in consecutive buckets. */
+    void add(String road, double[] mph) {
+        if (mph.length == 0) {
+            error("bad speed profile for %s", road);
+        }
+        for (double s : mph) {
+            if (!(s > 0) || Double.isInfinite(s)) {
+                error("bad speed profile for %s", road);
+            }
+        }
+        int p;
+        if (road.equals("*")) {
+            p = DEFAULT;
+            _profiles.set(p, cumulative(mph));
+            _speeds.set(p, mph.clone());
+        } else {
+            p = _profiles.size();
+            _profiles.add(cumulative(mph));
+            _speeds.add(mph.clone());
+            _index.put(road, p);
+        }
+        _maxSpeed = 0;
+        for (double[] speeds : _speeds) {
+            for (double s : speeds) {
+                _maxSpeed = Math.max(_maxSpeed, s);
+            }
+        }
+    }
+
+    /** Returns the profile number of the road named ROAD. */
+    int profile(String road) {
+        return _index.getOrDefault(road, DEFAULT);
+    }
+
+    /** Returns the greatest speed in any profile, in miles per minute. */
+    double maxSpeed() {
+        return _maxSpeed / 60.0;
+    }
+
+    /** Returns the time of leaving a road of profile P and length LENGTH
+     *  that is entered at time T. */
+    double arrival(int p, double length, double t) {
+        double[] d = _profiles.get(p);
+        return inverse(d, distance(d, t) + length);
+    }
+
+    /** Returns the latest time of entering a road of profile P and length
+     *  LENGTH that is left at time T. */
+    double departure(int p, double length, double t) {
+        double[] d = _profiles.get(p);
+        return inverse(d, distance(d, t) - length);
+    }
+
+    /** Returns the exact times of leaving a road of profile P and length
+     *  LENGTH, as a function of the time of entering it, for entry times
+     *  in [FROM, TO]. */
+    ArrivalFunction arrivals(int p, double length, double from, double to) {
+        ArrayList<Double> xs = new ArrayList<>();
+        xs.add(from);
+        for (double b = (Math.floor(from / BUCKET) + 1) * BUCKET; b < to;
+             b += BUCKET) {
+            xs.add(b);
+        }
+        double last = arrival(p, length, to);
+        for (double b = (Math.floor(arrival(p, length, from) / BUCKET) + 1)
+                 * BUCKET;
+             b < last; b += BUCKET) {
+            double x = departure(p, length, b);
+            if (x > from && x < to) {
+                xs.add(x);
+            }
+        }
+        if (to > from) {
+            xs.add(to);
+        }
+        double[] x = new double[xs.size()];
+        for (int i = 0; i < x.length; i += 1) {
+            x[i] = xs.get(i);
+        }
+        Arrays.sort(x);
+        double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i += 1) {
+            y[i] = arrival(p, length, x[i]);
+        }
+        return new ArrivalFunction(x, y);
+    }
+
+    /** Returns the cumulative distance table for speeds MPH. */
+    private static double[] cumulative(double[] mph) {
+        double[] d = new double[mph.length + 1];
+        for (int k = 0; k < mph.length; k += 1) {
+            d[k + 1] = d[k] + mph[k] / 60.0 * BUCKET;
+        }
+        return d;
+    }
+
+    /** Returns the distance covered from time 0 to time T under the
+     *  cumulative distance table D. */
+    private static double distance(double[] d, double t) {
+        int n = d.length - 1;
+        double period = n * BUCKET;
+        double q = Math.floor(t / period), r = t - q * period;
+        int k = Math.min(n - 1, (int) (r / BUCKET));
+        return q * d[n] + d[k]
+            + (d[k + 1] - d[k]) * (r - k * BUCKET) / BUCKET;
+    }
+
+    /** Returns the time at which the distance covered from time 0 under
+     *  the cumulative distance table D is DIST. */
+    private static double inverse(double[] d, double dist) {
+        int n = d.length - 1;
+        double q = Math.floor(dist / d[n]), r = dist - q * d[n];
+        int k = Arrays.binarySearch(d, r);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        k = Math.max(0, Math.min(n - 1, k));
+        return q * n * BUCKET + k * BUCKET
+            + (r - d[k]) / (d[k + 1] - d[k]) * BUCKET;
+    }
+
+    /** Profile number of roads without profiles. */
+    private static final int DEFAULT = 0;
+
+    /** Cumulative distance table of each profile. */
+    private final ArrayList<double[]> _profiles = new ArrayList<>();
+    /** Speeds of each profile. */
+    private final ArrayList<double[]> _speeds = new ArrayList<>();
+    /** Profile numbers of roads with their own profiles. */
+    private final HashMap<String, Integer> _index = new HashMap<>();
+    /** Greatest speed in any profile, in miles per hour. */
+    private double _maxSpeed;
+
+}
@@ -0,0 +1,126 @@
+package trip;
+
+import graph.DenseShortestPaths;
+import graph.IntIteration;
+import graph.LabeledGraph;
+import java.util.PriorityQueue;
+
+/** Earliest-arrival routes on a road map whose travel times depend on the
+ *  time of day, as given by SpeedProfiles.  The weight of a vertex is the
+ *  time (in minutes) taken to reach it from the source after leaving at
+ *  the departure time.  Because no one arrives earlier by leaving later,
+ *  Dijkstra's algorithm (here an A* search bounded by the greatest speed)
+ *  finds earliest arrivals if each road is timed from the moment its
+ *  start is reached, which is known when its start is settled.
+ *
+ *  A profile search (see profile) instead finds, for each vertex, the
+ *  arrival time as a piecewise-linear function of the departure time over
+ *  an interval, by propagating whole functions in the manner of
+ *  Dijkstra's algorithm, requeueing a vertex whenever its function
+ *  improves anywhere.  The best departure in the interval is then a
+ *  breakpoint of the function at the destination.
+ *  @author Leslie Yang
+ */
+class TimedSearch extends DenseShortestPaths {
+
+    /** A search over the roads of MAP timed according to SPEEDS. */
+    TimedSearch(LabeledGraph<Location, Road> map, SpeedProfiles speeds) {
+        super(map, 0, 0);
+        _map = map;
+        _speeds = speeds;
+    }
+
+    /** Time my searches from departure time T (minutes after midnight). */
+    void setDeparture(double t) {
+        _departure = t;
+    }
+
+    /** Returns the departure time of my searches. */
+    double getDeparture() {
+        return _departure;
+    }
+
+    @Override
+    public void setPaths() {
+        _goal = getDest() == 0 ? null : _map.getLabel(getDest());
+        super.setPaths();
+    }
+
+    @Override
+    protected double getWeight(int u, int v) {
+        Road road = _map.getLabel(u, v);
+        double t = _departure + getWeight(u);
+        return _speeds.arrival(_speeds.profile(road.toString()),
+                               road.length(), t) - t;
+    }
+
+    @Override
+    protected double estimatedDistance(int v) {
+        return _goal == null ? 0.0
+            : _map.getLabel(v).dist(_goal) / _speeds.maxSpeed();
+    }
+
+    /** Returns the arrival time at vertex DEST as a function of the time
+     *  of departure from vertex SOURCE, for departures in [FROM, TO], or
+     *  null if DEST cannot be reached. */
+    ArrivalFunction profile(int source, int dest, double from, double to) {
+        if (source == dest) {
+            return ArrivalFunction.identity(from, to);
+        }
+        ArrivalFunction[] arrivals =
+            new ArrivalFunction[_map.maxVertex() + 1];
+        int[] versions = new int[arrivals.length];
+        Location goal = _map.getLabel(dest);
+        double speed = _speeds.maxSpeed();
+        PriorityQueue<double[]> fringe =
+            new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        arrivals[source] = ArrivalFunction.identity(from, to);
+        fringe.add(new double[] { from, source, 0 });
+        while (!fringe.isEmpty()) {
+            double[] entry = fringe.poll();
+            int v = (int) entry[1];
+            if ((int) entry[2] != versions[v]) {
+                continue;
+            }
+            if (arrivals[dest] != null
+                && entry[0] >= arrivals[dest].latest()) {
+                break;
+            }
+            if (v == dest) {
+                continue;
+            }
+            ArrivalFunction f = arrivals[v];
+            for (IntIteration succs = _map.intSuccessors(v);
+                 succs.hasNext();) {
+                int w = succs.nextInt();
+                Road road = _map.getLabel(v, w);
+                int p = _speeds.profile(road.toString());
+                ArrivalFunction g =
+                    f.then(_speeds.arrivals(p, road.length(), f.earliest(),
+                                            f.latest()));
+                if (arrivals[w] == null) {
+                    arrivals[w] = g;
+                } else if (!arrivals[w].noLaterThan(g)) {
+                    arrivals[w] = arrivals[w].min(g);
+                } else {
+                    continue;
+                }
+                versions[w] += 1;
+                double key = arrivals[w].earliest()
+                    + _map.getLabel(w).dist(goal) / speed;
+                fringe.add(new double[] { key, w, versions[w] });
+            }
+        }
+        return arrivals[dest];
+    }
+
+    /** The map being searched. */
+    private final LabeledGraph<Location, Road> _map;
+    /** Speeds on the roads of _map. */
+    private final SpeedProfiles _speeds;
+    /** Departure time of setPaths searches. */
+    private double _departure;
+    /** Location of the destination of the current search, or null. */
+    private Location _goal;
+
+}
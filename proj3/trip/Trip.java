@@ -1,16 +1,34 @@
 package trip;
 
+import graph.ContractionHierarchy;
 import graph.DirectedGraph;
+import graph.Graph;
+import graph.GraphFilter;
+import graph.IntIteration;
+import graph.KShortestPaths;
+import graph.Iteration;
 import graph.LabeledGraph;
+import graph.DenseShortestPaths;
 import graph.SimpleShortestPaths;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static trip.Main.error;
 
@@ -22,6 +40,21 @@ class Trip {
 
     /** Read map file named NAME into out map graph. */
     void readMap(String name) {
+        mapChanged();
+        _mapName = name;
+        _partitioned = null;
+        if (PartitionedMap.isPartitioned(name)) {
+            _partitioned =
+                new PartitionedMap(name, PartitionedMap.DEFAULT_CACHED_CELLS);
+            return;
+        }
+        if (MapFile.isCompiled(name)) {
+            readCompiledMap(name);
+            return;
+        }
+        if (readParallel(name)) {
+            return;
+        }
         int n;
         n = 0;
         try {
@@ -53,31 +86,694 @@ class Trip {
         }
     }
 
+    /** Read the text map named NAME in parallel (see MapLoader), adding
+     *  its locations and then its roads in file order.  Returns false,
+     *  having changed nothing, if the file must instead be read
+     *  sequentially (in particular, if it contains an error). */
+    private boolean readParallel(String name) {
+        MapLoader loaded;
+        try {
+            loaded = MapLoader.read(name, _sites);
+        } catch (IOException excp) {
+            return false;
+        }
+        if (loaded == null) {
+            return false;
+        }
+        int[] vertices = new int[loaded.locations()];
+        for (int i = 0; i < vertices.length; i += 1) {
+            vertices[i] = _map.add(new Location(loaded.name(i), loaded.x(i),
+                                                loaded.y(i)));
+            _sites.put(loaded.name(i), vertices[i]);
+        }
+        for (MapLoader.Chunk chunk : loaded.chunks()) {
+            for (int r = 0; r < chunk.roads(); r += 1) {
+                int v0 = chunk.from(r), v1 = chunk.to(r);
+                v0 = v0 >= 0 ? vertices[v0] : -v0;
+                v1 = v1 >= 0 ? vertices[v1] : -v1;
+                _map.add(v0, v1, chunk.forward(r));
+                _map.add(v1, v0, chunk.backward(r));
+            }
+        }
+        return true;
+    }
+
+    /** Read the compiled map file named NAME (see MapFile) into our map
+     *  graph. */
+    void readCompiledMap(String name) {
+        mapChanged();
+        _mapName = name;
+        MapFile file = new MapFile(name);
+        int n = file.locations();
+        int base = _map.maxVertex();
+        for (int l = 0; l < n; l += 1) {
+            addLocation(file.locationName(l), file.x(l), file.y(l));
+        }
+        for (int l = 0; l < n; l += 1) {
+            int end = file.segmentStart(l + 1);
+            for (int s = file.segmentStart(l); s < end; s += 1) {
+                int to = file.target(s);
+                if (to < 0 || to >= n) {
+                    file.corrupt();
+                }
+                _map.add(base + l + 1, base + to + 1,
+                         new Road(file.roadName(s), file.direction(s),
+                                  file.length(s)));
+            }
+        }
+    }
+
+    /** Discard everything derived from the current map. */
+    private void mapChanged() {
+        _hierarchy = null;
+        _turns = null;
+        _landmarks = null;
+        _closed.clear();
+        _trees.clear();
+        _locationIndex = null;
+        if (_cache != null) {
+            _cache.clear();
+        }
+    }
+
+    /** Write our map graph to the file named NAME in compiled form. */
+    void writeMap(String name) {
+        requireWholeMap();
+        MapFile.write(name, _map);
+    }
+
+    /** Write our map graph to the file named NAME in partitioned form
+     *  (see PartitionedMap), with at most CELLSIZE locations per cell. */
+    void writePartitionedMap(String name, int cellSize) {
+        requireWholeMap();
+        PartitionedMap.write(name, _map, cellSize);
+    }
+
+    /** Report an error if our map is a partitioned map, which supports
+     *  only plain trips. */
+    private void requireWholeMap() {
+        if (_partitioned != null) {
+            error("%s is a partitioned map, which supports only trips",
+                  _mapName);
+        }
+    }
+
     /** Produce a report on the standard output of a shortest journey from
      *  DESTS.get(0), then DESTS.get(1), .... */
     void makeTrip(List<String> dests) {
+        RouteWriter out = writer(System.out);
+        makeTrip(dests, out);
+        out.flush();
+    }
+
+    /** Write a report on a shortest journey from DESTS.get(0), then
+     *  DESTS.get(1), ..., to OUT, in the same form as makeTrip(DESTS).
+     *  Nothing is written if the trip is impossible.  May be called by
+     *  several threads at once (with different OUTs), provided the map
+     *  and options do not change meanwhile. */
+    void makeTrip(List<String> dests, RouteWriter out) {
         if (dests.size() < 2) {
             error("must have at least two locations for a trip");
         }
+        if (_partitioned != null) {
+            makePartitionedTrip(dests, out);
+            return;
+        }
+        dests = snap(dests);
 
-        System.out.printf("From %s:%n%n", dests.get(0));
+        int legs = dests.size() - 1;
+        int[] from = new int[legs], to = new int[legs];
+        for (int i = 0; i < legs; i += 1) {
+            Integer
+                v0 = _sites.get(dests.get(i)),
+                v1 = _sites.get(dests.get(i + 1));
+            if (v0 == null) {
+                error("No location named %s", dests.get(i));
+            } else if (v1 == null) {
+                error("No location named %s", dests.get(i + 1));
+            }
+            from[i] = v0;
+            to[i] = v1;
+        }
+        if (_speeds != null) {
+            makeTimedTrip(dests, from, to, out);
+            return;
+        }
+        Route[] routes = new Route[legs];
+        int[] missing = new int[legs];
+        int misses;
+        misses = 0;
+        for (int i = 0; i < legs; i += 1) {
+            routes[i] = _cache == null ? null : _cache.get(from[i], to[i]);
+            if (routes[i] == null) {
+                missing[misses] = i;
+                misses += 1;
+            }
+        }
+        if (misses > 0) {
+            int[] from1 = new int[misses], to1 = new int[misses];
+            for (int k = 0; k < misses; k += 1) {
+                from1[k] = from[missing[k]];
+                to1[k] = to[missing[k]];
+            }
+            List<List<Integer>> segments = planLegs(from1, to1);
+            for (int k = 0; k < misses; k += 1) {
+                int i = missing[k];
+                if (segments.get(k).isEmpty()) {
+                    error("no route from %s to %s", dests.get(i),
+                          dests.get(i + 1));
+                }
+                routes[i] = route(segments.get(k));
+                if (_cache != null) {
+                    _cache.put(from[i], to[i], routes[i]);
+                }
+            }
+        }
+
+        reportTrip(dests.get(0), routes, out);
+    }
+
+    /** Write to OUT, as for makeTrip, a report on a shortest journey from
+     *  DESTS.get(0), then DESTS.get(1), ..., on our partitioned map. */
+    private void makePartitionedTrip(List<String> dests, RouteWriter out) {
+        if (_speeds != null || _turnPenalty > 0) {
+            requireWholeMap();
+        }
+        int legs = dests.size() - 1;
+        Route[] routes = new Route[legs];
+        for (int i = 0; i < legs; i += 1) {
+            int v0 = _partitioned.vertex(dests.get(i)),
+                v1 = _partitioned.vertex(dests.get(i + 1));
+            if (v0 < 0) {
+                error("No location named %s", dests.get(i));
+            } else if (v1 < 0) {
+                error("No location named %s", dests.get(i + 1));
+            }
+            List<Integer> path = _partitioned.path(v0, v1);
+            if (path.isEmpty()) {
+                error("no route from %s to %s", dests.get(i),
+                      dests.get(i + 1));
+            }
+            routes[i] = route(path);
+        }
+        reportTrip(dests.get(0), routes, out);
+    }
+
+    /** Write to OUT the report on a trip from the location named START
+     *  along ROUTES, in OUT's form. */
+    private void reportTrip(String start, Route[] routes, RouteWriter out) {
+        if (out.reportFormat() != ReportFormat.TEXT) {
+            reportSegments(routes, out);
+            return;
+        }
+        out.format("From %s:%n%n", start);
         int step;
 
         step = 1;
-        for (int i = 1; i < dests.size(); i += 1) {
-            Integer
-                from = _sites.get(dests.get(i - 1)),
-                to = _sites.get(dests.get(i));
-            if (from == null) {
-                error("No location named %s", dests.get(i - 1));
-            } else if (to == null) {
-                error("No location named %s", dests.get(i));
+        for (Route route : routes) {
+            step = reportRoute(step, route, out);
+        }
+    }
+
+    /** Print up to K alternative routes for each leg of the trip along
+     *  DESTS, shortest first, omitting any more than STRETCH times as
+     *  long as the shortest.  Each leg is headed by its endpoints, and
+     *  each route by its number and length; its directions are printed by
+     *  reportRoute. */
+    void makeAlternatives(List<String> dests, int k, double stretch) {
+        if (dests.size() < 2) {
+            error("must have at least two locations for a trip");
+        }
+        dests = snap(dests);
+        prepare();
+        RoadAlternatives alternatives = new RoadAlternatives();
+        RouteWriter out = new RouteWriter(System.out);
+        for (int i = 0; i + 1 < dests.size(); i += 1) {
+            int v0 = vertex(dests.get(i)), v1 = vertex(dests.get(i + 1));
+            List<List<Integer>> paths =
+                alternatives.paths(v0, v1, k, stretch);
+            if (paths.isEmpty()) {
+                error("no route from %s to %s", dests.get(i),
+                      dests.get(i + 1));
             }
-            TripPlan plan = new TripPlan(from, to);
-            plan.setPaths();
-            List<Integer> segment = plan.pathTo(to);
-            step = reportSegment(step, from, segment);
+            out.format("%sFrom %s to %s:%n", i == 0 ? "" : "\n",
+                       dests.get(i), dests.get(i + 1));
+            for (int j = 0; j < paths.size(); j += 1) {
+                out.format("%nRoute %d (%.1f miles):%n", j + 1,
+                           alternatives.weight(paths.get(j)));
+                reportRoute(1, route(paths.get(j)), out);
+            }
+        }
+        out.flush();
+    }
+
+    /** Describe on OUT the trip along DESTS, whose legs are from FROM[i]
+     *  to TO[i], that arrives earliest according to _speeds, leaving at
+     *  the departure time or, if a departure window was given, at the
+     *  time in the window that makes the trip shortest. */
+    private void makeTimedTrip(List<String> dests, int[] from, int[] to,
+                               RouteWriter out) {
+        TimedSearch search = new TimedSearch(_map, _speeds);
+        double leave = _departure;
+        if (_latestDeparture > _departure) {
+            ArrivalFunction arrivals =
+                ArrivalFunction.identity(_departure, _latestDeparture);
+            for (int i = 0; i < from.length; i += 1) {
+                ArrivalFunction leg =
+                    search.profile(from[i], to[i], arrivals.earliest(),
+                                   arrivals.latest());
+                if (leg == null) {
+                    error("no route from %s to %s", dests.get(i),
+                          dests.get(i + 1));
+                }
+                arrivals = arrivals.then(leg);
+            }
+            leave = arrivals.bestDeparture();
+        }
+        Route[] routes = new Route[from.length];
+        double t = leave;
+        for (int i = 0; i < from.length; i += 1) {
+            search.setDeparture(t);
+            search.setPaths(from[i], to[i]);
+            if (search.getWeight(to[i]) == Double.MAX_VALUE) {
+                error("no route from %s to %s", dests.get(i),
+                      dests.get(i + 1));
+            }
+            routes[i] = route(search.pathTo(to[i]));
+            t += search.getWeight(to[i]);
+        }
+        if (out.reportFormat() != ReportFormat.TEXT) {
+            reportSegments(routes, out);
+            return;
+        }
+        out.format("From %s at %s:%n%n", dests.get(0), clock(leave));
+        int step;
+        step = 1;
+        for (Route route : routes) {
+            step = reportRoute(step, route, out);
+        }
+        out.format("Arrive at %s.%n", clock(t));
+    }
+
+    /** Returns time T (minutes after midnight) as HH:MM, to the nearest
+     *  minute, with "+Nd" appended if it falls N days later. */
+    static String clock(double t) {
+        long minutes = Math.round(t);
+        long days = Math.floorDiv(minutes, MINUTES_PER_DAY);
+        minutes -= days * MINUTES_PER_DAY;
+        String result = String.format("%02d:%02d", minutes / 60,
+                                      minutes % 60);
+        return days == 0 ? result : result + "+" + days + "d";
+    }
+
+    /** Returns the time of day (minutes after midnight) denoted by TIME,
+     *  which has the form H:MM or HH:MM. */
+    static double parseClock(String time) {
+        Matcher mat = CLOCK.matcher(time);
+        if (!mat.matches() || Integer.parseInt(mat.group(1)) > 23
+            || Integer.parseInt(mat.group(2)) > 59) {
+            error("bad time: %s", time);
         }
+        return 60 * Integer.parseInt(mat.group(1))
+            + Integer.parseInt(mat.group(2));
+    }
+
+    /** Time trips using the speeds in SPEEDS, or not at all if SPEEDS is
+     *  null (the default). */
+    void setSpeedProfiles(SpeedProfiles speeds) {
+        _speeds = speeds;
+    }
+
+    /** Have timed trips (see setSpeedProfiles) leave at time FROM (in
+     *  minutes after midnight) or, if TO is later, at the time in
+     *  [FROM, TO] that makes them shortest. */
+    void setDeparture(double from, double to) {
+        _departure = from;
+        _latestDeparture = Math.max(from, to);
+    }
+
+    /** Build the contraction hierarchy and landmarks, if they are to be
+     *  used and do not yet exist. */
+    private synchronized void prepare() {
+        if (_contracted && _hierarchy == null) {
+            _hierarchy = new RoadHierarchy();
+            _hierarchy.contract();
+        }
+        if (_landmarkCount > 0 && _landmarks == null) {
+            _landmarks = landmarks(_landmarkCount);
+        }
+        if (_turnPenalty > 0 && _turns == null) {
+            _turns = new TurnSearch(_map, _turnPenalty);
+        }
+    }
+
+    /** Keep up to SIZE planned routes for reuse by later trips, evicting
+     *  the least recently used; if SIZE is 0, plan every leg afresh.
+     *  Discards any routes already cached. */
+    void setCacheSize(int size) {
+        _cache = size > 0 ? new RouteCache(size) : null;
+    }
+
+    /** Returns the cache of planned routes, or null if there is none. */
+    RouteCache cache() {
+        return _cache;
+    }
+
+    /** Returns shortest paths from FROM[i] to TO[i], for each i, as lists
+     *  of vertices (empty if there is no path).  Legs that share a source
+     *  are planned together by one search from that source, which stops
+     *  once all their destinations are settled; the rest are planned one
+     *  at a time by A* search.  The calling thread's TripPlan serves all
+     *  the searches. */
+    private List<List<Integer>> planLegs(int[] from, int[] to) {
+        int legs = from.length;
+        ArrayList<List<Integer>> segments = new ArrayList<>();
+        prepare();
+        LinkedHashMap<Integer, ArrayList<Integer>> bySource =
+            new LinkedHashMap<>();
+        for (int i = 0; i < legs; i += 1) {
+            segments.add(null);
+            bySource.computeIfAbsent(from[i], k -> new ArrayList<>()).add(i);
+        }
+        if (_turns != null) {
+            for (int i = 0; i < legs; i += 1) {
+                segments.set(i, _turns.route(from[i], to[i], _landmarks));
+            }
+            return segments;
+        }
+
+        TripPlan plan = _plans.get();
+        plan.setBidirectional(_bidirectional);
+        for (ArrayList<Integer> group : bySource.values()) {
+            int source = from[group.get(0)];
+            if (_contracted) {
+                synchronized (_hierarchy) {
+                    for (int i : group) {
+                        segments.set(i, _hierarchy.pathTo(source, to[i]));
+                    }
+                }
+            } else if (group.size() == 1) {
+                int i = group.get(0);
+                plan.setPaths(source, to[i]);
+                segments.set(i, plan.route(to[i]));
+            } else {
+                int[] targets = new int[group.size()];
+                for (int k = 0; k < targets.length; k += 1) {
+                    targets[k] = to[group.get(k)];
+                }
+                plan.setPaths(source, targets);
+                for (int i : group) {
+                    segments.set(i, plan.route(to[i]));
+                }
+            }
+        }
+        return segments;
+    }
+
+    /** Returns the matrix of shortest distances from each location named
+     *  in SOURCES to each one named in TARGETS, including the
+     *  shortest-path tree from each source iff TREES.  Runs one search
+     *  per source, in parallel on the common fork-join pool, each worker
+     *  thread reusing its own TripPlan (see _plans).  The map must not
+     *  change while this runs. */
+    DistanceMatrix distanceMatrix(List<String> sources, List<String> targets,
+                                  boolean trees) {
+        int[] from = vertices(sources), to = vertices(targets);
+        double[][] distances = new double[from.length][];
+        int[][] predecessors = trees ? new int[from.length][] : null;
+        ForkJoinPool.commonPool().invoke(
+            new MatrixRows(from, to, distances, predecessors));
+        return new DistanceMatrix(sources, from, targets, to,
+                                  distances, predecessors);
+    }
+
+    /** Returns the region within BUDGET miles of the location named DEPOT
+     *  (which may be given by coordinates; see snap). */
+    Isochrone isochrone(String depot, double budget) {
+        return isochrones(Collections.singletonList(depot), budget)[0];
+    }
+
+    /** Returns the regions within BUDGET miles of each of the locations
+     *  named in DEPOTS, computed in parallel. */
+    Isochrone[] isochrones(List<String> depots, double budget) {
+        List<String> names = snap(depots);
+        int[] from = vertices(names);
+        Isochrone[] result = new Isochrone[from.length];
+        ForkJoinPool.commonPool().invoke(
+            new Isochrones(names, from, budget, result));
+        return result;
+    }
+
+    /** Returns the region within BUDGET miles of vertex DEPOT, whose
+     *  location is named NAME, found using this thread's TripPlan. */
+    private Isochrone isochrone(String name, int depot, double budget) {
+        TripPlan plan = _plans.get();
+        int[] settled = plan.setPathsWithin(depot, budget);
+        String[] locations = new String[settled.length];
+        double[] distances = new double[settled.length];
+        ArrayList<String> from = new ArrayList<>(), to = new ArrayList<>();
+        ArrayList<Road> roads = new ArrayList<>();
+        double[] reach = new double[8];
+        for (int k = 0; k < settled.length; k += 1) {
+            int v = settled[k];
+            locations[k] = _map.getLabel(v).toString();
+            distances[k] = plan.getWeight(v);
+            for (IntIteration succs = _map.intSuccessors(v);
+                 succs.hasNext();) {
+                int w = succs.nextInt();
+                Road road = _map.getLabel(v, w);
+                if (plan.getWeight(w) > budget) {
+                    if (roads.size() == reach.length) {
+                        reach = Arrays.copyOf(reach, 2 * reach.length);
+                    }
+                    reach[roads.size()] = budget - distances[k];
+                    from.add(locations[k]);
+                    to.add(_map.getLabel(w).toString());
+                    roads.add(road);
+                }
+            }
+        }
+        int n = roads.size();
+        return new Isochrone(name, budget, locations, distances,
+                             from.toArray(new String[n]),
+                             to.toArray(new String[n]),
+                             roads.toArray(new Road[n]),
+                             Arrays.copyOf(reach, n));
+    }
+
+    /** Returns the vertices of the locations named in NAMES, which may
+     *  include coordinates (see snap). */
+    private int[] vertices(List<String> names) {
+        requireWholeMap();
+        names = snap(names);
+        int[] result = new int[names.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            Integer v = _sites.get(names.get(i));
+            if (v == null) {
+                error("No location named %s", names.get(i));
+            }
+            result[i] = v;
+        }
+        return result;
+    }
+
+    /** If K > 0, have A* searches also bound distances using K
+     *  landmarks (see Landmarks), chosen and measured on the first trip
+     *  after the map is read.  The tables are kept in the file named by
+     *  the map file's name followed by ".alt", and reused by later runs
+     *  with the same map and K. */
+    void setLandmarks(int k) {
+        _landmarkCount = k;
+        _landmarks = null;
+    }
+
+    /** Returns K landmarks of _map, read from the file next to the map
+     *  file if it holds K landmarks for this map, and otherwise computed
+     *  and saved there (if possible).  Each landmark after the first is
+     *  the vertex farthest from those already chosen; the first is the
+     *  vertex farthest from an arbitrary vertex. */
+    private Landmarks landmarks(int k) {
+        int n = _map.maxVertex();
+        long m = signature();
+        String altName = _mapName == null ? null : _mapName + ".alt";
+        k = Math.min(k, _map.vertexSize());
+        if (altName != null) {
+            Landmarks saved = Landmarks.read(altName, n, m);
+            if (saved != null && saved.size() == k) {
+                return saved;
+            }
+        }
+        int[] chosen = new int[k];
+        double[][] from = new double[k][], to = new double[k][];
+        double[] nearest = new double[n + 1];
+        Arrays.fill(nearest, Double.MAX_VALUE);
+        LandmarkSearch forward = new LandmarkSearch(_map),
+            backward = new LandmarkSearch(new ReversedMap());
+        int next = _map.intVertices().nextInt();
+        forward.setPaths(next, 0);
+        next = farthest(forward, null);
+        for (int i = 0; i < k; i += 1) {
+            chosen[i] = next;
+            forward.setPaths(next, 0);
+            backward.setPaths(next, 0);
+            from[i] = new double[n + 1];
+            to[i] = new double[n + 1];
+            for (int v = 1; v <= n; v += 1) {
+                from[i][v] = forward.getWeight(v);
+                to[i][v] = backward.getWeight(v);
+                nearest[v] = Math.min(nearest[v], from[i][v]);
+            }
+            next = farthest(forward, nearest);
+        }
+        Landmarks result = new Landmarks(n, m, chosen, from, to);
+        if (altName != null) {
+            result.write(altName);
+        }
+        return result;
+    }
+
+    /** Returns a hash of the endpoints and lengths of all roads in _map,
+     *  which identifies the map for the purpose of reusing saved tables
+     *  derived from it. */
+    private long signature() {
+        long h;
+        h = _map.edgeSize();
+        for (IntIteration vs = _map.intVertices(); vs.hasNext();) {
+            int u = vs.nextInt();
+            for (IntIteration succs = _map.intSuccessors(u);
+                 succs.hasNext();) {
+                int v = succs.nextInt();
+                double len = _map.getLabel(u, v).length();
+                h = h * 31 + (((long) u << 32) | v);
+                h = h * 31 + Double.doubleToLongBits(len);
+            }
+        }
+        return h;
+    }
+
+    /** Returns the vertex reached by the last search of SEARCH that
+     *  maximizes DIST[v] (or its distance from the source, if DIST is
+     *  null), and is not yet a landmark (DIST[v] > 0). */
+    private int farthest(LandmarkSearch search, double[] dist) {
+        int best;
+        double bestDist;
+        best = search.getSource();
+        bestDist = -1;
+        for (IntIteration vs = _map.intVertices(); vs.hasNext();) {
+            int v = vs.nextInt();
+            double d = dist == null ? search.getWeight(v) : dist[v];
+            if (search.getWeight(v) != Double.MAX_VALUE && d > bestDist
+                && d > 0) {
+                best = v;
+                bestDist = d;
+            }
+        }
+        return best;
+    }
+
+    /** Returns NAMES, with each item of the form @X,Y that does not name
+     *  a location replaced by the name of the location nearest (X, Y). */
+    List<String> snap(List<String> names) {
+        ArrayList<String> result = new ArrayList<>(names);
+        for (int i = 0; i < result.size(); i += 1) {
+            String name = result.get(i);
+            if (name.startsWith("@") && !_sites.containsKey(name)) {
+                String[] coords = Main.LISTSEP.split(name.substring(1));
+                double x = 0, y = 0;
+                try {
+                    if (coords.length != 2) {
+                        throw new NumberFormatException();
+                    }
+                    x = Double.parseDouble(coords[0]);
+                    y = Double.parseDouble(coords[1]);
+                } catch (NumberFormatException excp) {
+                    error("bad coordinates: %s", name);
+                }
+                String[] nearest = nearestLocations(x, y, 1);
+                if (nearest.length == 0) {
+                    error("no locations near %s", name);
+                }
+                result.set(i, nearest[0]);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the names of the K locations nearest (X, Y) (fewer if
+     *  there are not K locations), nearest first. */
+    String[] nearestLocations(double x, double y, int k) {
+        return names(locationIndex().nearest(x, y, k));
+    }
+
+    /** Returns the names of the locations within distance R of (X, Y), in
+     *  no particular order. */
+    String[] locationsWithin(double x, double y, double r) {
+        return names(locationIndex().within(x, y, r));
+    }
+
+    /** Returns the names of the locations at VERTICES. */
+    private String[] names(int[] vertices) {
+        String[] result = new String[vertices.length];
+        for (int i = 0; i < vertices.length; i += 1) {
+            result[i] = _map.getLabel(vertices[i]).toString();
+        }
+        return result;
+    }
+
+    /** Returns a spatial index of the locations in _map, building it if
+     *  needed. */
+    private synchronized LocationIndex locationIndex() {
+        if (_locationIndex == null) {
+            int n = _map.vertexSize();
+            int[] vertices = new int[n];
+            double[] xs = new double[n], ys = new double[n];
+            int i;
+            i = 0;
+            for (IntIteration vs = _map.intVertices(); vs.hasNext();) {
+                int v = vs.nextInt();
+                Location loc = _map.getLabel(v);
+                vertices[i] = v;
+                xs[i] = loc.x();
+                ys[i] = loc.y();
+                i += 1;
+            }
+            _locationIndex = new LocationIndex(vertices, xs, ys);
+        }
+        return _locationIndex;
+    }
+
+    /** If ON, search for each leg of a trip from both of its ends at
+     *  once. */
+    void setBidirectional(boolean on) {
+        _bidirectional = on;
+    }
+
+    /** Plan trips to minimize their length plus PENALTY miles for each
+     *  turn (change of road or direction), if PENALTY is positive, and
+     *  otherwise to minimize their length alone.  Routes planned with
+     *  turn penalties take precedence over other options. */
+    synchronized void setTurnPenalty(double penalty) {
+        _turnPenalty = Math.max(0.0, penalty);
+        _turns = null;
+        if (_cache != null) {
+            _cache.clear();
+        }
+    }
+
+    /** Write the reports of makeTrip in form FORMAT. */
+    void setReportFormat(ReportFormat format) {
+        _reportFormat = format;
+    }
+
+    /** Returns a writer to OUT of reports in my report form. */
+    RouteWriter writer(Appendable out) {
+        return new RouteWriter(out, _reportFormat);
+    }
+
+    /** If ON, plan trips using a contraction hierarchy of the map, built
+     *  on the first trip after the map is read. */
+    void setContracted(boolean on) {
+        _contracted = on;
     }
 
     /** Print out a written description of the location sequence SEGMENT,
@@ -95,48 +791,243 @@ class Trip {
      *  Adjacent roads with the same name and direction are combined.
      *  */
     int reportSegment(int seq, int from, List<Integer> segment) {
-        Iterator<Integer> iter = segment.iterator();
-        int last = iter.next();
+        RouteWriter out = new RouteWriter(System.out);
+        seq = reportRoute(seq, route(segment), out);
+        out.flush();
+        return seq;
+    }
+
+    /** Write ROUTE to OUT as for reportSegment, numbering the lines of the
+     *  description starting at SEQ.  Returns the next sequence number. */
+    int reportRoute(int seq, Route route, RouteWriter out) {
+        int last = route.size() - 1;
+        for (int k = 0; k < last; k += 1) {
+            out.step(seq, route.road(k), route.direction(k), route.length(k),
+                     null);
+            seq += 1;
+        }
+        out.step(seq, route.road(last), route.direction(last),
+                 route.length(last), route.destination());
+        seq += 1;
+        return seq;
+    }
+
+    /** Write to OUT a JSON or CSV record of each road segment along
+     *  ROUTES, taken in order as one trip, straight from their paths. */
+    void reportSegments(Route[] routes, RouteWriter out) {
+        out.begin();
+        double distance;
+        distance = 0.0;
+        for (Route route : routes) {
+            Iterator<Integer> iter = route.path().iterator();
+            int current = iter.next();
+            while (iter.hasNext()) {
+                int last = current;
+                current = iter.next();
+                Road road = road(last, current);
+                distance += road.length();
+                out.segment(location(last).toString(),
+                            location(current).toString(),
+                            road.toString(), road.direction().fullName(),
+                            road.length(), distance);
+            }
+        }
+    }
+
+    /** Close the road between the locations named FROM and TO, in both
+     *  directions, so that no route uses it until it is reopened.  Cached
+     *  routes that use it are discarded, and the trees returned by
+     *  routeTree are repaired.  Must not be called while trips are being
+     *  planned. */
+    synchronized void closeRoad(String from, String to) {
+        int u = vertex(from), v = vertex(to);
+        if (!_map.contains(u, v) && !_map.contains(v, u)) {
+            error("no open road between %s and %s", from, to);
+        }
+        for (int[] e : new int[][] { { u, v }, { v, u } }) {
+            if (_map.contains(e[0], e[1])) {
+                _closed.put(roadKey(e[0], e[1]), _map.getLabel(e[0], e[1]));
+                _map.remove(e[0], e[1]);
+                roadsChanged();
+                if (_cache != null) {
+                    _cache.removeUsing(e[0], e[1]);
+                }
+                for (RouteTree tree : _trees) {
+                    tree.updatePaths(e[0], e[1]);
+                }
+            }
+        }
+    }
+
+    /** Reopen the road between the locations named FROM and TO that was
+     *  closed by closeRoad.  Since this may shorten any route, the route
+     *  cache is cleared, but the trees returned by routeTree are
+     *  repaired.  Must not be called while trips are being planned. */
+    synchronized void reopenRoad(String from, String to) {
+        int u = vertex(from), v = vertex(to);
+        Road forward = _closed.remove(roadKey(u, v)),
+            backward = _closed.remove(roadKey(v, u));
+        if (forward == null && backward == null) {
+            error("no closed road between %s and %s", from, to);
+        }
+        roadsChanged();
+        _landmarks = null;
+        if (_cache != null) {
+            _cache.clear();
+        }
+        if (forward != null) {
+            _map.add(u, v, forward);
+        }
+        if (backward != null) {
+            _map.add(v, u, backward);
+        }
+        for (RouteTree tree : _trees) {
+            if (forward != null) {
+                tree.updatePaths(u, v);
+            }
+            if (backward != null) {
+                tree.updatePaths(v, u);
+            }
+        }
+    }
+
+    /** Returns the shortest routes from the location named SOURCE to all
+     *  others, which are kept up to date as roads are closed and
+     *  reopened. */
+    synchronized RouteTree routeTree(String source) {
+        RouteTree tree = new RouteTree(vertex(source));
+        tree.setPaths();
+        _trees.add(tree);
+        return tree;
+    }
+
+    /** Shortest routes from one location to all others.  After a road is
+     *  closed or reopened, only the routes that change are recomputed
+     *  (see ShortestPaths.updatePaths). */
+    class RouteTree extends SimpleShortestPaths {
+        /** Routes from vertex SOURCE. */
+        RouteTree(int source) {
+            super(_map, source);
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _map.getLabel(u, v).length();
+        }
+
+        /** Returns the length of the shortest route to the location named
+         *  DEST, or Double.MAX_VALUE if there is none. */
+        double distance(String dest) {
+            return getWeight(vertex(dest));
+        }
+
+        /** Returns the shortest route to the location named DEST, or null
+         *  if there is none. */
+        Route route(String dest) {
+            int v = vertex(dest);
+            if (getWeight(v) == Double.MAX_VALUE) {
+                return null;
+            }
+            return Trip.this.route(pathTo(v));
+        }
+    }
+
+    /** Alternative routes in _map, guided by straight-line distances and
+     *  any landmarks. */
+    private class RoadAlternatives extends KShortestPaths {
+        /** Routes in _map. */
+        RoadAlternatives() {
+            super(_map);
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _map.getLabel(u, v).length();
+        }
+
+        @Override
+        protected double estimatedDistance(int v, int dest) {
+            double d = _map.getLabel(v).dist(_map.getLabel(dest));
+            if (_landmarks != null) {
+                d = Math.max(d, _landmarks.lowerBound(v, dest));
+            }
+            return d;
+        }
+    }
+
+    /** Returns the vertex of the location named NAME. */
+    private int vertex(String name) {
+        requireWholeMap();
+        Integer v = _sites.get(name);
+        if (v == null) {
+            error("No location named %s", name);
+        }
+        return v;
+    }
+
+    /** Returns the key of the road from vertex U to vertex V in
+     *  _closed. */
+    private static long roadKey(int u, int v) {
+        return ((long) u << Integer.SIZE) | v;
+    }
+
+    /** Discard the structures derived from the roads of _map that cannot
+     *  be updated when a road is closed or reopened. */
+    private void roadsChanged() {
+        _hierarchy = null;
+        _turns = null;
+    }
+
+    /** Returns my map, whose vertices are labeled by Locations and whose
+     *  edges by Roads.  It must not be modified. */
+    LabeledGraph<Location, Road> map() {
+        return _map;
+    }
+
+    /** Returns the Route along PATH, a list of at least two vertices each
+     *  joined to the next by a road.  Adjacent roads with the same name
+     *  and direction are combined into one segment. */
+    Route route(List<Integer> path) {
+        ArrayList<String> roads = new ArrayList<>(),
+            directions = new ArrayList<>();
+        double[] lengths = new double[path.size()];
+        Iterator<Integer> iter = path.iterator();
         int current = iter.next();
-        double lastDistance, currentDistance;
-        String lastRoadName, lastDirectionName,
-                currentRoadName, currentDirectionName, destName;
-        Road lastRoad, currentRoad;
-        lastRoad = _map.getLabel(last, current);
-        lastRoadName = lastRoad.toString();
-        lastDirectionName = lastRoad.direction().fullName();
-        lastDistance = lastRoad.length();
-        currentRoadName = "";
-        currentDirectionName = "";
-        destName = "";
-        currentDistance = 0;
         while (iter.hasNext()) {
-            last = current;
+            int last = current;
             current = iter.next();
-            currentRoad = _map.getLabel(last, current);
-            currentRoadName = currentRoad.toString();
-            currentDirectionName
-                    = currentRoad.direction().fullName();
-            currentDistance = currentRoad.length();
-            if (currentRoadName.equals(lastRoadName)
-                    && currentDirectionName.equals(lastDirectionName)) {
-                lastDistance += currentDistance;
+            Road road = road(last, current);
+            String roadName = road.toString(),
+                directionName = road.direction().fullName();
+            int n = roads.size();
+            if (n > 0 && roadName.equals(roads.get(n - 1))
+                && directionName.equals(directions.get(n - 1))) {
+                lengths[n - 1] += road.length();
             } else {
-                System.out.printf("%d. Take %s %s for %.1f miles.\n",
-                        seq, lastRoadName,
-                        lastDirectionName, lastDistance);
-                lastRoadName = currentRoadName;
-                lastDirectionName = currentDirectionName;
-                lastDistance = currentDistance;
-                seq += 1;
-            }
-            destName = _map.getLabel(current).toString();
-        }
-        System.out.printf("%d. Take %s %s for %.1f miles to %s.\n",
-                seq, currentRoadName, currentDirectionName,
-                lastDistance, destName);
-        seq += 1;
-        return seq;
+                roads.add(roadName);
+                directions.add(directionName);
+                lengths[n] = road.length();
+            }
+        }
+        int n = roads.size();
+        return new Route(path, roads.toArray(new String[n]),
+                         directions.toArray(new String[n]),
+                         Arrays.copyOf(lengths, n),
+                         location(current).toString());
+    }
+
+    /** Returns the road from vertex U to vertex V of our map, which may
+     *  be partitioned. */
+    private Road road(int u, int v) {
+        return _partitioned == null ? _map.getLabel(u, v)
+            : _partitioned.road(u, v);
+    }
+
+    /** Returns the location of vertex V of our map, which may be
+     *  partitioned. */
+    private Location location(int v) {
+        return _partitioned == null ? _map.getLabel(v)
+            : _partitioned.location(v);
     }
 
     /** Add a new location named NAME at (X, Y). */
@@ -170,10 +1061,64 @@ class Trip {
 
     }
 
+    /** Default capacity of the route cache. */
+    static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /** Default limit on the length of alternative routes, relative to the
+     *  shortest. */
+    static final double DEFAULT_STRETCH = 1.5;
+
+    /** Minutes in a day. */
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** Times of day, as H:MM or HH:MM. */
+    private static final Pattern CLOCK =
+        Pattern.compile("(\\d\\d?):(\\d\\d)");
+
     /** Represents the network of Locations and Roads. */
     private RoadMap _map = new RoadMap();
     /** Mapping of Location names to corresponding map vertices. */
     private HashMap<String, Integer> _sites = new HashMap<>();
+    /** True iff trips are planned by bidirectional search. */
+    private boolean _bidirectional;
+    /** True iff trips are planned using _hierarchy. */
+    private boolean _contracted;
+    /** Contraction hierarchy of _map, or null if not yet built. */
+    private RoadHierarchy _hierarchy;
+    /** Penalty per turn, in miles (0 if turns are free). */
+    private double _turnPenalty;
+    /** Turn-aware search over _map, or null if not in use or not yet
+     *  built. */
+    private TurnSearch _turns;
+    /** Our map, if it is partitioned (in which case _map is unused), or
+     *  null. */
+    private PartitionedMap _partitioned;
+    /** Form of the reports of makeTrip. */
+    private ReportFormat _reportFormat = ReportFormat.TEXT;
+    /** Travel speeds for timed trips, or null if trips are untimed. */
+    private SpeedProfiles _speeds;
+    /** Earliest and latest departure times of timed trips. */
+    private double _departure, _latestDeparture;
+    /** Closed roads, keyed by roadKey. */
+    private final HashMap<Long, Road> _closed = new HashMap<>();
+    /** The trees returned by routeTree that are still in use. */
+    private final Set<RouteTree> _trees =
+        Collections.newSetFromMap(new WeakHashMap<>());
+    /** Name of the last map file read, or null. */
+    private String _mapName;
+    /** Number of landmarks for A* search (0 if none). */
+    private int _landmarkCount;
+    /** Landmarks of _map, or null if not yet computed. */
+    private Landmarks _landmarks;
+    /** Spatial index of the locations in _map, or null if not yet
+     *  built. */
+    private LocationIndex _locationIndex;
+    /** Recently planned routes, or null if routes are not cached. */
+    private RouteCache _cache = new RouteCache(DEFAULT_CACHE_SIZE);
+    /** The TripPlan of each thread that plans trips or computes distance
+     *  matrices. */
+    private final ThreadLocal<TripPlan> _plans =
+        ThreadLocal.withInitial(TripPlan::new);
 
     /** A labeled directed graph of Locations whose edges are labeled by
      *  Roads. */
@@ -184,12 +1129,71 @@ class Trip {
         }
     }
 
-    /** Paths in _map from a given location. */
-    private class TripPlan extends SimpleShortestPaths {
-        /** A plan for travel from START to DEST according to _map. */
-        TripPlan(int start, int dest) {
-            super(_map, start, dest);
-            _finalLocation = _map.getLabel(dest);
+    /** A task computing isochrones for a range of depots, splitting the
+     *  range among subtasks.  All share _map, which they only read. */
+    private class Isochrones extends RecursiveAction {
+        /** A task setting RESULT[i] to the region within BUDGET miles of
+         *  vertex DEPOTS[i], named NAMES.get(i), for all i. */
+        Isochrones(List<String> names, int[] depots, double budget,
+                   Isochrone[] result) {
+            this(names, depots, budget, result, 0, depots.length);
+        }
+
+        /** A task setting RESULT[i] as above, for LO <= i < HI. */
+        Isochrones(List<String> names, int[] depots, double budget,
+                   Isochrone[] result, int lo, int hi) {
+            _names = names;
+            _depots = depots;
+            _budget = budget;
+            _result = result;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) / 2;
+                invokeAll(new Isochrones(_names, _depots, _budget, _result,
+                                         _lo, mid),
+                          new Isochrones(_names, _depots, _budget, _result,
+                                         mid, _hi));
+            } else if (_hi > _lo) {
+                _result[_lo] = isochrone(_names.get(_lo), _depots[_lo],
+                                         _budget);
+            }
+        }
+
+        /** Names of the depots. */
+        private final List<String> _names;
+        /** Vertices of the depots. */
+        private final int[] _depots;
+        /** The budget, in miles. */
+        private final double _budget;
+        /** The isochrones being computed. */
+        private final Isochrone[] _result;
+        /** The range of depots handled by this task. */
+        private final int _lo, _hi;
+
+        /** Serialization version (RecursiveAction is Serializable). */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Paths in _map from a given location.  One TripPlan serves all the
+     *  legs of a trip, through setPaths(start, dest) and
+     *  setPaths(start, dests). */
+    private class TripPlan extends DenseShortestPaths {
+        /** A plan for travel according to _map, whose endpoints are to be
+         *  supplied to setPaths. */
+        TripPlan() {
+            super(_map, 0, 0);
+        }
+
+        @Override
+        public void setPaths() {
+            _startLocation = _map.getLabel(getSource());
+            _finalLocation = _map.getLabel(getDest());
+            super.setPaths();
         }
 
         @Override
@@ -199,12 +1203,188 @@ class Trip {
 
         @Override
         protected double estimatedDistance(int v) {
-            return _map.getLabel(v).dist(_finalLocation);
+            double d = _map.getLabel(v).dist(_finalLocation);
+            if (_landmarks != null) {
+                d = Math.max(d, _landmarks.lowerBound(v, getDest()));
+            }
+            return d;
+        }
+
+        @Override
+        protected double estimatedSourceDistance(int v) {
+            double d = _map.getLabel(v).dist(_startLocation);
+            if (_landmarks != null) {
+                d = Math.max(d, _landmarks.lowerBound(getSource(), v));
+            }
+            return d;
         }
 
+        /** Returns a shortest path found by my last search from my
+         *  source to V, or an empty list if V was not reached. */
+        List<Integer> route(int v) {
+            if (getWeight(v) == Double.MAX_VALUE) {
+                return Collections.emptyList();
+            }
+            return pathTo(v);
+        }
+
+        /** Location of the start. */
+        private Location _startLocation;
         /** Location of the destination. */
-        private final Location _finalLocation;
+        private Location _finalLocation;
+
+    }
+
+    /** The task of filling in the rows of a distance matrix for a range
+     *  of sources, which it splits in half until one source remains. */
+    private class MatrixRows extends RecursiveAction {
+        /** A task filling in the rows of DISTANCES (and, unless it is
+         *  null, TREES) for all sources FROM, with targets TO. */
+        MatrixRows(int[] from, int[] to, double[][] distances,
+                   int[][] trees) {
+            _from = from;
+            _to = to;
+            _distances = distances;
+            _trees = trees;
+            _lo = 0;
+            _hi = from.length;
+        }
+
+        /** A task filling in rows LO .. HI-1 of the matrix of PARENT. */
+        MatrixRows(MatrixRows parent, int lo, int hi) {
+            _from = parent._from;
+            _to = parent._to;
+            _distances = parent._distances;
+            _trees = parent._trees;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) / 2;
+                invokeAll(new MatrixRows(this, _lo, mid),
+                          new MatrixRows(this, mid, _hi));
+            } else if (_hi > _lo) {
+                TripPlan plan = _plans.get();
+                plan.setPaths(_from[_lo], _to);
+                double[] row = new double[_to.length];
+                for (int j = 0; j < _to.length; j += 1) {
+                    row[j] = plan.getWeight(_to[j]);
+                }
+                _distances[_lo] = row;
+                if (_trees != null) {
+                    int[] tree = new int[_map.maxVertex() + 1];
+                    for (int v = 1; v < tree.length; v += 1) {
+                        tree[v] = plan.getPredecessor(v);
+                    }
+                    _trees[_lo] = tree;
+                }
+            }
+        }
+
+        /** Source and target vertices. */
+        private final int[] _from, _to;
+        /** The distance matrix being filled in. */
+        private final double[][] _distances;
+        /** The predecessor trees being filled in, or null. */
+        private final int[][] _trees;
+        /** The range of sources handled by this task. */
+        private final int _lo, _hi;
+
+        /** Serialization version (RecursiveAction is Serializable). */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Shortest paths by road length through a graph with _map's
+     *  vertices and roads, from a given vertex to all others. */
+    private class LandmarkSearch extends DenseShortestPaths {
+        /** Paths through G, whose edges must be those of _map, possibly
+         *  reversed. */
+        LandmarkSearch(Graph G) {
+            super(G, 0);
+            _reversed = G != _map;
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            if (_reversed) {
+                return _map.getLabel(v, u).length();
+            }
+            return _map.getLabel(u, v).length();
+        }
+
+        /** True iff my graph is _map reversed. */
+        private final boolean _reversed;
+    }
+
+    /** A view of _map with every road reversed. */
+    private class ReversedMap extends GraphFilter {
+        /** A reversed view of _map. */
+        ReversedMap() {
+            super(_map);
+        }
+
+        @Override
+        public int outDegree(int v) {
+            return super.inDegree(v);
+        }
+
+        @Override
+        public int inDegree(int v) {
+            return super.outDegree(v);
+        }
+
+        @Override
+        public boolean contains(int u, int v) {
+            return super.contains(v, u);
+        }
+
+        @Override
+        public Iteration<Integer> successors(int v) {
+            return super.predecessors(v);
+        }
+
+        @Override
+        public int successor(int v, int k) {
+            return super.predecessor(v, k);
+        }
+
+        @Override
+        public Iteration<Integer> predecessors(int v) {
+            return super.successors(v);
+        }
+
+        @Override
+        public int predecessor(int v, int k) {
+            return super.successor(v, k);
+        }
+
+        @Override
+        public IntIteration intSuccessors(int v) {
+            return super.intPredecessors(v);
+        }
 
+        @Override
+        public IntIteration intPredecessors(int v) {
+            return super.intSuccessors(v);
+        }
+    }
+
+    /** A contraction hierarchy of _map, weighted by road length.  The
+     *  paths it returns consist of _map's own vertices, so that they
+     *  report exactly as those from a TripPlan. */
+    private class RoadHierarchy extends ContractionHierarchy {
+        /** An uncontracted hierarchy over _map. */
+        RoadHierarchy() {
+            super(_map);
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _map.getLabel(u, v).length();
+        }
     }
 
 }
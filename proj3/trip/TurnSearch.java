@@ -0,0 +1,255 @@
+package trip;
+
+import graph.LabeledGraph;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/** Shortest routes on a road map that charge a fixed penalty for each
+ *  turn, where a turn is any change of road name or direction between
+ *  consecutive segments (the same changes that start a new line in a
+ *  trip report).  The search is edge-based: its states are road segments
+ *  rather than locations, so that the cost of leaving a location can
+ *  depend on how it was entered.  The segments are held in compressed
+ *  arrays indexed by segment number (the outgoing segments of vertex v
+ *  are numbered _start[v] .. _start[v + 1] - 1), and each search uses
+ *  only a few primitive arrays indexed by segment number, which are
+ *  kept between searches by each thread.  Searches are A* searches
+ *  guided by straight-line distances and, optionally, landmark bounds,
+ *  which remain lower bounds when penalties are added.
+ *  @author Leslie Yang
+ */
+class TurnSearch {
+
+    /** A search over the roads of MAP (which must not change while I am
+     *  in use) that adds PENALTY miles for each turn. */
+    TurnSearch(LabeledGraph<Location, Road> map, double penalty) {
+        _penalty = penalty;
+        int n = map.maxVertex();
+        int m = map.edgeSize();
+        _locations = new Location[n + 1];
+        _start = new int[n + 2];
+        _target = new int[m];
+        _length = new double[m];
+        _roadName = new int[m];
+        _direction = new byte[m];
+        HashMap<String, Integer> names = new HashMap<>();
+        int e;
+        e = 0;
+        for (int v = 1; v <= n; v += 1) {
+            _start[v] = e;
+            if (!map.contains(v)) {
+                continue;
+            }
+            _locations[v] = map.getLabel(v);
+            for (int k = 0; k < map.outDegree(v); k += 1) {
+                int w = map.successor(v, k);
+                Road road = map.getLabel(v, w);
+                _target[e] = w;
+                _length[e] = road.length();
+                _roadName[e] = names.computeIfAbsent(road.toString(),
+                                                     s -> names.size());
+                _direction[e] = (byte) road.direction().ordinal();
+                e += 1;
+            }
+        }
+        _start[n + 1] = e;
+    }
+
+    /** Returns the penalty per turn, in miles. */
+    double penalty() {
+        return _penalty;
+    }
+
+    /** Returns the vertices along a route from vertex SOURCE to vertex
+     *  DEST of least total length plus turn penalties, starting with
+     *  SOURCE, or an empty list if there is none.  LANDMARKS, if not
+     *  null, supplies additional lower bounds on distances. */
+    List<Integer> route(int source, int dest, Landmarks landmarks) {
+        if (source == dest) {
+            return Collections.singletonList(source);
+        }
+        Query query = _queries.get();
+        int last = query.search(source, dest, landmarks);
+        if (last < 0) {
+            return Collections.emptyList();
+        }
+        ArrayList<Integer> path = new ArrayList<>();
+        for (int e = last; e >= 0; e = query._pred[e]) {
+            path.add(_target[e]);
+        }
+        path.add(source);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Returns true iff going from segment E to segment F is a turn. */
+    private boolean isTurn(int e, int f) {
+        return _roadName[e] != _roadName[f]
+            || _direction[e] != _direction[f];
+    }
+
+    /** The state of one thread's searches, indexed by segment number. */
+    private class Query {
+
+        /** Find a best route from SOURCE to DEST (distinct), using
+         *  LANDMARKS (if not null) for bounds.  Returns the last segment
+         *  of the route, or -1 if there is none.  Afterwards, _pred
+         *  gives the preceding segment of each segment on the route
+         *  (-1 for the first). */
+        int search(int source, int dest, Landmarks landmarks) {
+            clear();
+            Location goal = _locations[dest];
+            for (int e = _start[source]; e < _start[source + 1]; e += 1) {
+                relax(e, -1, _length[e], goal, dest, landmarks);
+            }
+            while (_size > 0) {
+                double g = _heapDist[0];
+                int e = pop();
+                if (g > _dist[e]) {
+                    continue;
+                }
+                int v = _target[e];
+                if (v == dest) {
+                    return e;
+                }
+                for (int f = _start[v]; f < _start[v + 1]; f += 1) {
+                    double d = g + _length[f];
+                    if (isTurn(e, f)) {
+                        d += _penalty;
+                    }
+                    if (d < _dist[f]) {
+                        relax(f, e, d, goal, dest, landmarks);
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /** Record D as the best distance so far to the end of segment E,
+         *  reached from segment PRED, and queue E with a key that adds a
+         *  lower bound on the remaining distance to vertex DEST, at
+         *  location GOAL, using LANDMARKS if not null. */
+        private void relax(int e, int pred, double d, Location goal,
+                           int dest, Landmarks landmarks) {
+            if (_dist[e] == Double.MAX_VALUE) {
+                _touched[_touchedCount] = e;
+                _touchedCount += 1;
+            }
+            _dist[e] = d;
+            _pred[e] = pred;
+            int v = _target[e];
+            double h = _locations[v].dist(goal);
+            if (landmarks != null) {
+                h = Math.max(h, landmarks.lowerBound(v, dest));
+            }
+            push(e, d, d + h);
+        }
+
+        /** Reset the distances set by the last search. */
+        private void clear() {
+            if (_dist == null || _dist.length != _target.length) {
+                _dist = new double[_target.length];
+                _pred = new int[_target.length];
+                _touched = new int[_target.length];
+                Arrays.fill(_dist, Double.MAX_VALUE);
+            } else {
+                for (int i = 0; i < _touchedCount; i += 1) {
+                    _dist[_touched[i]] = Double.MAX_VALUE;
+                }
+            }
+            _touchedCount = 0;
+            _size = 0;
+        }
+
+        /** Add segment E, at distance D, to the queue with priority
+         *  KEY. */
+        private void push(int e, double d, double key) {
+            if (_size == _heap.length) {
+                int n = 2 * _size;
+                _heap = Arrays.copyOf(_heap, n);
+                _heapDist = Arrays.copyOf(_heapDist, n);
+                _heapKey = Arrays.copyOf(_heapKey, n);
+            }
+            int i = _size;
+            _size += 1;
+            while (i > 0 && _heapKey[(i - 1) / 2] > key) {
+                int p = (i - 1) / 2;
+                _heap[i] = _heap[p];
+                _heapDist[i] = _heapDist[p];
+                _heapKey[i] = _heapKey[p];
+                i = p;
+            }
+            _heap[i] = e;
+            _heapDist[i] = d;
+            _heapKey[i] = key;
+        }
+
+        /** Remove and return the segment of least priority from the
+         *  queue. */
+        private int pop() {
+            int result = _heap[0];
+            _size -= 1;
+            int e = _heap[_size];
+            double d = _heapDist[_size], key = _heapKey[_size];
+            int i;
+            i = 0;
+            while (2 * i + 1 < _size) {
+                int c = 2 * i + 1;
+                if (c + 1 < _size && _heapKey[c + 1] < _heapKey[c]) {
+                    c += 1;
+                }
+                if (_heapKey[c] >= key) {
+                    break;
+                }
+                _heap[i] = _heap[c];
+                _heapDist[i] = _heapDist[c];
+                _heapKey[i] = _heapKey[c];
+                i = c;
+            }
+            _heap[i] = e;
+            _heapDist[i] = d;
+            _heapKey[i] = key;
+            return result;
+        }
+
+        /** Best distance found to the end of each segment, or
+         *  Double.MAX_VALUE. */
+        private double[] _dist;
+        /** Preceding segment of each reached segment, or -1. */
+        private int[] _pred;
+        /** Segments whose _dist has been set. */
+        private int[] _touched;
+        /** Number of entries in _touched. */
+        private int _touchedCount;
+        /** Queued segments, as a binary heap on _heapKey (with stale
+         *  entries, which have _heapDist greater than _dist). */
+        private int[] _heap = new int[64];
+        /** Distances and priorities of the queued segments. */
+        private double[] _heapDist = new double[64],
+            _heapKey = new double[64];
+        /** Number of queued segments. */
+        private int _size;
+    }
+
+    /** Penalty per turn. */
+    private final double _penalty;
+    /** Location of each vertex (null if none). */
+    private final Location[] _locations;
+    /** Index of the first outgoing segment of each vertex. */
+    private final int[] _start;
+    /** End vertex of each segment. */
+    private final int[] _target;
+    /** Length of each segment. */
+    private final double[] _length;
+    /** Road name number of each segment. */
+    private final int[] _roadName;
+    /** Direction ordinal of each segment. */
+    private final byte[] _direction;
+    /** The search state of each thread. */
+    private final ThreadLocal<Query> _queries =
+        ThreadLocal.withInitial(Query::new);
+
+}
@@ -9,6 +9,21 @@ import org.junit.Test;
 import ucb.junit.textui;
 import static org.junit.Assert.*;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+
 /** Unit tests for the trip package. */
 public class UnitTest {
 
@@ -21,4 +36,616 @@ public class UnitTest {
     public void dummyTest() {
     }
 
+    /** A small text map. */
+    private static final String MAP =
+        "L A 0 0\nL B 0 1\nL C 1 1\nL D 2 1\n"
+        + "R A Main_St 1.0 SN B\nR B Elm 1.2 WE C\n"
+        + "R C Elm 0.9 WE D\nR A Cut 3.1 WE D\n";
+
+    /** Returns the standard output of TRIP.makeTrip(DESTS). */
+    private static String tripOutput(Trip trip, List<String> dests) {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            trip.makeTrip(dests);
+        } finally {
+            System.setOut(stdout);
+        }
+        return bytes.toString();
+    }
+
+    /** Returns a new Trip whose map is the one whose text is MAPTEXT. */
+    private static Trip readTrip(String mapText) throws IOException {
+        return readTrip(new Trip(), mapText);
+    }
+
+    /** Read the map whose text is MAPTEXT into TRIP.  Returns TRIP. */
+    private static Trip readTrip(Trip trip, String mapText)
+        throws IOException {
+        File file = File.createTempFile("trip", ".map");
+        try {
+            Files.write(file.toPath(), mapText.getBytes());
+            trip.readMap(file.getPath());
+            return trip;
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void compiledMap() throws IOException {
+        File bin = File.createTempFile("trip", ".bin");
+        try {
+            Files.write(bin.toPath(), MAP.getBytes());
+            assertFalse(MapFile.isCompiled(bin.getPath()));
+            Trip fromText = readTrip(MAP);
+            fromText.writeMap(bin.getPath());
+            assertTrue(MapFile.isCompiled(bin.getPath()));
+            Trip fromBin = new Trip();
+            fromBin.readMap(bin.getPath());
+            List<String> dests = asList("A", "D", "B");
+            assertEquals(tripOutput(fromText, dests),
+                         tripOutput(fromBin, dests));
+        } finally {
+            bin.delete();
+        }
+    }
+
+    /** Returns the error message from reading a map whose text is TEXT,
+     *  or null if there is none. */
+    private static String mapError(String text) throws IOException {
+        try {
+            readTrip(text);
+            return null;
+        } catch (IllegalArgumentException excp) {
+            return excp.getMessage();
+        }
+    }
+
+    @Test
+    public void parallelMapLoading() throws IOException {
+        String multiline = MAP.replace(" Elm ", "\nElm\n");
+        File text = File.createTempFile("trip", ".map");
+        try {
+            Files.write(text.toPath(), MAP.getBytes());
+            assertNotNull(MapLoader.read(text.getPath(), new HashMap<>()));
+            Files.write(text.toPath(), multiline.getBytes());
+            assertNotNull(MapLoader.read(text.getPath(), new HashMap<>()));
+            Files.write(text.toPath(), (MAP + "R A Elm x WE D\n")
+                        .getBytes());
+            assertNull(MapLoader.read(text.getPath(), new HashMap<>()));
+        } finally {
+            text.delete();
+        }
+        List<String> dests = asList("A", "D", "B");
+        assertEquals(tripOutput(readTrip(MAP), dests),
+                     tripOutput(readTrip(multiline), dests));
+        assertEquals("bad entry #3",
+                     mapError("L A 0 0\nL B 0 1\nR A M x NS B\n"));
+        assertEquals("location B not defined",
+                     mapError("L A 0 0\nR A M 1.0 NS B\nL B 0 1\n"));
+        assertEquals("multiple entries for A",
+                     mapError("L A 0 0\nL B 0 1\nL A 1 1\n"));
+        assertEquals("map entry #2: unknown type",
+                     mapError("L A 0 0\nX B 0 1\n"));
+        assertEquals("entry incomplete at end of file",
+                     mapError("L A 0 0\nL B 0\n"));
+    }
+
+    @Test
+    public void turnPenalty() throws IOException {
+        Trip trip = readTrip("L A 0 0\nL B 1 0\nL C 2 0\nL E 1 0.1\n"
+                             + "R A Main 1.0 WE B\nR B Main 1.0 WE C\n"
+                             + "R A Zig 0.95 WE E\nR E Zag 0.95 WE C\n");
+        List<String> dests = asList("A", "C");
+        assertTrue(tripOutput(trip, dests).contains("Take Zig"));
+        trip.setTurnPenalty(0.5);
+        assertEquals("From A:\n\n1. Take Main east for 2.0 miles "
+                     + "to C.\n",
+                     tripOutput(trip, dests).replace("\r", ""));
+        assertEquals("From C:\n\n1. Take Main west for 2.0 miles "
+                     + "to A.\n",
+                     tripOutput(trip, asList("C", "A")).replace("\r", ""));
+        trip.setTurnPenalty(0);
+        assertTrue(tripOutput(trip, dests).contains("Take Zig"));
+    }
+
+    @Test
+    public void timedTrips() throws IOException {
+        Trip trip = readTrip("L A 0 0\nL B 10 0\nL C 5 3\n"
+                             + "R A Hwy 10.0 WE B\nR A Local 6.0 SN C\n"
+                             + "R C Local 6.0 WE B\n");
+        File speeds = File.createTempFile("trip", ".spd");
+        try {
+            StringBuilder hwy = new StringBuilder("Hwy");
+            for (int k = 0; k < 96; k += 1) {
+                hwy.append(k >= 32 && k < 36 ? " 6" : " 60");
+            }
+            Files.write(speeds.toPath(), (hwy + "\n").getBytes());
+            trip.setSpeedProfiles(SpeedProfiles.read(speeds.getPath()));
+            List<String> dests = asList("A", "B");
+            trip.setDeparture(Trip.parseClock("7:00"), 0);
+            String out = tripOutput(trip, dests).replace("\r", "");
+            assertTrue(out.startsWith("From A at 07:00:"));
+            assertTrue(out.contains("Take Hwy"));
+            assertTrue(out.endsWith("Arrive at 07:10.\n"));
+            trip.setDeparture(Trip.parseClock("8:00"), 0);
+            out = tripOutput(trip, dests).replace("\r", "");
+            assertTrue(out.contains("Take Local"));
+            assertTrue(out.endsWith("Arrive at 08:24.\n"));
+            trip.setDeparture(Trip.parseClock("7:30"),
+                              Trip.parseClock("8:30"));
+            out = tripOutput(trip, dests).replace("\r", "");
+            assertTrue(out.startsWith("From A at 07:30:"));
+
+            SpeedProfiles profiles = SpeedProfiles.read(speeds.getPath());
+            TimedSearch search = new TimedSearch(trip.map(), profiles);
+            ArrivalFunction arrivals = search.profile(1, 2, 400, 560);
+            for (double t = 400; t <= 560; t += 2.5) {
+                search.setDeparture(t);
+                search.setPaths(1, 2);
+                assertEquals(t + search.getWeight(2), arrivals.at(t), 1e-6);
+            }
+        } finally {
+            speeds.delete();
+        }
+    }
+
+    @Test
+    public void roadClosures() throws IOException {
+        Trip trip = readTrip(MAP);
+        Trip.RouteTree tree = trip.routeTree("A");
+        assertEquals(2.2, tree.distance("C"), 1e-9);
+        String before = tripOutput(trip, asList("A", "C"));
+        assertTrue(before.contains("Take Elm"));
+        trip.closeRoad("B", "C");
+        assertEquals(4.0, tree.distance("C"), 1e-9);
+        assertEquals(3.1, tree.distance("D"), 1e-9);
+        assertTrue(tripOutput(trip, asList("A", "C")).contains("Cut"));
+        trip.closeRoad("D", "A");
+        assertEquals(Double.MAX_VALUE, tree.distance("D"), 0.0);
+        assertNull(tree.route("D"));
+        trip.reopenRoad("C", "B");
+        assertEquals(2.2, tree.distance("C"), 1e-9);
+        assertEquals(3.1, tree.distance("D"), 1e-9);
+        assertEquals(2, tree.route("D").size());
+        assertEquals(before, tripOutput(trip, asList("A", "C")));
+    }
+
+    @Test
+    public void alternatives() throws IOException {
+        Trip trip = readTrip(MAP);
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            trip.makeAlternatives(asList("A", "D"), 3, 2.0);
+        } finally {
+            System.setOut(stdout);
+        }
+        String out = bytes.toString().replace("\r", "");
+        assertTrue(out.startsWith("From A to D:\n\nRoute 1 (3.1 miles):"
+                                  + "\n1. Take "));
+        assertTrue(out.contains("\n\nRoute 2 (3.1 miles):\n1. Take "));
+        assertTrue(out.contains("Take Cut east for 3.1 miles to D.\n"));
+        assertTrue(out.contains("Take Elm east for 2.1 miles to D.\n"));
+        assertFalse(out.contains("Route 3"));
+    }
+
+    @Test
+    public void isochrones() throws IOException {
+        Trip trip = readTrip(MAP);
+        Isochrone region = trip.isochrone("A", 2.5);
+        assertEquals(3, region.size());
+        assertEquals("A", region.location(0));
+        assertEquals("B", region.location(1));
+        assertEquals("C", region.location(2));
+        assertEquals(2.2, region.distance(2), 1e-9);
+        assertEquals(2, region.boundarySize());
+        for (int k = 0; k < region.boundarySize(); k += 1) {
+            assertEquals("D", region.boundaryTo(k));
+            if (region.boundaryFrom(k).equals("A")) {
+                assertEquals("Cut", region.boundaryRoad(k).toString());
+                assertEquals(2.5, region.boundaryReach(k), 1e-9);
+            } else {
+                assertEquals("C", region.boundaryFrom(k));
+                assertEquals(0.3, region.boundaryReach(k), 1e-9);
+            }
+        }
+        Isochrone[] regions = trip.isochrones(asList("D", "A", "@0,0"), 1.0);
+        assertEquals(3, regions.length);
+        assertEquals("D", regions[0].depot());
+        assertEquals(2, regions[0].size());
+        assertEquals("C", regions[0].location(1));
+        assertEquals(2, regions[1].size());
+        assertEquals("A", regions[2].depot());
+        assertEquals(regions[1].size(), regions[2].size());
+    }
+
+    @Test
+    public void routeWriter() {
+        Random rand = new Random(61);
+        StringWriter blocks = new StringWriter();
+        RouteWriter out = new RouteWriter(blocks);
+        StringBuilder expected = new StringBuilder();
+        for (int k = 0; k < 20000; k += 1) {
+            double len;
+            switch (k % 4) {
+            case 0:
+                len = rand.nextInt(100000) / 20.0;
+                break;
+            case 1:
+                len = Math.nextUp(rand.nextInt(100000) / 20.0);
+                break;
+            case 2:
+                len = Math.nextDown(rand.nextInt(100000) / 20.0);
+                break;
+            default:
+                len = rand.nextDouble() * Math.pow(10, rand.nextInt(10) - 3);
+                break;
+            }
+            if (k % 7 == 0) {
+                out.step(k, "Elm", "west", len, "D" + k);
+                expected.append(String.format("%d. Take %s %s for %.1f miles"
+                                              + " to %s.\n",
+                                              k, "Elm", "west", len,
+                                              "D" + k));
+            } else {
+                out.step(k, "Elm", "west", len, null);
+                expected.append(String.format("%d. Take %s %s for %.1f"
+                                              + " miles.\n",
+                                              k, "Elm", "west", len));
+            }
+        }
+        assertTrue(blocks.toString().length() < expected.length());
+        out.flush();
+        assertEquals(expected.toString(), blocks.toString());
+        assertNull(out.ioException());
+    }
+
+    @Test
+    public void structuredReports() throws IOException {
+        Trip trip = readTrip(MAP);
+        trip.setReportFormat(ReportFormat.parse("json"));
+        assertEquals("{\"from\":\"A\",\"to\":\"B\",\"road\":"
+                     + "\"Main_St\",\"direction\":\"north\","
+                     + "\"length\":1.0,\"distance\":1.0}\n"
+                     + "{\"from\":\"B\",\"to\":\"C\",\"road\":"
+                     + "\"Elm\",\"direction\":\"east\","
+                     + "\"length\":1.2,\"distance\":2.2}\n",
+                     tripOutput(trip, asList("A", "C")));
+        trip.setReportFormat(ReportFormat.CSV);
+        assertEquals("from,to,road,direction,length,distance\n"
+                     + "A,B,Main_St,north,1.0,1.0\n"
+                     + "B,C,Elm,east,1.2,2.2\n",
+                     tripOutput(trip, asList("A", "C")));
+        StringBuilder out = new StringBuilder();
+        new RouteWriter(out, ReportFormat.CSV)
+            .segment("A,1", "\"B\"", "Elm", "east", 0.5, 0.5);
+        assertEquals("\"A,1\",\"\"\"B\"\"\",Elm,east,0.5,0.5\n",
+                     out.toString());
+        out.setLength(0);
+        new RouteWriter(out, ReportFormat.JSON)
+            .segment("A\\1", "\"B\"", "Elm\t", "east", 0.5, 0.5);
+        assertTrue(out.toString().startsWith(
+            "{\"from\":\"A\\\\1\",\"to\":\"\\\"B\\\"\","
+            + "\"road\":\"Elm\\u0009\","));
+    }
+
+    @Test
+    public void partitionedMap() throws IOException {
+        File part = File.createTempFile("trip", ".part");
+        try {
+            Random rand = new Random(24);
+            StringBuilder map = new StringBuilder();
+            int size = 10;
+            for (int x = 0; x < size; x += 1) {
+                for (int y = 0; y < size; y += 1) {
+                    map.append(String.format("L P%d_%d %d %d%n", x, y, x, y));
+                }
+            }
+            for (int x = 0; x < size; x += 1) {
+                for (int y = 0; y < size; y += 1) {
+                    if (x + 1 < size) {
+                        map.append(String.format("R P%d_%d E%d %s WE "
+                                                 + "P%d_%d%n", x, y, y,
+                                                 1 + rand.nextDouble(),
+                                                 x + 1, y));
+                    }
+                    if (y + 1 < size) {
+                        map.append(String.format("R P%d_%d N%d %s SN "
+                                                 + "P%d_%d%n", x, y, x,
+                                                 1 + rand.nextDouble(),
+                                                 x, y + 1));
+                    }
+                }
+            }
+            map.append("L Island 50 50\n");
+            Files.write(part.toPath(), map.toString().getBytes());
+            assertFalse(PartitionedMap.isPartitioned(part.getPath()));
+            Trip whole = readTrip(map.toString());
+            whole.writePartitionedMap(part.getPath(), 7);
+            assertTrue(PartitionedMap.isPartitioned(part.getPath()));
+
+            PartitionedMap cells = new PartitionedMap(part.getPath(), 2);
+            assertEquals(size * size + 1, cells.locations());
+            assertTrue(cells.cells() > 1);
+            assertEquals(-1, cells.vertex("Nowhere"));
+            for (int k = 0; k < 30; k += 1) {
+                String from = String.format("P%d_%d", rand.nextInt(size),
+                                            rand.nextInt(size)),
+                    to = String.format("P%d_%d", rand.nextInt(size),
+                                       rand.nextInt(size));
+                List<Integer> path =
+                    cells.path(cells.vertex(from), cells.vertex(to));
+                assertEquals(from, cells.location(path.get(0)).toString());
+                assertEquals(to, cells.location(path.get(path.size() - 1))
+                             .toString());
+                double length;
+                length = 0.0;
+                for (int i = 0; i + 1 < path.size(); i += 1) {
+                    length += cells.road(path.get(i), path.get(i + 1))
+                        .length();
+                }
+                assertEquals(whole.distanceMatrix(asList(from), asList(to),
+                                                  false).distance(0, 0),
+                             length, 1e-9);
+                assertTrue(cells.cachedCells() <= 2);
+            }
+            assertTrue(cells.path(cells.vertex("P0_0"),
+                                  cells.vertex("Island")).isEmpty());
+
+            Trip partitioned = new Trip();
+            partitioned.readMap(part.getPath());
+            List<String> dests = asList("P0_0", "P9_9", "P3_7", "P3_6");
+            assertEquals(tripOutput(whole, dests),
+                         tripOutput(partitioned, dests));
+            try {
+                partitioned.distanceMatrix(dests, dests, false);
+                fail("partitioned map accepted a distance matrix");
+            } catch (IllegalArgumentException excp) {
+                /* Expected. */
+            }
+        } finally {
+            part.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedCompiledMap() throws IOException {
+        File bin = File.createTempFile("trip", ".bin");
+        try {
+            readTrip(MAP).writeMap(bin.getPath());
+            byte[] data = Files.readAllBytes(bin.toPath());
+            Files.write(bin.toPath(), Arrays.copyOf(data, 40));
+            new Trip().readMap(bin.getPath());
+        } finally {
+            bin.delete();
+        }
+    }
+
+    @Test
+    public void distanceMatrix() throws IOException {
+        Trip trip = readTrip(MAP + "L E 5 5\n");
+        DistanceMatrix m =
+            trip.distanceMatrix(asList("A", "D", "E"),
+                                asList("D", "A", "C"), true);
+        assertEquals(3, m.sources());
+        assertEquals(3, m.targets());
+        assertEquals(3.1, m.distance(0, 0), 1e-9);
+        assertEquals(0.0, m.distance(0, 1), 0.0);
+        assertEquals(2.2, m.distance(0, 2), 1e-9);
+        assertEquals(3.1, m.distance(1, 1), 1e-9);
+        assertEquals(Double.MAX_VALUE, m.distance(2, 0), 0.0);
+        assertTrue(m.path(2, 0).isEmpty());
+        assertEquals(3, m.path(0, 2).size());
+        assertEquals(2, m.path(1, 1).size());
+        List<String> sources = Main.locationList("@1.9,1.2, A,@0, 0.9");
+        assertEquals(asList("@1.9,1.2", "A", "@0,0.9"), sources);
+        m = trip.distanceMatrix(sources, asList("C"), false);
+        assertEquals(0.9, m.distance(0, 0), 1e-9);
+        assertEquals(2.2, m.distance(1, 0), 1e-9);
+        assertEquals(1.2, m.distance(2, 0), 1e-9);
+    }
+
+    @Test
+    public void sharedSources() throws IOException {
+        Trip grouped = readTrip(MAP), single = readTrip(MAP);
+        grouped.setCacheSize(0);
+        single.setCacheSize(0);
+        List<String> dests = asList("A", "D", "A", "C", "B", "A", "B");
+        StringBuilder expected = new StringBuilder("From A:\n\n");
+        int step;
+        step = 0;
+        for (int i = 0; i + 1 < dests.size(); i += 1) {
+            String leg = tripOutput(single, dests.subList(i, i + 2))
+                .replace("\r", "");
+            for (String line : leg.split("\n")) {
+                if (line.matches("\\d+\\. .*")) {
+                    step += 1;
+                    expected.append(step)
+                        .append(line.substring(line.indexOf('.')))
+                        .append('\n');
+                }
+            }
+        }
+        assertEquals(expected.toString(),
+                     tripOutput(grouped, dests).replace("\r", ""));
+    }
+
+    @Test
+    public void routeCacheEviction() {
+        RouteCache cache = new RouteCache(2);
+        Route r1 = new Route(asList(1, 2), new String[] { "A" },
+                             new String[] { "north" }, new double[] { 1 },
+                             "X"),
+            r2 = new Route(asList(2, 1), new String[] { "A" },
+                           new String[] { "south" }, new double[] { 1 },
+                           "Y");
+        cache.put(1, 2, r1);
+        cache.put(2, 1, r2);
+        assertSame(r1, cache.get(1, 2));
+        cache.put(3, 1, r2);
+        assertNull(cache.get(2, 1));
+        assertSame(r1, cache.get(1, 2));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void cachedTrips() throws IOException {
+        Trip trip = readTrip(MAP);
+        List<String> dests = asList("A", "D", "B", "A", "D");
+        String first = tripOutput(trip, dests);
+        RouteCache cache = trip.cache();
+        assertEquals(0, cache.hits());
+        assertEquals(4, cache.misses());
+        assertEquals(first, tripOutput(trip, dests));
+        assertEquals(4, cache.hits());
+        trip.setCacheSize(0);
+        assertEquals(first, tripOutput(trip, dests));
+        trip.setCacheSize(10);
+        tripOutput(trip, dests);
+        assertEquals(3, trip.cache().size());
+        readTrip(trip, "L F 9 9\n");
+        assertEquals(0, trip.cache().size());
+    }
+
+    @Test
+    public void locationIndex() {
+        final int n = 500;
+        Random r = new Random(13);
+        int[] vertices = new int[n];
+        double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            vertices[i] = i + 1;
+            xs[i] = r.nextInt(100);
+            ys[i] = r.nextDouble() * 100;
+        }
+        LocationIndex index = new LocationIndex(vertices, xs, ys);
+        for (int q = 0; q < 100; q += 1) {
+            double x = r.nextDouble() * 120 - 10,
+                y = r.nextDouble() * 120 - 10;
+            double[] d = new double[n];
+            for (int i = 0; i < n; i += 1) {
+                d[i] = Math.hypot(xs[i] - x, ys[i] - y);
+            }
+            double[] sorted = d.clone();
+            Arrays.sort(sorted);
+            int[] near = index.nearest(x, y, 5);
+            assertEquals(5, near.length);
+            for (int k = 0; k < 5; k += 1) {
+                assertEquals(sorted[k], d[near[k] - 1], 1e-9);
+            }
+            assertEquals(sorted[0], d[index.nearest(x, y) - 1], 1e-9);
+            int count;
+            count = 0;
+            for (double dist : d) {
+                if (dist <= 15) {
+                    count += 1;
+                }
+            }
+            int[] within = index.within(x, y, 15);
+            assertEquals(count, within.length);
+            for (int v : within) {
+                assertTrue(d[v - 1] <= 15);
+            }
+        }
+        assertEquals(0, new LocationIndex(new int[0], new double[0],
+                                          new double[0]).nearest(1, 1));
+    }
+
+    @Test
+    public void snapToLocations() throws IOException {
+        Trip trip = readTrip(MAP);
+        assertEquals(asList("A", "C", "D"),
+                     trip.snap(asList("A", "@0.9,1.2", "@2, 0.5")));
+        assertEquals("B", trip.nearestLocations(0, 0.8, 2)[0]);
+        assertEquals(2, trip.locationsWithin(0.5, 1, 0.6).length);
+        assertEquals(tripOutput(trip, asList("A", "D")),
+                     tripOutput(trip, asList("@0.1,-0.1", "@3,1")));
+    }
+
+    @Test
+    public void landmarks() throws IOException {
+        File text = File.createTempFile("trip", ".map"),
+            alt = new File(text.getPath() + ".alt");
+        try {
+            Files.write(text.toPath(), MAP.getBytes());
+            Trip plain = readTrip(MAP), withAlt = new Trip();
+            withAlt.readMap(text.getPath());
+            withAlt.setLandmarks(2);
+            List<String> dests = asList("A", "D", "B", "C", "A");
+            assertEquals(tripOutput(plain, dests),
+                         tripOutput(withAlt, dests));
+            assertTrue(alt.exists());
+            Landmarks saved = Landmarks.read(alt.getPath(), 4, 0);
+            assertNull(saved);
+            Trip again = new Trip();
+            again.readMap(text.getPath());
+            again.setLandmarks(2);
+            assertEquals(tripOutput(plain, dests),
+                         tripOutput(again, dests));
+            again.setCacheSize(0);
+            again.setLandmarks(10);
+            tripOutput(again, dests);
+            assertTrue(alt.setLastModified(0));
+            again.setLandmarks(10);
+            assertEquals(tripOutput(plain, dests),
+                         tripOutput(again, dests));
+            assertEquals(0, alt.lastModified());
+            DistanceMatrix m =
+                plain.distanceMatrix(asList("A", "B", "C", "D"),
+                                     asList("A", "B", "C", "D"), false);
+            double[][] table = new double[1][5], back = new double[1][5];
+            for (int v = 1; v <= 4; v += 1) {
+                table[0][v] = m.distance(0, v - 1);
+                back[0][v] = m.distance(v - 1, 0);
+            }
+            Landmarks lm = new Landmarks(4, 0, new int[] { 1 },
+                                         table, back);
+            for (int u = 1; u <= 4; u += 1) {
+                for (int v = 1; v <= 4; v += 1) {
+                    assertTrue(lm.lowerBound(u, v)
+                               <= m.distance(u - 1, v - 1) + 1e-9);
+                }
+            }
+        } finally {
+            text.delete();
+            alt.delete();
+        }
+    }
+
+    @Test
+    public void requestStream() throws IOException {
+        Trip trip = readTrip(MAP);
+        assertEquals(asList("@0.1,-0.1", "D", "@2, 1", "B"),
+                     RequestStream.locations("@0.1,-0.1 D,@2, 1 B"));
+        String[] requests = { "A D", "D,B", "B X", "C A", "A, D  C",
+                              "@0.1,-0.1 D", "B, @2, 1" };
+        StringBuilder input = new StringBuilder(), expected =
+            new StringBuilder();
+        for (String request : requests) {
+            input.append(request).append("\n\n");
+            if (!request.contains("X")) {
+                if (expected.length() > 0) {
+                    expected.append(System.lineSeparator());
+                }
+                expected.append(tripOutput(trip,
+                                           RequestStream.locations(request)));
+            }
+        }
+        StringWriter out = new StringWriter(), err = new StringWriter();
+        new RequestStream(trip, 3).run(
+            new BufferedReader(new StringReader(input.toString())),
+            out, err);
+        assertEquals(expected.toString(), out.toString());
+        assertEquals(String.format("trip: No location named X%n"),
+                     err.toString());
+    }
+
 }